@@ -58,6 +58,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static Memory memory;
     /** Lock variable used at head of synchronized block to guard MIPS memory and registers **/
       public static Object memoryAndRegistersLock = new Object();
+    /** True when the simulator thread is the only thread that reads or writes MIPS memory and registers,
+     *  as in a command-line run.  Memory, registers and the simulator then skip their locks.  Must not be
+     *  set while a GUI or tool could touch MIPS state. **/
+      public static boolean singleOwnerExecution = false;
     /** Flag to determine whether or not to produce internal debugging information. **/
       public static boolean debug = false;
     /** Object that contains various settings that can be accessed modified internally. **/
@@ -83,6 +87,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int maximumErrorMessages = getErrorLimit();
     /** Maximum number of back-step operations to buffer */
       public static final int maximumBacksteps = getBackstepLimit();
+    /** Number of instructions between time travel checkpoints */
+      public static final int checkpointInterval = getCheckpointInterval();
+    /** Maximum number of time travel checkpoints to keep */
+      public static final int maximumCheckpoints = getCheckpointLimit();
+    /** Number of entries into a basic block after which a fast run compiles it; 0 to never compile */
+      public static final int hotBlockThreshold = getHotBlockThreshold();
+    /** Whether compiling a block fuses common pairs of instructions into one operation */
+      public static final boolean fuseInstructions = getFuseInstructions();
    	/** MARS copyright years */
       public static final String copyrightYears = getCopyrightYears();
    	/** MARS copyright holders */
@@ -120,7 +132,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      
        public static void initialize(boolean gui) {
          if (!initialized) {
-            memory = Memory.getInstance();  //clients can use Memory.getInstance instead of Globals.memory
+            memory = MachineContext.getDefault().getMemory();  //clients can use Memory.getInstance instead of Globals.memory
             instructionSet = new InstructionSet();
             instructionSet.populate();    
             symbolTable = new SymbolTable("global");
@@ -145,6 +157,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        private static int getBackstepLimit() {
          return getIntegerProperty(configPropertiesFile, "BackstepLimit", 1000);
       } 
+   	
+   	// Read number of instructions between time travel checkpoints from properties file.
+       private static int getCheckpointInterval() {
+         return getIntegerProperty(configPropertiesFile, "CheckpointInterval", 100000);
+      } 
+   	
+   	// Read maximum number of time travel checkpoints from properties file.
+       private static int getCheckpointLimit() {
+         return getIntegerProperty(configPropertiesFile, "CheckpointLimit", 64);
+      } 
+		
+   	// Read number of block entries before a block is compiled from properties file.
+       private static int getHotBlockThreshold() {
+         return getIntegerProperty(configPropertiesFile, "HotBlockThreshold", 50);
+      } 
+   	
+       private static boolean getFuseInstructions() {
+         String fuse = getPropertyEntry(configPropertiesFile, "FuseInstructions");
+         return fuse == null || !fuse.trim().equalsIgnoreCase("false");
+      } 
 		
    	// Read ASCII default display character for non-printing characters, from properties file.
        public static String getAsciiNonPrint() {
@@ -6,6 +6,7 @@
    import mars.mips.hardware.*;
 	
    import java.util.*;
+   import java.util.concurrent.*;
    import java.io.*;
    import java.awt.event.*;
    import javax.swing.*;
@@ -58,6 +59,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private ArrayList parsedList;
       private ArrayList machineList;
       private BackStepper backStepper;
+      private TimeTravel timeTravel;
       private SymbolTable localSymbolTable;
       private MacroPool macroPool;
       private ArrayList<SourceLine> sourceLineList;
@@ -169,6 +171,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return backStepper;
       }
    
+   /**
+    * Returns TimeTravel associated with this program.  It is created upon successful assembly
+    * if the time travel setting is enabled.
+    * @return TimeTravel object, null if there is none.
+    **/
+    
+       public TimeTravel getTimeTravel() {
+         return timeTravel;
+      }
+   
    /**
     * Returns SymbolTable associated with this program.  It is created at assembly time,
     * and stores local labels (those not declared using .globl directive).
@@ -249,6 +261,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /**
     * Prepares the given list of files for assembly.  This involves
     * reading and tokenizing all the source files.  There may be only one.
+    * If there are several, they are read and tokenized in parallel.
     * @param filenames  ArrayList containing the source file name(s) in no particular order
     * @param leadFilename String containing name of source file that needs to go first and 
     * will be represented by "this" MIPSprogram object.
@@ -268,11 +281,31 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             filenames.add(0, exceptionHandler);
             leadFilePosition = 1;
          }
+         MIPSprogram[] preparees = new MIPSprogram[filenames.size()];
+         ArrayList tasks = new ArrayList();
+         boolean thisPrepared = false;
          for (int i=0; i<filenames.size(); i++) {
-            String filename = (String) filenames.get(i);  
-            MIPSprogram preparee = (filename.equals(leadFilename)) ? this : new MIPSprogram();
-            preparee.readSource(filename);
-            preparee.tokenize();
+            final String filename = (String) filenames.get(i);  
+            final MIPSprogram preparee = (filename.equals(leadFilename)) ? this : new MIPSprogram();
+            preparees[i] = preparee;
+            if (preparee == this) {
+               if (thisPrepared) {
+                  continue; // lead file listed twice; one reading serves for both
+               }
+               thisPrepared = true;
+            }
+            tasks.add(
+                   new Callable() {
+                      public Object call() throws ProcessingException {
+                        preparee.readSource(filename);
+                        preparee.tokenize();
+                        return null;
+                     }
+                  });
+         }
+         prepareInParallel(tasks);
+         for (int i=0; i<preparees.length; i++) {
+            MIPSprogram preparee = preparees[i];
          	// I want "this" MIPSprogram to be the first in the list...except for exception handler
             if (preparee == this && MIPSprogramsToAssemble.size()>0) {
                MIPSprogramsToAssemble.add(leadFilePosition,preparee);
@@ -284,6 +317,50 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return MIPSprogramsToAssemble;
       }
    
+      // Run the tasks, in parallel if there is more than one and more than one processor,
+   	// and wait for all of them.  If any fail, throw the exception of the first in the list
+   	// to fail, so the error reported is the one that reading the files one after another
+   	// would report.
+       private static void prepareInParallel(ArrayList tasks) throws ProcessingException {
+         if (tasks.size() == 1 || Runtime.getRuntime().availableProcessors() == 1) {
+            for (int i=0; i<tasks.size(); i++) {
+               try {
+                  ((Callable) tasks.get(i)).call();
+               } 
+                   catch (ProcessingException e) {
+                     throw e;
+                  }
+                   catch (Exception e) {
+                     throw new RuntimeException(e);
+                  }
+            }
+            return;
+         }
+         List futures = ForkJoinPool.commonPool().invokeAll(tasks);
+         for (int i=0; i<futures.size(); i++) {
+            try {
+               ((Future) futures.get(i)).get();
+            } 
+                catch (ExecutionException e) {
+                  // The pool may wrap the task's exception, more than once.
+                  Throwable cause = e.getCause();
+                  while (cause instanceof RuntimeException && cause.getCause() != null) {
+                     cause = cause.getCause();
+                  }
+                  if (cause instanceof ProcessingException) {
+                     throw (ProcessingException) cause;
+                  }
+                  if (cause instanceof Error) {
+                     throw (Error) cause;
+                  }
+                  throw new RuntimeException(cause);
+               }
+                catch (InterruptedException e) {
+                  throw new RuntimeException(e);
+               }
+         }
+      }
+   
    /**
     * Assembles the MIPS source program. All files comprising the program must have 
     * already been tokenized.  Assembler warnings are not considered errors.
@@ -314,13 +391,57 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ErrorList assemble(ArrayList MIPSprogramsToAssemble, boolean extendedAssemblerEnabled,
               boolean warningsAreErrors) throws ProcessingException {
          this.backStepper = null;
+         this.timeTravel = null;
          Assembler asm = new Assembler();
          this.machineList = asm.assemble(MIPSprogramsToAssemble, extendedAssemblerEnabled, warningsAreErrors);
          this.backStepper = new BackStepper();
+         if (Globals.getSettings().getBooleanSetting(Settings.TIME_TRAVEL_ENABLED)) {
+            this.timeTravel = new TimeTravel(this);
+         }
          return asm.getErrorList();
       }
    
    
+   /**
+    * Loads an assembled program image in place of reading, tokenizing and assembling the
+    * source files, provided the image is current for them.  Memory, the global symbol
+    * table and the machine list are left as assembling would leave them.
+    * @param image the image, as read from its file
+    * @param filenames ArrayList of source file names, as would be given to prepareFilesForAssembly()
+    * @param leadFilename name of the source file "this" MIPSprogram represents
+    * @param extendedAssemblerEnabled as would be given to assemble()
+    * @param warningsAreErrors as would be given to assemble()
+    * @return true if the image was loaded, false if it is not current, in which case
+    * nothing has changed
+    **/
+   
+       public boolean loadImage(ProgramImage image, ArrayList filenames, String leadFilename,
+              boolean extendedAssemblerEnabled, boolean warningsAreErrors) {
+         MIPSprogram[] sources = image.readSourcesIfCurrent(filenames, leadFilename,
+                                 extendedAssemblerEnabled, warningsAreErrors);
+         if (sources == null) {
+            return false;
+         }
+         this.filename = leadFilename;
+         for (int i=0; i<sources.length; i++) {
+            if (leadFilename.equals(sources[i].getFilename())) {
+               this.sourceList = sources[i].getSourceList();
+            }
+         }
+         this.tokenList = null;
+         this.sourceLineList = null;
+         this.localSymbolTable = new SymbolTable(leadFilename);
+         this.backStepper = null;
+         this.timeTravel = null;
+         this.machineList = image.load(sources, this);
+         this.backStepper = new BackStepper();
+         if (Globals.getSettings().getBooleanSetting(Settings.TIME_TRAVEL_ENABLED)) {
+            this.timeTravel = new TimeTravel(this);
+         }
+         return true;
+      }
+   
+   
    /**
     * Simulates execution of the MIPS program. Program must have already been assembled.
     * Begins simulation at beginning of text segment and continues to completion.
@@ -0,0 +1,256 @@
+   package mars;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import mars.simulator.*;
+   import mars.util.*;
+   import java.util.*;
+
+/**
+ * One complete simulated MIPS machine: memory, the CPU and coprocessor registers,
+ * delayed branch state, console streams and open files, the Simulator that runs it,
+ * the program, global symbol table and exit code that go with it, and any other state
+ * that instructions and syscalls keep between executions (see getState()).
+ * <p>
+ * Memory.getInstance(), Simulator.getInstance() and the static methods of RegisterFile,
+ * Coprocessor0, Coprocessor1, DelayedBranch and SystemIO all act on the context of the
+ * calling thread.  That is the default context unless the thread has called bind() on
+ * another one.  The GUI and command-mode MARS use the default context, whose program,
+ * symbol table and exit code are those in Globals and whose Memory is Globals.memory.
+ * <p>
+ * To run programs side by side in one JVM, give each thread a new context:
+ * <pre>
+ *   MachineContext context = new MachineContext();
+ *   context.getSystemIO().setConsole(input, output);
+ *   context.bind();
+ *   try {
+ *      MIPSprogram program = new MIPSprogram();
+ *      context.setProgram(program);
+ *      ... prepare, assemble and simulate as MarsLaunch does ...
+ *   }
+ *   finally {
+ *      MachineContext.unbind();
+ *   }
+ * </pre>
+ * The simulator's execution thread works in the context of the thread that starts it.
+ * Settings, the instruction set and the memory configuration are still shared by all
+ * contexts, and syscalls that use the GUI do so whatever the context.  Set
+ * Globals.singleOwnerExecution when nothing outside the running threads looks at
+ * machine state.
+ */
+
+    public class MachineContext {
+
+      private static final MachineContext defaultContext = new MachineContext(Globals.memoryAndRegistersLock);
+      private static final ThreadLocal boundContext = new ThreadLocal();
+      // Set once any thread binds a context other than the default.  Until then current()
+   	// does not need to consult the ThreadLocal.
+      private static volatile boolean contextsBound = false;
+
+      private Memory memory;
+      private RegisterFile registerFile;
+      private Coprocessor0 coprocessor0;
+      private Coprocessor1 coprocessor1;
+      private DelayedBranch delayedBranch;
+      private SystemIO systemIO;
+      private Simulator simulator;
+      private MIPSprogram program;
+      private SymbolTable symbolTable;
+      private int exitCode;
+      private Object lock;
+      private HashMap state = new HashMap();
+
+    /**
+     * Create a machine with empty memory and registers at their reset values.
+     */
+       public MachineContext() {
+         this(new Object());
+         symbolTable = new SymbolTable("global");
+      }
+
+       private MachineContext(Object lock) {
+         this.lock = lock;
+         memory = new Memory();
+         registerFile = new RegisterFile();
+         coprocessor0 = new Coprocessor0();
+         coprocessor1 = new Coprocessor1();
+         delayedBranch = new DelayedBranch();
+         systemIO = new SystemIO();
+      }
+
+    /**
+     * The context used by the GUI, by command-mode MARS and by any thread that has not
+     * bound another.
+     * @return the default context
+     */
+       public static MachineContext getDefault() {
+         return defaultContext;
+      }
+
+    /**
+     * The context of the calling thread.
+     * @return the context bound to this thread, or the default context if none is
+     */
+       public static MachineContext current() {
+         if (contextsBound) {
+            MachineContext context = (MachineContext) boundContext.get();
+            if (context != null) {
+               return context;
+            }
+         }
+         return defaultContext;
+      }
+
+    /**
+     * Make this the context of the calling thread, until unbind() or another bind().
+     */
+       public void bind() {
+         if (this == defaultContext) {
+            boundContext.remove();
+         }
+         else {
+            contextsBound = true;
+            boundContext.set(this);
+         }
+      }
+
+    /**
+     * Return the calling thread to the default context.
+     */
+       public static void unbind() {
+         boundContext.remove();
+      }
+
+    /**
+     * @return this machine's memory
+     */
+       public Memory getMemory() {
+         return memory;
+      }
+
+    /**
+     * @return this machine's CPU registers
+     */
+       public RegisterFile getRegisterFile() {
+         return registerFile;
+      }
+
+    /**
+     * @return this machine's coprocessor 0 registers
+     */
+       public Coprocessor0 getCoprocessor0() {
+         return coprocessor0;
+      }
+
+    /**
+     * @return this machine's floating point registers and condition flags
+     */
+       public Coprocessor1 getCoprocessor1() {
+         return coprocessor1;
+      }
+
+    /**
+     * @return this machine's delayed branch state
+     */
+       public DelayedBranch getDelayedBranch() {
+         return delayedBranch;
+      }
+
+    /**
+     * @return this machine's console streams and open files
+     */
+       public SystemIO getSystemIO() {
+         return systemIO;
+      }
+
+    /**
+     * @return this machine's simulator, created on first use
+     */
+       public synchronized Simulator getSimulator() {
+         if (simulator == null) {
+            simulator = new Simulator();
+         }
+         return simulator;
+      }
+
+    /**
+     * The program being worked with, whose BackStepper records changes to this machine.
+     * For the default context this is Globals.program.
+     * @return the program, or null if none
+     */
+       public MIPSprogram getProgram() {
+         return (this == defaultContext) ? Globals.program : program;
+      }
+
+    /**
+     * Set the program being worked with.  For the default context this sets Globals.program.
+     * @param program the program
+     */
+       public void setProgram(MIPSprogram program) {
+         if (this == defaultContext) {
+            Globals.program = program;
+         }
+         else {
+            this.program = program;
+         }
+      }
+
+    /**
+     * The symbol table of global labels used in assembling for this machine.  For the
+     * default context this is Globals.symbolTable.
+     * @return the global symbol table
+     */
+       public SymbolTable getSymbolTable() {
+         return (this == defaultContext) ? Globals.symbolTable : symbolTable;
+      }
+
+    /**
+     * Exit code given by the program run on this machine (syscall 17).  For the default
+     * context this is Globals.exitCode.
+     * @return the exit code
+     */
+       public int getExitCode() {
+         return (this == defaultContext) ? Globals.exitCode : exitCode;
+      }
+
+    /**
+     * Set the exit code.  For the default context this sets Globals.exitCode.
+     * @param exitCode the exit code
+     */
+       public void setExitCode(int exitCode) {
+         if (this == defaultContext) {
+            Globals.exitCode = exitCode;
+         }
+         else {
+            this.exitCode = exitCode;
+         }
+      }
+
+    /**
+     * State kept for this machine between executions of instructions or syscalls, such
+     * as the random number streams of the Rand syscalls.  Each user picks its own key,
+     * usually its class.  A new context starts with none.
+     * @param key the key the state was stored under
+     * @return the state, or null if none has been stored
+     */
+       public synchronized Object getState(Object key) {
+         return state.get(key);
+      }
+
+    /**
+     * Store state for this machine under the given key, replacing any stored before.
+     * @param key the key, usually the class of the user of the state
+     * @param value the state
+     */
+       public synchronized void setState(Object key, Object value) {
+         state.put(key, value);
+      }
+
+    /**
+     * Lock guarding this machine's memory and registers while an instruction executes.
+     * For the default context this is Globals.memoryAndRegistersLock.
+     * @return the lock object
+     */
+       public Object getLock() {
+         return lock;
+      }
+   }
@@ -6,6 +6,7 @@
    import mars.simulator.*;
    import java.io.*;
    import java.util.*;
+   import java.util.concurrent.*;
    import java.awt.*;
    import javax.swing.*;
    import javax.swing.JOptionPane;   // KENV 9/8/2004
@@ -56,6 +57,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  ae<n>  -- terminate MARS with integer exit code <n> if an assemble error occurs.<br>
    	  ascii  -- display memory or register contents interpreted as ASCII
    		   b  -- brief - do not display register/memory address along with contents<br>
+        batch  -- run the jobs listed in a manifest file.  Option has 1 argument, e.g.<br>
+                  <tt>batch &lt;manifest&gt;</tt>.  Each line of the manifest is one job:<br>
+                  file names, optional <tt>&lt; &lt;file&gt;</tt> for console input, optional<br>
+                  <tt>&gt; &lt;file&gt;</tt> for expected console output (see <tt>expect</tt>), optional<br>
+                  <tt>ms &lt;n&gt;</tt> for a maximum step count, and optional <tt>pa</tt> followed by<br>
+                  program arguments.<br>
+                  Jobs run in parallel, each on its own machine, and one line of JSON<br>
+                  giving the outcome and console output of each job is displayed.<br>
+        bw<n>  -- run at most <n> batch jobs at once (default is the number of processors).<br>
    		   d  -- print debugging statements<br>
            da  -- both a and d<br>
            db  -- MIPS delayed branching is enabled.<br>
@@ -65,9 +75,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   an address range (see <i>m-n</i> below).  Current supported <br>
                   segments are <tt>.text</tt> and <tt>.data</tt>.  Current supported dump formats <br>
                   are <tt>Binary</tt>, <tt>HexText</tt>, <tt>BinaryText</tt>.<br>
+       expect  -- compare console output with the expected output in a file, as it is<br>
+                  produced.  Option has 1 argument, e.g. <tt>expect &lt;file&gt;</tt>.  The program<br>
+                  is stopped at the first byte that differs.  Output reaches the comparison<br>
+                  at each newline or 8K of output, so the stop may come up to that much later.<br>
             h  -- display help.  Use by itself and with no filename</br>
           hex  -- display memory or register contents in hexadecimal (default)<br>
            ic  -- display count of MIPS basic instructions 'executed'");
+          img  -- use an assembled program image.  If the main file has a current image<br>
+                  (file name plus <tt>.mimg</tt>) it is loaded instead of assembling the<br>
+                  program; otherwise the program is assembled and the image written.<br>
+           in  -- take console input from a file instead of standard input.  Option has<br>
+                  1 argument, e.g. <tt>in &lt;file&gt;</tt>.<br>
            mc  -- set memory configuration.  Option has 1 argument, e.g.<br>
                   <tt>mc &lt;config$gt;</tt>, where &lt;config$gt; is <tt>Default</tt><br>
                   for the MARS default 32-bit address space, <tt>CompactDataAtZero</tt> for<br>
@@ -76,6 +95,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
            me  -- display MARS messages to standard err instead of standard out. Can separate via redirection.</br>
            nc  -- do not display copyright notice (for cleaner redirected/piped output).</br>
    		  np  -- No Pseudo-instructions allowed ("ne" will work also).<br>
+        ol<n>  -- stop the program once its console output exceeds <n> bytes.<br>
    		   p  -- Project mode - assemble all files in the same directory as given file.<br>
    	  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.<br>
            sm  -- Start execution at Main - Execution will start at program statement globally labeled main.<br>
@@ -125,6 +145,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private ArrayList programArgumentList; // optional program args for MIPS program (becomes argc, argv)
       private int assembleErrorExitCode;  // MARS command exit code to return if assemble error occurs
       private int simulateErrorExitCode;// MARS command exit code to return if simulation error occurs
+      private String batchManifest; // file listing the jobs for batch mode, null if not batch mode
+      private int batchWorkers; // maximum number of batch jobs run at once
+      private boolean useImage; // Whether to load or write an assembled program image
+      private String consoleInputFile; // file to take console input from, null for standard input
+      private String expectedOutputFile; // file holding expected console output, null if not compared
+      private long outputLimit; // maximum bytes of console output, 0 for no maximum
    		
       public MarsLaunch(String[] args) {
          boolean gui = (args.length == 0);
@@ -148,6 +174,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             instructionCount = 0;
             assembleErrorExitCode = 0;
             simulateErrorExitCode = 0;
+            batchManifest = null;
+            batchWorkers = Runtime.getRuntime().availableProcessors();
+            useImage = false;
+            consoleInputFile = null;
+            expectedOutputFile = null;
+            outputLimit = 0;
             registerDisplayList = new ArrayList();
             memoryDisplayList = new ArrayList();
             filenameList = new ArrayList();
@@ -157,12 +189,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             maxSteps = -1;
             out = System.out;  
             if (parseCommandArgs(args)) {
-               if (runCommand()) {
-                  displayMiscellaneousPostMortem();
-                  displayRegistersPostMortem();
-                  displayMemoryPostMortem();
+               if (batchManifest != null) {
+                  runBatch();
+               }
+               else {
+                  if (runCommand()) {
+                     displayMiscellaneousPostMortem();
+                     displayRegistersPostMortem();
+                     displayMemoryPostMortem();
+                  }
+                  dumpSegments();
                }
-               dumpSegments();
             }
             System.exit(Globals.exitCode);
          }
@@ -311,6 +348,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
                continue;
             } 
+            if (args[i].toLowerCase().equals("batch")) {
+               if (args.length <= (i+1)) {
+                  out.println("Batch command line argument requires a manifest file name.");
+                  argsOK = false;
+               } 
+               else {
+                  batchManifest = args[++i];
+               }
+               continue;
+            }
+            if (args[i].toLowerCase().equals("in") || args[i].toLowerCase().equals("expect")) {
+               if (args.length <= (i+1)) {
+                  out.println("The "+args[i]+" command line argument requires a file name.");
+                  argsOK = false;
+               } 
+               else if (!new File(args[i+1]).isFile()) {
+                  out.println("File not found: "+args[i+1]);
+                  argsOK = false;
+                  i++;
+               } 
+               else if (args[i].toLowerCase().equals("in")) {
+                  consoleInputFile = args[++i];
+               } 
+               else {
+                  expectedOutputFile = args[++i];
+               }
+               continue;
+            }
             if (args[i].toLowerCase().equals("mc")) {
                String configName = args[++i];
                MemoryConfiguration config = MemoryConfigurations.getConfigurationByName(configName);
@@ -333,6 +398,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   catch (NumberFormatException nfe) {
                    // Let it fall thru and get handled by catch-all
                   }
+            }
+         	// Set console output limit
+            if (args[i].toLowerCase().indexOf("ol")==0) {
+               String s = args[i].substring(2);					   
+               try {
+                  outputLimit = Math.max(0, Long.decode(s).longValue());
+                  continue;
+               }              
+                  catch (NumberFormatException nfe) {
+                   // Let it fall thru and get handled by catch-all
+                  }
+            }
+         	// Set number of batch jobs run at once
+            if (args[i].toLowerCase().indexOf("bw")==0) {
+               String s = args[i].substring(2);					   
+               try {
+                  batchWorkers = Math.max(1, Integer.decode(s).intValue());
+                  continue;
+               }              
+                  catch (NumberFormatException nfe) {
+                   // Let it fall thru and get handled by catch-all
+                  }
             }
          	// Set MARS exit code for simulate error
             if (args[i].toLowerCase().indexOf("se")==0) {
@@ -403,6 +490,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                countInstructions = true;
                continue;
             }
+            if (args[i].toLowerCase().equals("img")) {
+               useImage = true;
+               continue;
+            }
          
          
             if (args[i].indexOf("$") == 0) {
@@ -467,43 +558,36 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          try {
             Globals.getSettings().setBooleanSettingNonPersistent(Settings.DELAYED_BRANCHING_ENABLED, delayedBranching);
             Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, selfModifyingCode);
+            // Nothing in command mode can take execution back, so take no checkpoints.
+            Globals.getSettings().setBooleanSettingNonPersistent(Settings.TIME_TRAVEL_ENABLED, false);
             File mainFile = new File((String) filenameList.get(0)).getAbsoluteFile();// First file is "main" file
-            ArrayList filesToAssemble;
-            if (assembleProject) { 
-               filesToAssemble = FilenameFinder.getFilenameList(mainFile.getParent(), Globals.fileExtensions);
-               if (filenameList.size() > 1) {
-                  // Using "p" project option PLUS listing more than one filename on command line.
-                  // Add the additional files, avoiding duplicates.
-                  filenameList.remove(0); // first one has already been processed
-                  ArrayList moreFilesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
-                  // Remove any duplicates then merge the two lists.
-                  for (int index2 = 0; index2<moreFilesToAssemble.size(); index2++) {
-                     for (int index1 = 0; index1<filesToAssemble.size(); index1++) {
-                        if (filesToAssemble.get(index1).equals(moreFilesToAssemble.get(index2))) {
-                           moreFilesToAssemble.remove(index2);
-                           index2--; // adjust for left shift in moreFilesToAssemble...
-                           break;    // break out of inner loop...
-                        }
-                     }
-                  }
-                  filesToAssemble.addAll(moreFilesToAssemble);
-               }
-            } 
-            else {
-               filesToAssemble = FilenameFinder.getFilenameList(filenameList, FilenameFinder.MATCH_ALL_EXTENSIONS);
-            }
+            ArrayList filesToAssemble = getFilesToAssemble(filenameList);
             if (Globals.debug) {
                out.println("--------  TOKENIZING BEGINS  -----------");
             }
-            ArrayList MIPSprogramsToAssemble = 
-                      code.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);		
-            if (Globals.debug) {
-               out.println("--------  ASSEMBLY BEGINS  -----------");
-            }
-         	// Added logic to check for warnings and print if any. DPS 11/28/06
-            ErrorList warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
-            if (warnings != null && warnings.warningsOccurred()) {
-               out.println(warnings.generateWarningReport());
+            String imageFile = mainFile.getAbsolutePath() + ProgramImage.FILE_EXTENSION;
+            ProgramImage image = (useImage) ? readImage(imageFile) : null;
+            if (image != null && code.loadImage(image, filesToAssemble, mainFile.getAbsolutePath(), pseudo, warningsAreErrors)) {
+               if (image.getWarnings().length() > 0) {
+                  out.println(image.getWarnings());
+               }
+            } 
+            else {
+               ArrayList filesGiven = new ArrayList(filesToAssemble);
+               ArrayList MIPSprogramsToAssemble = 
+                         code.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);		
+               if (Globals.debug) {
+                  out.println("--------  ASSEMBLY BEGINS  -----------");
+               }
+            	// Added logic to check for warnings and print if any. DPS 11/28/06
+               ErrorList warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
+               if (warnings != null && warnings.warningsOccurred()) {
+                  out.println(warnings.generateWarningReport());
+               }
+               if (useImage) {
+                  writeImage(ProgramImage.capture(code, MIPSprogramsToAssemble, filesGiven, 
+                            mainFile.getAbsolutePath(), pseudo, warningsAreErrors, warnings), imageFile);
+               }
             }
             RegisterFile.initializeProgramCounter(startAtMain); // DPS 3/9/09
             if (simulate) {
@@ -514,9 +598,31 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                if (Globals.debug) {
                   out.println("--------  SIMULATION BEGINS  -----------");
                }
+               OutputComparator comparator = null;
+               if (consoleInputFile != null || expectedOutputFile != null || outputLimit > 0) {
+                  comparator = bindConsole();
+                  if (comparator == null) {
+                     return programRan;
+                  }
+               }
                programRan = true;
-               boolean done = code.simulate(maxSteps);
-               if (!done) {
+               // Nothing but the simulator touches MIPS state from the command line.
+               Globals.singleOwnerExecution = true;
+               boolean done;
+               boolean outputMatched = true;
+               try {
+                  done = code.simulate(maxSteps);
+               } 
+               finally {
+                  // Also when the program ends in a runtime error, which may well be why
+                  // its output falls short.  The error report follows.
+                  if (comparator != null && comparator.finish() != OutputComparator.MATCH) {
+                     outputMatched = false;
+                     out.println("\n"+comparator.getDescription());
+                     Globals.exitCode = simulateErrorExitCode;
+                  }
+               }
+               if (outputMatched && !done) {
                   out.println("\nProgram terminated when maximum step limit "+maxSteps+" reached.");
                }
             }
@@ -533,6 +639,422 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+      // Bind console input and output as given by the "in", "expect" and "ol" options.
+   	// Output is checked by the returned comparator and passed on to standard output.
+   	// Returns null if a file cannot be opened.
+      private OutputComparator bindConsole() {
+         InputStream input = null;
+         InputStream expected = null;
+         try {
+            if (consoleInputFile != null) {
+               input = new FileInputStream(consoleInputFile);
+            }
+            if (expectedOutputFile != null) {
+               expected = new FileInputStream(expectedOutputFile);
+            }
+         } 
+            catch (FileNotFoundException e) {
+               out.println("Error while attempting to open "+e.getMessage());
+               return null;
+            }
+         OutputComparator comparator = new OutputComparator(expected, outputLimit, System.out);
+         MachineContext.current().getSystemIO().setConsole(input, new PrintStream(comparator, true));
+         SystemIO.resetFiles();
+         return comparator;
+      }
+   
+      // Read the assembled program image, if there is one.  A file that cannot be read
+   	// is treated as no image, since the program will simply be assembled.
+      private ProgramImage readImage(String imageFile) {
+         try {
+            return ProgramImage.read(imageFile);
+         } 
+            catch (IOException e) {
+               return null;
+            }
+      }
+   
+      // Write the assembled program image.  Failure is reported but is not an error.
+      private void writeImage(ProgramImage image, String imageFile) {
+         try {
+            image.write(imageFile);
+         } 
+            catch (IOException e) {
+               out.println("Warning: could not write assembled program image "+imageFile+": "+e.getMessage());
+            }
+      }
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Batch mode ("batch" option): run every job in the manifest, up to
+   	// batchWorkers of them at once.  Each job runs on its own MachineContext so
+   	// jobs cannot see each other's memory, registers, console or files.  Jobs
+   	// that list the same files share one assembly, which is copied into each
+   	// job's memory from a snapshot.  One line of JSON describing the outcome of
+   	// each job is displayed as the job finishes.
+   	
+      private void runBatch() {
+         ArrayList jobs = readBatchManifest();
+         if (jobs == null) {
+            return;
+         }
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.DELAYED_BRANCHING_ENABLED, delayedBranching);
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, selfModifyingCode);
+         // Jobs share the assembled program, so it must not record history for any one of them.
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.TIME_TRAVEL_ENABLED, false);
+         Globals.singleOwnerExecution = true;
+         final HashMap assemblies = new HashMap();
+         ExecutorService workers = Executors.newFixedThreadPool(batchWorkers);
+         for (int i=0; i<jobs.size(); i++) {
+            final BatchJob job = (BatchJob) jobs.get(i);
+            workers.execute(
+                  new Runnable() {
+                     public void run() {
+                        String result;
+                        try {
+                           result = runBatchJob(job, assemblies);
+                        } 
+                           catch (RuntimeException e) {
+                              // Every job gets its line, whatever went wrong.
+                              result = batchResult(job, "internal-error", simulateErrorExitCode, "", "Internal error: "+e);
+                           }
+                        synchronized (out) {
+                           out.println(result);
+                           out.flush();
+                        }
+                     }
+                  });
+         }
+         workers.shutdown();
+         try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+         } 
+            catch (InterruptedException e) {
+               // Stop the jobs rather than leave them running after we return.
+               Thread.currentThread().interrupt();
+               workers.shutdownNow();
+               synchronized (out) {
+                  out.println("Batch interrupted: jobs that had not finished were stopped and have no result.");
+                  out.flush();
+               }
+               Globals.exitCode = simulateErrorExitCode;
+            }
+      }
+   
+      // Read the manifest.  Returns the list of BatchJob, or null if it cannot be read.
+      private ArrayList readBatchManifest() {
+         ArrayList jobs = new ArrayList();
+         BufferedReader in = null;
+         try {
+            in = new BufferedReader(new FileReader(batchManifest));
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+               lineNumber++;
+               StringTokenizer tokens = new StringTokenizer(line);
+               if (!tokens.hasMoreTokens() || line.trim().startsWith("#")) {
+                  continue;
+               }
+               BatchJob job = new BatchJob(lineNumber, maxSteps);
+               boolean maxStepsGiven = false;
+               while (tokens.hasMoreTokens()) {
+                  String token = tokens.nextToken();
+                  if (job.programArguments != null) {
+                     job.programArguments.add(token);
+                  }
+                  else if (token.toLowerCase().equals("pa")) {
+                     job.programArguments = new ArrayList();
+                  }
+                  else if (token.equals("<") && tokens.hasMoreTokens()) {
+                     job.inputFile = tokens.nextToken();
+                  }
+                  else if (token.equals(">") && tokens.hasMoreTokens()) {
+                     job.expectedFile = tokens.nextToken();
+                  }
+                  else if (token.toLowerCase().equals("ms")) {
+                     // A marker, so a file whose name is a number is still a file.
+                     if (maxStepsGiven) {
+                        out.println("Batch manifest line "+lineNumber+" gives more than one maximum step count.");
+                        return null;
+                     }
+                     String count = (tokens.hasMoreTokens()) ? tokens.nextToken() : "";
+                     try {
+                        job.maxSteps = Integer.decode(count).intValue();
+                     } 
+                        catch (NumberFormatException e) {
+                           out.println("Batch manifest line "+lineNumber+": ms must be followed by a maximum step count.");
+                           return null;
+                        }
+                     maxStepsGiven = true;
+                  }
+                  else {
+                     job.filenames.add(token);
+                  }
+               }
+               if (job.filenames.size() == 0) {
+                  out.println("Batch manifest line "+lineNumber+" has no file names.");
+                  return null;
+               }
+               jobs.add(job);
+            }
+         } 
+            catch (IOException e) {
+               out.println("Error while attempting to read batch manifest "+batchManifest+": "+e.getMessage());
+               return null;
+            }
+         finally {
+            if (in != null) {
+               try {
+                  in.close();
+               } 
+                  catch (IOException e) {
+                  }
+            }
+         }
+         return jobs;
+      }
+   
+      // Run one batch job on a new machine and describe the outcome in one line of JSON.
+      private String runBatchJob(BatchJob job, HashMap assemblies) {
+         String status;
+         int exitCode;
+         String messages = "";
+         ByteArrayOutputStream output = new ByteArrayOutputStream();
+         BatchAssembly assembly = getBatchAssembly(job, assemblies);
+         if (assembly.internalError != null) {
+            status = "internal-error";
+            exitCode = assembleErrorExitCode;
+            messages = "Internal error while assembling: "+assembly.internalError;
+         } 
+         else if (assembly.error != null) {
+            status = "assemble-error";
+            exitCode = assembleErrorExitCode;
+            messages = assembly.error.errors().generateErrorAndWarningReport();
+         } 
+         else {
+            if (assembly.warnings != null && assembly.warnings.warningsOccurred()) {
+               messages = assembly.warnings.generateWarningReport();
+            }
+            MachineContext context = new MachineContext();
+            InputStream input = null;
+            OutputComparator comparator = null;
+            try {
+               input = (job.inputFile == null) ? (InputStream) new ByteArrayInputStream(new byte[0])
+                                               : new FileInputStream(job.inputFile);
+               InputStream expected = (job.expectedFile == null) ? null : new FileInputStream(job.expectedFile);
+               comparator = new OutputComparator(expected, outputLimit, output);
+               context.getSystemIO().setConsole(input, new PrintStream(comparator, true));
+               context.bind();
+               context.getMemory().restore(assembly.memory);
+               RegisterFile.initializeProgramCounter(assembly.startAddress);
+               SystemIO.resetFiles();
+               new ProgramArgumentList(job.programArguments).storeProgramArguments();
+               boolean done = assembly.program.simulate(job.maxSteps);
+               switch (comparator.finish()) {
+                  case OutputComparator.MISMATCH:
+                     status = "output-mismatch";
+                     break;
+                  case OutputComparator.LIMIT_EXCEEDED:
+                     status = "output-limit";
+                     break;
+                  default:
+                     status = (done) ? "ok" : "step-limit";
+               }
+               exitCode = (status.startsWith("output")) ? simulateErrorExitCode : context.getExitCode();
+            } 
+               catch (FileNotFoundException e) {
+                  status = "input-error";
+                  exitCode = simulateErrorExitCode;
+                  messages += (comparator == null && input != null) 
+                             ? "Expected output file "+job.expectedFile+" was not found."
+                             : "Console input file "+job.inputFile+" was not found.";
+               } 
+               catch (ProcessingException e) {
+                  status = "runtime-error";
+                  exitCode = simulateErrorExitCode;
+                  messages += e.errors().generateErrorAndWarningReport();
+               }
+               catch (RuntimeException e) {
+                  status = "internal-error";
+                  exitCode = simulateErrorExitCode;
+                  messages += "Internal error: "+e;
+               }
+            finally {
+               MachineContext.unbind();
+               if (comparator != null) {
+                  // Also after a runtime error, so a mismatch is reported alongside it.
+                  comparator.finish();
+                  messages += comparator.getDescription();
+               }
+               if (input != null) {
+                  try {
+                     input.close();
+                  } 
+                     catch (IOException e) {
+                     }
+               }
+            }
+         }
+         return batchResult(job, status, exitCode, output.toString(), messages);
+      }
+   
+      // Describe the outcome of a batch job in one line of JSON.
+      private String batchResult(BatchJob job, String status, int exitCode, String output, String messages) {
+         StringBuffer result = new StringBuffer();
+         result.append("{\"job\":").append(job.lineNumber);
+         result.append(",\"files\":[");
+         for (int i=0; i<job.filenames.size(); i++) {
+            result.append((i==0) ? "" : ",").append(toJSONString((String) job.filenames.get(i)));
+         }
+         result.append("],\"status\":").append(toJSONString(status));
+         result.append(",\"exitCode\":").append(exitCode);
+         result.append(",\"output\":").append(toJSONString(output));
+         result.append(",\"messages\":").append(toJSONString(messages));
+         result.append("}");
+         return result.toString();
+      }
+   
+      // Get the assembly of the job's files, assembling them on a machine of its own
+   	// if no earlier job has.  Jobs needing the same assembly wait for the first.
+      private BatchAssembly getBatchAssembly(BatchJob job, HashMap assemblies) {
+         ArrayList filesToAssemble = getFilesToAssemble(job.filenames);
+         String key = new File((String) job.filenames.get(0)).getAbsolutePath();
+         for (int i=0; i<filesToAssemble.size(); i++) {
+            key += "\n" + new File((String) filesToAssemble.get(i)).getAbsolutePath();
+         }
+         BatchAssembly assembly;
+         synchronized (assemblies) {
+            assembly = (BatchAssembly) assemblies.get(key);
+            if (assembly == null) {
+               assembly = new BatchAssembly();
+               assemblies.put(key, assembly);
+            }
+         }
+         synchronized (assembly) {
+            if (!assembly.attempted) {
+               assembly.attempted = true; // failures are kept too, so later jobs do not retry
+               MachineContext context = new MachineContext();
+               context.bind();
+               try {
+                  MIPSprogram program = new MIPSprogram();
+                  File mainFile = new File((String) job.filenames.get(0)).getAbsoluteFile();
+                  ArrayList MIPSprogramsToAssemble = 
+                         program.prepareFilesForAssembly(filesToAssemble, mainFile.getAbsolutePath(), null);
+                  assembly.warnings = program.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
+                  RegisterFile.initializeProgramCounter(startAtMain);
+                  assembly.startAddress = RegisterFile.getProgramCounter();
+                  assembly.memory = Memory.getInstance().snapshot();
+                  assembly.program = program;
+               } 
+                  catch (ProcessingException e) {
+                     assembly.error = e;
+                  }
+                  catch (RuntimeException e) {
+                     assembly.internalError = e;
+                  }
+               finally {
+                  MachineContext.unbind();
+               }
+            }
+         }
+         return assembly;
+      }
+   
+      // Quote a string for JSON output.
+      private static String toJSONString(String s) {
+         StringBuffer quoted = new StringBuffer(s.length()+2);
+         quoted.append('"');
+         for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+               case '"':  quoted.append("\\\""); 
+                  break;
+               case '\\': quoted.append("\\\\"); 
+                  break;
+               case '\n': quoted.append("\\n"); 
+                  break;
+               case '\r': quoted.append("\\r"); 
+                  break;
+               case '\t': quoted.append("\\t"); 
+                  break;
+               default:
+                  if (c < 0x20 || c > 0x7e) {
+                     String hex = Integer.toHexString(c);
+                     quoted.append("\\u").append("0000".substring(hex.length())).append(hex);
+                  } 
+                  else {
+                     quoted.append(c);
+                  }
+            }
+         }
+         quoted.append('"');
+         return quoted.toString();
+      }
+   
+      // One line of the batch manifest.
+      private static class BatchJob {
+         int lineNumber;
+         ArrayList filenames = new ArrayList();
+         String inputFile; // console input, null for none
+         String expectedFile; // expected console output, null if not compared
+         int maxSteps;
+         ArrayList programArguments; // null if none
+      
+         BatchJob(int lineNumber, int maxSteps) {
+            this.lineNumber = lineNumber;
+            this.maxSteps = maxSteps;
+         }
+      }
+   
+      // Result of assembling the files of one or more batch jobs.  Once attempted, either
+   	// program is set, along with memory as left by the assembler and the address to
+   	// start at, or error or internalError is.
+      private static class BatchAssembly {
+         boolean attempted;
+         MIPSprogram program;
+         MemorySnapshot memory;
+         int startAddress;
+         ErrorList warnings;
+         ProcessingException error;
+         RuntimeException internalError;
+      }
+   
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Expand the given file names (first is "main") to the list of files to
+   	// assemble, which in project mode ("p") is every file in the directory of
+   	// the main file plus any others given.  The given list is left unchanged.
+   	
+      private ArrayList getFilesToAssemble(ArrayList filenames) {
+         filenames = new ArrayList(filenames);
+         File mainFile = new File((String) filenames.get(0)).getAbsoluteFile();// First file is "main" file
+         ArrayList filesToAssemble;
+         if (assembleProject) { 
+            filesToAssemble = FilenameFinder.getFilenameList(mainFile.getParent(), Globals.fileExtensions);
+            if (filenames.size() > 1) {
+               // Using "p" project option PLUS listing more than one filename on command line.
+               // Add the additional files, avoiding duplicates.
+               filenames.remove(0); // first one has already been processed
+               ArrayList moreFilesToAssemble = FilenameFinder.getFilenameList(filenames, FilenameFinder.MATCH_ALL_EXTENSIONS);
+               // Remove any duplicates then merge the two lists.
+               for (int index2 = 0; index2<moreFilesToAssemble.size(); index2++) {
+                  for (int index1 = 0; index1<filesToAssemble.size(); index1++) {
+                     if (filesToAssemble.get(index1).equals(moreFilesToAssemble.get(index2))) {
+                        moreFilesToAssemble.remove(index2);
+                        index2--; // adjust for left shift in moreFilesToAssemble...
+                        break;    // break out of inner loop...
+                     }
+                  }
+               }
+               filesToAssemble.addAll(moreFilesToAssemble);
+            }
+         } 
+         else {
+            filesToAssemble = FilenameFinder.getFilenameList(filenames, FilenameFinder.MATCH_ALL_EXTENSIONS);
+         }
+         return filesToAssemble;
+      }
+
+
    	//////////////////////////////////////////////////////////////////////
       // Check for memory address subrange.  Has to be two integers separated
       // by "-"; no embedded spaces.  e.g. 0x00400000-0x00400010
@@ -792,6 +1314,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("  ae<n>  -- terminate MARS with integer exit code <n> if an assemble error occurs.");
          out.println("  ascii  -- display memory or register contents interpreted as ASCII codes.");
          out.println("      b  -- brief - do not display register/memory address along with contents");
+         out.println("  batch <manifest>  -- run each job listed in file <manifest>, several at once,");
+         out.println("            each on its own machine.  A manifest line lists the file names");
+         out.println("            of one job, optionally followed by '< <file>' to take console input");
+         out.println("            from <file>, '> <file>' to compare console output with <file> as for");
+         out.println("            'expect', 'ms <n>' for a maximum count of <n> steps, and 'pa' with");
+         out.println("            program arguments.  Blank lines and lines starting with # are ignored.");
+         out.println("            Jobs with the same files are assembled once.  One line of JSON is");
+         out.println("            displayed per job as it finishes.  Of the other options, ae, bw, d,");
+         out.println("            db, mc, me, nc, np, ol, p, se, sm, smc, we and <n> (the default");
+         out.println("            maximum count of steps) apply to every job.  The rest, including in,");
+         out.println("            expect, dump, pa, img, ic and register and memory displays, are ignored.");
+         out.println("  bw<n>  -- run at most <n> batch jobs at once.  Default is number of processors.");
          out.println("      d  -- display MARS debugging statements");
          out.println("     db  -- MIPS delayed branching is enabled");
          out.println("    dec  -- display memory or register contents in decimal.");
@@ -801,9 +1335,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("            Segment and format are case-sensitive and possible values are:");
          out.println("            <segment> = "+segments);
          out.println("            <format> = "+formats);
+         out.println("   expect <file>  -- compare console output with the expected output in <file>");
+         out.println("            as it is produced, and stop the program at the first byte that differs.");
+         out.println("            Output reaches the comparison at each newline or 8K of output, so the");
+         out.println("            program may run on for up to that much output past the difference.");
          out.println("      h  -- display this help.  Use by itself with no filename.");
          out.println("    hex  -- display memory or register contents in hexadecimal (default)");
          out.println("     ic  -- display count of MIPS basic instructions 'executed'");
+         out.println("    img  -- use an assembled program image, kept in a file named after the main");
+         out.println("            file plus "+ProgramImage.FILE_EXTENSION+".  If the image is current it is loaded instead");
+         out.println("            of assembling; otherwise the program is assembled and the image written.");
+         out.println("     in <file>  -- take console input from <file> instead of standard input.");
          out.println("     mc <config>  -- set memory configuration.  Argument <config> is");
          out.println("            case-sensitive and possible values are: Default for the default");
          out.println("            32-bit address space, CompactDataAtZero for a 32KB memory with");
@@ -813,6 +1355,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("            Can separate messages from program output using redirection");
          out.println("     nc  -- do not display copyright notice (for cleaner redirected/piped output).");
          out.println("     np  -- use of pseudo instructions and formats not permitted");
+         out.println("  ol<n>  -- stop the program once its console output exceeds <n> bytes.");
          out.println("      p  -- Project mode - assemble all files in the same directory as given file.");
          out.println("  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.");
          out.println("     sm  -- start execution at statement with global label main, if defined");
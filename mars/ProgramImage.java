@@ -0,0 +1,472 @@
+   package mars;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import mars.util.*;
+   import java.util.*;
+   import java.io.*;
+   import java.security.*;
+
+/**
+ * An assembled program saved to a file so that it can be loaded again without
+ * reading, tokenizing and assembling its source.  The image holds the text segment
+ * statements (address, binary code, basic instruction, operands as assembled, source
+ * file, line and text), the allocated blocks of the data and kernel data segments,
+ * the global symbol table and any assembler warnings, all as they were just after
+ * assembly.
+ * <p>
+ * An image is only loaded if it is current: it must have been made from the same list
+ * of files, every source file it was assembled from (including .include files) must
+ * have the same content, and the settings, memory configuration and instruction set
+ * that affect assembly must be the same.  Otherwise the program must be assembled
+ * again, and a new image can be written.
+ *
+ * @see MIPSprogram#loadImage
+ */
+
+    public class ProgramImage {
+
+    /** File name extension, added to the name of the main source file, for images written by MARS. */
+      public static final String FILE_EXTENSION = ".mimg";
+
+      private static final String MAGIC = "MARS assembled program image";
+      private static final int VERSION = 2;
+      private static final int BLOCK_LENGTH_BYTES = 4096; // Memory allocates data in blocks this long
+      private static final int BLOCK_LENGTH_WORDS = BLOCK_LENGTH_BYTES / Memory.WORD_LENGTH_BYTES;
+
+      private String settingsKey;
+      private String[] filenames;       // files given to assemble, in the order given
+      private String leadFilename;
+      private String[] sourceFiles;     // every file read, including .include files
+      private String[] sourceDigests;   // content digest of each source file
+      private String warnings;          // warning report, or empty string
+      private int[] addresses, binaryStatements, instructions, statementFiles, sourceLines;
+      private int[][] operands;         // as assembled; decoding the binary code loses immediate signs
+      private String[] sources, basicStatements;
+      private int[] blockAddresses;
+      private int[][] blocks;
+      private String[] symbolNames;
+      private int[] symbolAddresses;
+      private boolean[] symbolData;
+
+       private ProgramImage() {
+      }
+
+    /**
+     * Make an image of a program just assembled, before anything else changes memory
+     * or the global symbol table.
+     * @param program the MIPSprogram that did the assembly
+     * @param programsAssembled the MIPSprogram objects assembled, as given to assemble()
+     * @param filenames the file names given to prepareFilesForAssembly()
+     * @param leadFilename the lead file name given to prepareFilesForAssembly()
+     * @param extendedAssemblerEnabled as given to assemble()
+     * @param warningsAreErrors as given to assemble()
+     * @param warnings warnings returned by assemble(), or null
+     * @return the image
+     */
+       public static ProgramImage capture(MIPSprogram program, ArrayList programsAssembled, ArrayList filenames,
+                                     String leadFilename, boolean extendedAssemblerEnabled, boolean warningsAreErrors,
+                                     ErrorList warnings) {
+         ProgramImage image = new ProgramImage();
+         image.settingsKey = settingsKey(extendedAssemblerEnabled, warningsAreErrors);
+         image.filenames = (String[]) filenames.toArray(new String[filenames.size()]);
+         image.leadFilename = leadFilename;
+         image.warnings = (warnings != null && warnings.warningsOccurred()) ? warnings.generateWarningReport() : "";
+         // Source files, with the content they were assembled from.  Tokenizing replaces
+      	// a program's source list with one that has .include files expanded, so read
+      	// each file again.
+         LinkedHashSet<String> read = new LinkedHashSet<String>();
+         for (int i = 0; i < programsAssembled.size(); i++) {
+            MIPSprogram assembled = (MIPSprogram) programsAssembled.get(i);
+            read.add(assembled.getFilename());
+            for (SourceLine line : assembled.getSourceLineList()) {
+               if (line.getFilename() != null) {
+                  read.add(line.getFilename());
+               }
+            }
+         }
+         image.sourceFiles = (String[]) read.toArray(new String[read.size()]);
+         image.sourceDigests = new String[read.size()];
+         for (int i = 0; i < image.sourceFiles.length; i++) {
+            MIPSprogram source = new MIPSprogram();
+            try {
+               source.readSource(image.sourceFiles[i]);
+               image.sourceDigests[i] = digest(source.getSourceList());
+            }
+                catch (ProcessingException e) {
+                  image.sourceDigests[i] = ""; // matches no content, so the image is never current
+               }
+         }
+         // Text segments.
+         IdentityHashMap<Object,Integer> instructionIndex = new IdentityHashMap<Object,Integer>();
+         ArrayList instructionList = Globals.instructionSet.getInstructionList();
+         for (int i = 0; i < instructionList.size(); i++) {
+            instructionIndex.put(instructionList.get(i), i);
+         }
+         ArrayList machineList = program.getMachineList();
+         int count = machineList.size();
+         image.addresses = new int[count];
+         image.binaryStatements = new int[count];
+         image.instructions = new int[count];
+         image.operands = new int[count][];
+         image.statementFiles = new int[count];
+         image.sourceLines = new int[count];
+         image.sources = new String[count];
+         image.basicStatements = new String[count];
+         List<String> files = Arrays.asList(image.sourceFiles);
+         for (int i = 0; i < count; i++) {
+            ProgramStatement statement = (ProgramStatement) machineList.get(i);
+            Integer instruction = instructionIndex.get(statement.getInstruction());
+            image.addresses[i] = statement.getAddress();
+            image.binaryStatements[i] = statement.getBinaryStatement();
+            image.instructions[i] = (instruction == null) ? -1 : instruction.intValue();
+            image.operands[i] = new int[statement.getNumOperands()];
+            for (int j = 0; j < image.operands[i].length; j++) {
+               image.operands[i][j] = statement.getOperand(j);
+            }
+            image.statementFiles[i] = (statement.getSourceMIPSprogram() == null)
+                                      ? -1 : files.indexOf(statement.getSourceFile());
+            image.sourceLines[i] = statement.getSourceLine();
+            image.sources[i] = statement.getSource();
+            image.basicStatements[i] = statement.getBasicAssemblyStatement();
+         }
+         // Data segments, a whole block wherever the assembler allocated one.
+         ArrayList<Integer> blockAddresses = new ArrayList<Integer>();
+         ArrayList<int[]> blocks = new ArrayList<int[]>();
+         captureBlocks(Memory.dataSegmentBaseAddress, Memory.dataSegmentLimitAddress, blockAddresses, blocks);
+         captureBlocks(Memory.kernelDataBaseAddress, Memory.kernelDataSegmentLimitAddress, blockAddresses, blocks);
+         image.blockAddresses = new int[blocks.size()];
+         image.blocks = new int[blocks.size()][];
+         for (int i = 0; i < blocks.size(); i++) {
+            image.blockAddresses[i] = blockAddresses.get(i);
+            image.blocks[i] = blocks.get(i);
+         }
+         // Global symbols.
+         ArrayList symbols = MachineContext.current().getSymbolTable().getAllSymbols();
+         image.symbolNames = new String[symbols.size()];
+         image.symbolAddresses = new int[symbols.size()];
+         image.symbolData = new boolean[symbols.size()];
+         for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = (Symbol) symbols.get(i);
+            image.symbolNames[i] = symbol.getName();
+            image.symbolAddresses[i] = symbol.getAddress();
+            image.symbolData[i] = symbol.getType();
+         }
+         return image;
+      }
+
+    /**
+     * Warnings produced when the program was assembled.
+     * @return the warning report, or an empty string if there were none
+     */
+       public String getWarnings() {
+         return warnings;
+      }
+
+    /**
+     * Write the image to a file.
+     * @param file name of the file
+     * @throws IOException if it cannot be written
+     */
+       public void write(String file) throws IOException {
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+         try {
+            out.writeUTF(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, settingsKey);
+            writeStrings(out, filenames);
+            writeString(out, leadFilename);
+            writeStrings(out, sourceFiles);
+            writeStrings(out, sourceDigests);
+            writeString(out, warnings);
+            out.writeInt(addresses.length);
+            for (int i = 0; i < addresses.length; i++) {
+               out.writeInt(addresses[i]);
+               out.writeInt(binaryStatements[i]);
+               out.writeInt(instructions[i]);
+               out.writeInt(operands[i].length);
+               for (int j = 0; j < operands[i].length; j++) {
+                  out.writeInt(operands[i][j]);
+               }
+               out.writeInt(statementFiles[i]);
+               out.writeInt(sourceLines[i]);
+               writeString(out, sources[i]);
+               writeString(out, basicStatements[i]);
+            }
+            out.writeInt(blocks.length);
+            for (int i = 0; i < blocks.length; i++) {
+               out.writeInt(blockAddresses[i]);
+               for (int j = 0; j < BLOCK_LENGTH_WORDS; j++) {
+                  out.writeInt(blocks[i][j]);
+               }
+            }
+            writeStrings(out, symbolNames);
+            for (int i = 0; i < symbolNames.length; i++) {
+               out.writeInt(symbolAddresses[i]);
+               out.writeBoolean(symbolData[i]);
+            }
+         }
+         finally {
+            out.close();
+         }
+      }
+
+    /**
+     * Read an image from a file.
+     * @param file name of the file
+     * @return the image, or null if the file does not exist or is not an image written
+     * by this version of MARS
+     * @throws IOException if the file cannot be read
+     */
+       public static ProgramImage read(String file) throws IOException {
+         if (!new File(file).isFile()) {
+            return null;
+         }
+         DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+         try {
+            if (!MAGIC.equals(in.readUTF()) || in.readInt() != VERSION) {
+               return null;
+            }
+            ProgramImage image = new ProgramImage();
+            image.settingsKey = readString(in);
+            image.filenames = readStrings(in);
+            image.leadFilename = readString(in);
+            image.sourceFiles = readStrings(in);
+            image.sourceDigests = readStrings(in);
+            image.warnings = readString(in);
+            int count = in.readInt();
+            image.addresses = new int[count];
+            image.binaryStatements = new int[count];
+            image.instructions = new int[count];
+            image.operands = new int[count][];
+            image.statementFiles = new int[count];
+            image.sourceLines = new int[count];
+            image.sources = new String[count];
+            image.basicStatements = new String[count];
+            for (int i = 0; i < count; i++) {
+               image.addresses[i] = in.readInt();
+               image.binaryStatements[i] = in.readInt();
+               image.instructions[i] = in.readInt();
+               int operandCount = in.readInt();
+               if (operandCount < 0 || operandCount > 4) {
+                  return null; // corrupt
+               }
+               image.operands[i] = new int[operandCount];
+               for (int j = 0; j < operandCount; j++) {
+                  image.operands[i][j] = in.readInt();
+               }
+               image.statementFiles[i] = in.readInt();
+               image.sourceLines[i] = in.readInt();
+               image.sources[i] = readString(in);
+               image.basicStatements[i] = readString(in);
+            }
+            count = in.readInt();
+            image.blockAddresses = new int[count];
+            image.blocks = new int[count][BLOCK_LENGTH_WORDS];
+            for (int i = 0; i < count; i++) {
+               image.blockAddresses[i] = in.readInt();
+               for (int j = 0; j < BLOCK_LENGTH_WORDS; j++) {
+                  image.blocks[i][j] = in.readInt();
+               }
+            }
+            image.symbolNames = readStrings(in);
+            image.symbolAddresses = new int[image.symbolNames.length];
+            image.symbolData = new boolean[image.symbolNames.length];
+            for (int i = 0; i < image.symbolNames.length; i++) {
+               image.symbolAddresses[i] = in.readInt();
+               image.symbolData[i] = in.readBoolean();
+            }
+            return image;
+         }
+            catch (EOFException e) {
+               return null; // truncated
+            }
+         finally {
+            in.close();
+         }
+      }
+
+    /**
+     * Read the source files and check that the image is current for the given files.
+     * @param filenames the file names that would be given to prepareFilesForAssembly()
+     * @param leadFilename the lead file name that would be given to prepareFilesForAssembly()
+     * @param extendedAssemblerEnabled as would be given to assemble()
+     * @param warningsAreErrors as would be given to assemble()
+     * @return one MIPSprogram per source file, having read it, or null if the image is
+     * not current
+     */
+       MIPSprogram[] readSourcesIfCurrent(ArrayList filenames, String leadFilename,
+                                   boolean extendedAssemblerEnabled, boolean warningsAreErrors) {
+         if (!settingsKey.equals(settingsKey(extendedAssemblerEnabled, warningsAreErrors)) ||
+             !Arrays.asList(this.filenames).equals(filenames) || !this.leadFilename.equals(leadFilename)) {
+            return null;
+         }
+         MIPSprogram[] programs = new MIPSprogram[sourceFiles.length];
+         for (int i = 0; i < sourceFiles.length; i++) {
+            programs[i] = new MIPSprogram();
+            try {
+               programs[i].readSource(sourceFiles[i]);
+            }
+                catch (ProcessingException e) {
+                  return null;
+               }
+            if (!digest(programs[i].getSourceList()).equals(sourceDigests[i])) {
+               return null;
+            }
+         }
+         return programs;
+      }
+
+    /**
+     * Put the program into memory and the global symbol table, replacing what was there,
+     * as assembling it would.
+     * @param programs the source files, as returned by readSourcesIfCurrent()
+     * @param lead the program to stand for the lead file
+     * @return the statements of the text segments, in address order
+     */
+       ArrayList load(MIPSprogram[] programs, MIPSprogram lead) {
+         for (int i = 0; i < sourceFiles.length; i++) {
+            if (sourceFiles[i].equals(leadFilename)) {
+               programs[i] = lead;
+            }
+         }
+         SymbolTable symbolTable = MachineContext.current().getSymbolTable();
+         symbolTable.clear();
+         Memory memory = Memory.getInstance();
+         memory.clear();
+         ArrayList instructionList = Globals.instructionSet.getInstructionList();
+         ArrayList machineList = new ArrayList(addresses.length);
+         try {
+            for (int i = 0; i < addresses.length; i++) {
+               BasicInstruction instruction = (instructions[i] < 0) ? null : (BasicInstruction) instructionList.get(instructions[i]);
+               ProgramStatement statement = new ProgramStatement(binaryStatements[i], addresses[i], instruction);
+               if (instruction != null) {
+                  int[] assembled = new int[4];
+                  System.arraycopy(operands[i], 0, assembled, 0, operands[i].length);
+                  statement.setOperands(assembled, operands[i].length);
+               }
+               statement.setSourceLine((statementFiles[i] < 0) ? null : programs[statementFiles[i]], sourceLines[i]);
+               statement.setSource(sources[i]);
+               statement.setBasicAssemblyStatement(basicStatements[i]);
+               memory.setStatement(addresses[i], statement);
+               machineList.add(statement);
+            }
+            for (int i = 0; i < blocks.length; i++) {
+               for (int j = 0; j < BLOCK_LENGTH_WORDS; j++) {
+                  memory.setRawWord(blockAddresses[i] + j * Memory.WORD_LENGTH_BYTES, blocks[i][j]);
+               }
+            }
+         }
+             catch (AddressErrorException e) {
+               // Cannot happen: the addresses were valid when assembled, in the same memory configuration.
+               throw new IllegalStateException(e.toString());
+            }
+         ErrorList errors = new ErrorList();
+         for (int i = 0; i < symbolNames.length; i++) {
+            symbolTable.addSymbol(new Token(TokenTypes.IDENTIFIER, symbolNames[i], lead, 0, 0),
+                                  symbolAddresses[i], symbolData[i], errors);
+         }
+         SystemIO.resetFiles();
+         return machineList;
+      }
+
+      // Record each allocated block of a data segment.  A block is allocated if its first
+   	// word is not null.
+       private static void captureBlocks(int baseAddress, int limitAddress, ArrayList<Integer> addresses, ArrayList<int[]> blocks) {
+         Memory memory = Memory.getInstance();
+         try {
+            for (int offset = 0; offset < limitAddress - baseAddress; offset += BLOCK_LENGTH_BYTES) {
+               int address = baseAddress + offset;
+               if (memory.getRawWordOrNull(address) != null) {
+                  int[] block = new int[BLOCK_LENGTH_WORDS];
+                  for (int j = 0; j < BLOCK_LENGTH_WORDS; j++) {
+                     block[j] = memory.getRawWord(address + j * Memory.WORD_LENGTH_BYTES);
+                  }
+                  addresses.add(address);
+                  blocks.add(block);
+               }
+            }
+         }
+             catch (AddressErrorException e) {
+               // Cannot happen: word-aligned addresses within the segment.
+               throw new IllegalStateException(e.toString());
+            }
+      }
+
+      // Everything besides the source that determines the result of assembly.
+       private static String settingsKey(boolean extendedAssemblerEnabled, boolean warningsAreErrors) {
+         ArrayList<String> key = new ArrayList<String>();
+         key.add(MemoryConfigurations.getCurrentConfiguration().getConfigurationIdentifier());
+         key.add(Boolean.toString(extendedAssemblerEnabled));
+         key.add(Boolean.toString(warningsAreErrors));
+         key.add(Boolean.toString(Globals.getSettings().getBooleanSetting(Settings.DELAYED_BRANCHING_ENABLED)));
+         ArrayList instructionList = Globals.instructionSet.getInstructionList();
+         for (int i = 0; i < instructionList.size(); i++) {
+            Instruction instruction = (Instruction) instructionList.get(i);
+            key.add(instruction.getClass().getName() + " " + instruction.getExampleFormat());
+         }
+         return digest(key);
+      }
+
+      // SHA-256 digest of lines of text, in hexadecimal.
+       private static String digest(List lines) {
+         MessageDigest md;
+         try {
+            md = MessageDigest.getInstance("SHA-256");
+         }
+             catch (NoSuchAlgorithmException e) {
+               throw new IllegalStateException(e.toString()); // every Java platform has SHA-256
+            }
+         for (int i = 0; i < lines.size(); i++) {
+            try {
+               md.update(((String) lines.get(i)).getBytes("UTF-8"));
+            }
+                catch (UnsupportedEncodingException e) {
+                  throw new IllegalStateException(e.toString());
+               }
+            md.update((byte) '\n');
+         }
+         byte[] hash = md.digest();
+         StringBuffer result = new StringBuffer();
+         for (int i = 0; i < hash.length; i++) {
+            result.append(Integer.toHexString((hash[i] >> 4) & 0xF)).append(Integer.toHexString(hash[i] & 0xF));
+         }
+         return result.toString();
+      }
+
+      // Strings may be null or longer than writeUTF() allows.
+       private static void writeString(DataOutputStream out, String s) throws IOException {
+         if (s == null) {
+            out.writeInt(-1);
+            return;
+         }
+         byte[] bytes = s.getBytes("UTF-8");
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+
+       private static String readString(DataInputStream in) throws IOException {
+         int length = in.readInt();
+         if (length < 0) {
+            return null;
+         }
+         byte[] bytes = new byte[length];
+         in.readFully(bytes);
+         return new String(bytes, "UTF-8");
+      }
+
+       private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+         out.writeInt(strings.length);
+         for (int i = 0; i < strings.length; i++) {
+            writeString(out, strings[i]);
+         }
+      }
+
+       private static String[] readStrings(DataInputStream in) throws IOException {
+         String[] strings = new String[in.readInt()];
+         for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+         }
+         return strings;
+      }
+   }
@@ -55,7 +55,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int sourceLine;
       private int binaryStatement;
       private boolean altered;
+      // Fields of binaryStatement, decoded once it is known so simulation code need not.
+      private int rs, rt, rd, shamt, immediate, unsignedImmediate, branchTarget, jumpTarget;
       private static final String invalidOperator = "<INVALID>";
+   
+      // Operands recently decoded from binary statements, so a binary statement written
+   	// again, at any address, need not be decoded again.  Direct-mapped by binary code,
+   	// so it holds at most DECODING_CACHE_SIZE and a lookup allocates nothing.
+      private static final int DECODING_CACHE_SIZE = 4096;
+      private static final Decoding[] decodings = new Decoding[DECODING_CACHE_SIZE];
     
     //////////////////////////////////////////////////////////////////////////////////
     /**
@@ -100,13 +108,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * is stored.
      **/
        public ProgramStatement(int binaryStatement, int textAddress) {
+         this(binaryStatement, textAddress, Globals.instructionSet.findByBinaryCode(binaryStatement));
+      }
+   
+   
+    //////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Constructor for ProgramStatement for a binary machine instruction whose basic
+     * instruction is already known, so it need not be looked up from the binary code.
+     * Used when loading an assembled program image, since a binary code may match more
+     * than one basic instruction.
+     * @param binaryStatement The 32-bit machine code.
+     * @param textAddress The Text Segment address in memory where the binary machine code for this statement
+     * is stored.
+     * @param instr The basic instruction encoded by binaryStatement, or null if none.
+     **/
+       public ProgramStatement(int binaryStatement, int textAddress, BasicInstruction instr) {
          this.sourceMIPSprogram = null;
          this.binaryStatement = binaryStatement;
          this.textAddress = textAddress;
          this.originalTokenList = this.strippedTokenList = null;
          this.source = "";
          this.machineStatement = this.basicAssemblyStatement = null;
-         BasicInstruction instr = Globals.instructionSet.findByBinaryCode(binaryStatement);
          if (instr == null) {
             this.operands = null;
             this.numOperands = 0;
@@ -115,35 +138,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                				 : null;
          } 
          else {
-            this.operands = new int[4];
-            this.numOperands = 0;
+            Decoding decoding = Decoding.get(binaryStatement, instr);
             this.instruction = instr;
-         
-            String opandCodes = "fst";
-            String fmt = instr.getOperationMask();
-            BasicInstructionFormat instrFormat = instr.getInstructionFormat();
-            int numOps = 0;
-            for (int i = 0; i < opandCodes.length(); i++) {
-               int code = opandCodes.charAt(i);
-               int j = fmt.indexOf(code);
-               if (j >= 0) {
-                  int k0 = 31 - fmt.lastIndexOf(code);
-                  int k1 = 31 - j;
-                  int opand = (binaryStatement >> k0) & ((1 << (k1 - k0 + 1)) - 1);
-                  if (instrFormat.equals(BasicInstructionFormat.I_BRANCH_FORMAT) && numOps == 2) {
-                     opand = opand << 16 >> 16;
-                  } 
-                  else if (instrFormat.equals(BasicInstructionFormat.J_FORMAT) && numOps == 0) {
-                     opand |= (textAddress >> 2) & 0x3C000000;
-                  }
-                  this.operands[numOps] = opand;
-                  numOps++;
-               }
+            this.numOperands = decoding.numOperands;
+            if (instr.getInstructionFormat().equals(BasicInstructionFormat.J_FORMAT) && numOperands > 0) {
+               this.operands = (int[]) decoding.operands.clone();
+               this.operands[0] |= (textAddress >> 2) & 0x3C000000;
+            } 
+            else {
+               this.operands = decoding.operands;
             }
-            this.numOperands = numOps;
          }
          this.altered = false;
-         this.basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement, instr, operands, numOperands);
+         this.basicStatementList = null; // built when first needed
+         decodeFields();
       }
    	
    
@@ -367,6 +375,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                this.insertBinaryCode(this.operands[i], Instruction.operandMask[i], errors);
          }
          this.binaryStatement = Binary.binaryStringToInt(this.machineStatement);
+         decodeFields();
          return;
       } // buildMachineStatementFromBasicStatement(
         
@@ -431,6 +440,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      
        public void setBinaryStatement(int binaryCode) {
          binaryStatement = binaryCode;
+         decodeFields();
       }
    
    
@@ -444,6 +454,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          source = src;
       }
    
+    /**
+     * Associates the MIPS source file and line number.  Used when loading an assembled
+     * program image, whose statements are built from binary code.
+     * @param program the MIPSprogram representing the source file
+     * @param line the line number within that file
+     **/
+     
+       public void setSourceLine(MIPSprogram program, int line) {
+         sourceMIPSprogram = program;
+         sourceLine = line;
+      }
+   
     
     /**
      * Produces MIPSprogram object representing the source file containing this statement.
@@ -499,6 +521,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return The Basic Assembly statement.
      **/   
        public String getPrintableBasicAssemblyStatement() {
+         if (basicStatementList == null) {
+            basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement,
+                                    (operands == null) ? null : (BasicInstruction) instruction, operands, numOperands);
+         }
          return basicStatementList.toString();
       }
    	 
@@ -548,12 +574,95 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return textAddress;
       }
     /**
-     * Produces int array of operand values for this statement.
+     * Produces the rs field (bits 25-21) of the binary machine statement.  This and the
+     * other field accessors below are decoded when the binary statement is set, so
+     * simulation code can use them instead of indexing and extending the operand array.
+     * @return register number in the rs field.
+     **/
+       public int getRs() {
+         return rs;
+      }
+    /**
+     * Produces the rt field (bits 20-16) of the binary machine statement.
+     * @return register number in the rt field.
+     **/
+       public int getRt() {
+         return rt;
+      }
+    /**
+     * Produces the rd field (bits 15-11) of the binary machine statement.
+     * @return register number in the rd field.
+     **/
+       public int getRd() {
+         return rd;
+      }
+    /**
+     * Produces the shamt field (bits 10-6) of the binary machine statement.
+     * @return shift amount, 0 to 31.
+     **/
+       public int getShamt() {
+         return shamt;
+      }
+    /**
+     * Produces the 16-bit immediate field of the binary machine statement, sign-extended,
+     * as used by arithmetic, load and store instructions.
+     * @return immediate value, -32768 to 32767.
+     **/
+       public int getImmediate() {
+         return immediate;
+      }
+    /**
+     * Produces the 16-bit immediate field of the binary machine statement, zero-extended,
+     * as used by logical instructions.
+     * @return immediate value, 0 to 65535.
+     **/
+       public int getUnsignedImmediate() {
+         return unsignedImmediate;
+      }
+    /**
+     * Produces the target address of this statement if it is a branch: the address of
+     * the following statement plus the immediate field as a word displacement.
+     * @return branch target byte address.
+     **/
+       public int getBranchTarget() {
+         return branchTarget;
+      }
+    /**
+     * Produces the target address of this statement if it is a jump: the 26-bit target
+     * field as a word address within the 256MB region of the following statement.
+     * @return jump target byte address.
+     **/
+       public int getJumpTarget() {
+         return jumpTarget;
+      }
+    /**
+     * Produces int array of operand values for this statement.  For a statement
+     * constructed from binary code, the array may be shared with other statements
+     * having the same binary code, so it must not be modified.
      * @return int array of operand values (if any) required by this statement's operator.
      **/    
        public int[] getOperands() {
          return operands;
       }
+    /**
+     * Produces the number of operands this statement has.
+     * @return number of operand values in the operand array that are used.
+     **/
+       public int getNumOperands() {
+         return numOperands;
+      }
+    /**
+     * Replaces the operand values of a statement constructed from binary code with
+     * those the assembler produced, which keep immediate operands signed.  Used when
+     * loading an assembled program image.
+     * @param operands operand values; the array is used, not copied.
+     * @param numOperands number of them used.
+     **/
+       void setOperands(int[] operands, int numOperands) {
+         this.operands = operands;
+         this.numOperands = numOperands;
+         this.basicStatementList = null;
+      }
     /**
      * Produces operand value from given array position (first operand is position 0).
      * 
@@ -570,6 +679,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
     
+    //////////////////////////////////////////////////////////////////////////////
+    //  Decode the fields of the binary statement, for the field accessors.
+       private void decodeFields() {
+         int next = this.textAddress + Instruction.INSTRUCTION_LENGTH;
+         this.rs = (binaryStatement >>> 21) & 0x1F;
+         this.rt = (binaryStatement >>> 16) & 0x1F;
+         this.rd = (binaryStatement >>> 11) & 0x1F;
+         this.shamt = (binaryStatement >>> 6) & 0x1F;
+         this.immediate = binaryStatement << 16 >> 16;
+         this.unsignedImmediate = binaryStatement & 0x0000FFFF;
+         this.branchTarget = next + (this.immediate << 2);
+         this.jumpTarget = (next & 0xF0000000) | ((binaryStatement & 0x03FFFFFF) << 2);
+      }
+   
     //////////////////////////////////////////////////////////////////////////////
     //  Given operand (register or integer) and mask character ('f', 's', or 't'),
     //  generate the correct sequence of bits and replace the mask with them.
@@ -590,6 +713,54 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       } // insertBinaryCode()
    
    
+    //////////////////////////////////////////////////////////////////////////////
+    //  Operands of a binary statement as decoded for a given BasicInstruction.  J format
+    //  jump targets lack the high bits taken from the statement address.  Immutable, so
+    //  statements and threads can share it.
+       private static class Decoding {
+         final int binary;
+         final BasicInstruction instruction;
+         final int[] operands;
+         final int numOperands;
+      
+          private Decoding(int binary, BasicInstruction instr) {
+            this.binary = binary;
+            this.instruction = instr;
+            this.operands = new int[4];
+            String opandCodes = "fst";
+            String fmt = instr.getOperationMask();
+            BasicInstructionFormat instrFormat = instr.getInstructionFormat();
+            int numOps = 0;
+            for (int i = 0; i < opandCodes.length(); i++) {
+               int code = opandCodes.charAt(i);
+               int j = fmt.indexOf(code);
+               if (j >= 0) {
+                  int k0 = 31 - fmt.lastIndexOf(code);
+                  int k1 = 31 - j;
+                  int opand = (binary >> k0) & ((1 << (k1 - k0 + 1)) - 1);
+                  if (instrFormat.equals(BasicInstructionFormat.I_BRANCH_FORMAT) && numOps == 2) {
+                     opand = opand << 16 >> 16;
+                  } 
+                  this.operands[numOps] = opand;
+                  numOps++;
+               }
+            }
+            this.numOperands = numOps;
+         }
+      
+         // The decoding of a binary statement for a BasicInstruction, from the cache
+      	// if it is there.
+          static Decoding get(int binary, BasicInstruction instr) {
+            int index = (((binary ^ (binary >>> 16)) * 0x9E3779B9) >>> 16) & (DECODING_CACHE_SIZE - 1);
+            Decoding decoding = decodings[index];
+            if (decoding == null || decoding.binary != binary || decoding.instruction != instr) {
+               decoding = new Decoding(binary, instr);
+               decodings[index] = decoding;
+            }
+            return decoding;
+         }
+      }
+   
     //////////////////////////////////////////////////////////////////////////////
    /*
     *   Given a model BasicInstruction and the assembled (not source) operand array for a statement, 
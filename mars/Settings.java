@@ -112,6 +112,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     /** Flag to determine whether a program can write binary code to the text or data segment and
         execute that code.  */
       public static final int SELF_MODIFYING_CODE_ENABLED = 20;	
+    /** Flag to determine whether the simulator may execute predecoded basic blocks when running
+        flat out (no stepping, breakpoints, run speed limit or self-modifying code). */
+      public static final int FAST_RUN_ENABLED = 21;
+    /** Flag to determine whether the simulator will take periodic checkpoints of the machine state
+        so execution can be run backward beyond the backstep limit (see TimeTravel). */
+      public static final int TIME_TRAVEL_ENABLED = 22;
    
       // NOTE: key sequence must match up with labels above which are used for array indexes!
       private static String[] booleanSettingsKeys = {"ExtendedAssembler", "BareMachine", "AssembleOnOpen", "AssembleAll",
@@ -120,7 +126,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          												"WarningsAreErrors", "ProgramArguments", "DataSegmentHighlighting",
          												"RegistersHighlighting", "StartAtMain", "EditorCurrentLineHighlighting",
          												"PopupInstructionGuidance", "PopupSyscallInput", "GenericTextEditor", 
-         												"AutoIndent", "SelfModifyingCode" };
+         												"AutoIndent", "SelfModifyingCode", "FastRun", "TimeTravel" };
    
       /** Last resort default values for boolean settings; will use only  if neither
    	 *  the Preferences nor the properties file work. If you wish to change them, 
@@ -129,7 +135,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
       public static boolean[] defaultBooleanSettingsValues = { // match the above list by position
                                               true, false, false, false, false, true, true, false, false, 
-         												 true, false, false, true, true, false, true, true, false, false, true, false };
+         												 true, false, false, true, true, false, true, true, false, false, true, false, true, false };
    
       // STRING SETTINGS.  Each array position has associated name.
    	/** Current specified exception handler file (a MIPS assembly source file) */
@@ -305,7 +311,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return true if backstepping is permitted, false otherwise.
      */
        public boolean getBackSteppingEnabled() {
-         return (Globals.program!=null && Globals.program.getBackStepper()!=null && Globals.program.getBackStepper().enabled());
+         MIPSprogram program = MachineContext.current().getProgram();
+         return (program!=null && program.getBackStepper()!=null && program.getBackStepper().enabled());
       }
    
    
@@ -7,12 +7,14 @@
    import mars.ErrorList;
    import mars.ErrorMessage;
    import mars.Globals;
+   import mars.MachineContext;
    import mars.MIPSprogram;
    import mars.ProcessingException;
    import mars.ProgramStatement;
    import mars.mips.hardware.AddressErrorException;
    import mars.mips.hardware.Memory;
    import mars.mips.instructions.BasicInstruction;
+   import mars.mips.instructions.BasicInstructionTemplate;
    import mars.mips.instructions.ExtendedInstruction;
    import mars.mips.instructions.Instruction;
    import mars.util.Binary;
@@ -191,8 +193,8 @@
          externAddress = Memory.externBaseAddress;
          currentFileDataSegmentForwardReferences = new DataSegmentForwardReferences();
          accumulatedDataSegmentForwardReferences = new DataSegmentForwardReferences();
-         Globals.symbolTable.clear();
-         Globals.memory.clear();
+         MachineContext.current().getSymbolTable().clear();
+         Memory.getInstance().clear();
          this.machineList = new ArrayList();
          this.errors = new ErrorList(); 
          if (Globals.debug)
@@ -269,7 +271,7 @@
       // Have processed all source files. Attempt to resolve any remaining forward label
       // references from global symbol table. Those that remain unresolved are undefined
       // and require error message.
-         accumulatedDataSegmentForwardReferences.resolve(Globals.symbolTable);
+         accumulatedDataSegmentForwardReferences.resolve(MachineContext.current().getSymbolTable());
          accumulatedDataSegmentForwardReferences.generateErrorMessages(errors);
       
       // Throw collection of errors accumulated through the first pass.
@@ -325,37 +327,35 @@
                
                // ////////////////////////////////////////////////////////////////////////////
                // If we are using compact memory config and there is a compact expansion, use it
-                  ArrayList templateList;
+                  BasicInstructionTemplate[] templates;
                   if (compactTranslationCanBeApplied(statement)) {
-                     templateList = inst.getCompactBasicIntructionTemplateList();
+                     templates = inst.getCompactBasicInstructionTemplates();
                   } 
                   else {
-                     templateList = inst.getBasicIntructionTemplateList();
+                     templates = inst.getBasicInstructionTemplates();
                   }
                
                // subsequent ProgramStatement constructor needs the correct text segment address.
                   textAddress.set(statement.getAddress());
                // Will generate one basic instruction for each template in the list.
-                  for (int instrNumber = 0; instrNumber < templateList.size(); instrNumber++) {
-                     String instruction = ExtendedInstruction.makeTemplateSubstitutions(
-                        this.fileCurrentlyBeingAssembled,
-                        (String) templateList.get(instrNumber), theTokenList);
+                  for (int instrNumber = 0; instrNumber < templates.length; instrNumber++) {
+                  // Substitute operands into the template, which has been tokenized in advance,
+                  // to get the tokens of the generated basic instruction.
+                     TokenList newTokenList = templates[instrNumber].makeTokenList(
+                        this.fileCurrentlyBeingAssembled, theTokenList, sourceLine, errors);
                   // 23 Jan 2008 by DPS. Template substitution may result in no instruction.
                   // If this is the case, skip remainder of loop iteration. This should only
                   // happen if template substitution was for "nop" instruction but delayed branching
                   // is disabled so the "nop" is not generated.
-                     if (instruction == null || instruction == "") {
+                     if (newTokenList == null) {
                         continue;
                      }
                   
                   // All substitutions have been made so we have generated
                   // a valid basic instruction!
                      if (Globals.debug)
-                        System.out.println("PSEUDO generated: " + instruction);
-                  // For generated instruction: tokenize, build program
-                  // statement, add to list.
-                     TokenList newTokenList = new Tokenizer().tokenizeLine(sourceLine,
-                        instruction, errors,false);
+                        System.out.println("PSEUDO generated: " + newTokenList);
+                  // For generated instruction: build program statement, add to list.
                      ArrayList instrMatches = this.matchInstruction(newTokenList.get(0));
                      Instruction instr = OperandFormat.bestOperandMatch(newTokenList,
                         instrMatches);
@@ -386,7 +386,7 @@
             if (Globals.debug)
                System.out.println(statement);
             try {
-               Globals.memory.setStatement(statement.getAddress(), statement);
+               Memory.getInstance().setStatement(statement.getAddress(), statement);
             } 
                catch (AddressErrorException e) {
                   Token t = statement.getOriginalTokenList().get(0);
@@ -622,7 +622,7 @@
    // alternate compact translation.
       private boolean compactTranslationCanBeApplied(ProgramStatement statement) {
          return (statement.getInstruction() instanceof ExtendedInstruction
-            && Globals.memory.usingCompactMemoryConfiguration() && ((ExtendedInstruction) statement
+            && Memory.getInstance().usingCompactMemoryConfiguration() && ((ExtendedInstruction) statement
             	.getInstruction()).hasCompactTranslation());
       }
    
@@ -849,8 +849,8 @@
             }
             int size = Binary.stringToInt(tokens.get(2).getValue());
          // If label already in global symtab, do nothing. If not, add it right now.
-            if (Globals.symbolTable.getAddress(tokens.get(1).getValue()) == SymbolTable.NOT_FOUND) {
-               Globals.symbolTable.addSymbol(tokens.get(1), this.externAddress,
+            if (MachineContext.current().getSymbolTable().getAddress(tokens.get(1).getValue()) == SymbolTable.NOT_FOUND) {
+               MachineContext.current().getSymbolTable().addSymbol(tokens.get(1), this.externAddress,
                   Symbol.DATA_SYMBOL, errors);
                this.externAddress += size;
             }
@@ -905,14 +905,14 @@
                   		+ "\" declared global label but not defined."));
             } 
             else {
-               if (Globals.symbolTable.getAddress(label.getValue()) != SymbolTable.NOT_FOUND) {
+               if (MachineContext.current().getSymbolTable().getAddress(label.getValue()) != SymbolTable.NOT_FOUND) {
                   errors.add(new ErrorMessage(fileCurrentlyBeingAssembled, label.getSourceLine(),
                      label.getStartPos(), "\"" + label.getValue()
                      		+ "\" already defined as global in a different file."));
                } 
                else {
                   fileCurrentlyBeingAssembled.getLocalSymbolTable().removeSymbol(label);
-                  Globals.symbolTable.addSymbol(label, symtabEntry.getAddress(),
+                  MachineContext.current().getSymbolTable().addSymbol(label, symtabEntry.getAddress(),
                      symtabEntry.getType(), errors);
                }
             }
@@ -1034,7 +1034,7 @@
           * 
           * else { // not in data segment...which we assume to mean in text
           * segment. try { for (int i=0; i < repetitions; i++) {
-          * Globals.memory.set(this.textAddress.get(),
+          * Memory.getInstance().set(this.textAddress.get(),
           * Binary.stringToInt(valueToken.getValue()), lengthInBytes);
           * this.textAddress.increment(lengthInBytes); } } catch
           * (AddressErrorException e) { errors.add(new
@@ -1099,7 +1099,7 @@
             ********/
             else {
                try {
-                  Globals.memory.set(this.textAddress.get(), value, lengthInBytes);
+                  Memory.getInstance().set(this.textAddress.get(), value, lengthInBytes);
                } 
                   catch (AddressErrorException e) {
                      errors.add(new ErrorMessage(token.getSourceMIPSprogram(),
@@ -1242,7 +1242,7 @@
                      }
                   }
                   try {
-                     Globals.memory.set(this.dataAddress.get(), (int) theChar,
+                     Memory.getInstance().set(this.dataAddress.get(), (int) theChar,
                         DataTypes.CHAR_SIZE);
                   } 
                      catch (AddressErrorException e) {
@@ -1254,7 +1254,7 @@
                }
                if (direct == Directives.ASCIIZ) {
                   try {
-                     Globals.memory.set(this.dataAddress.get(), 0, DataTypes.CHAR_SIZE);
+                     Memory.getInstance().set(this.dataAddress.get(), 0, DataTypes.CHAR_SIZE);
                   } 
                      catch (AddressErrorException e) {
                         errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token
@@ -1290,7 +1290,7 @@
             this.dataAddress.set(this.alignToBoundary(this.dataAddress.get(), lengthInBytes));
          }
          try {
-            Globals.memory.set(this.dataAddress.get(), value, lengthInBytes);
+            Memory.getInstance().set(this.dataAddress.get(), value, lengthInBytes);
          } 
             catch (AddressErrorException e) {
                errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token.getSourceLine(), token
@@ -1314,7 +1314,7 @@
             this.dataAddress.set(this.alignToBoundary(this.dataAddress.get(), lengthInBytes));
          }
          try {
-            Globals.memory.setDouble(this.dataAddress.get(), value);
+            Memory.getInstance().setDouble(this.dataAddress.get(), value);
          } 
             catch (AddressErrorException e) {
                errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token.getSourceLine(), token
@@ -1474,7 +1474,7 @@
                if (labelAddress != SymbolTable.NOT_FOUND) {
                // patch address has to be valid b/c we already stored there...
                   try {
-                     Globals.memory.set(entry.patchAddress, labelAddress, entry.length);
+                     Memory.getInstance().set(entry.patchAddress, labelAddress, entry.length);
                   } 
                      catch (AddressErrorException aee) {
                      }
@@ -31,7 +31,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
   /**
-    *  Creats a table of Symbol objects.
+    *  Creats a table of Symbol objects.  Symbols are kept in the order they were
+    *  added, and indexed by name and by address so lookups take constant time.
+    *  Change the address of a symbol in the table only through fixSymbolTableAddress(),
+    *  which keeps the address index current.
 	*   @author Jason Bumgarner, Jason Shrewsbury
 	*   @version June 2003
 	**/
@@ -39,7 +42,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class SymbolTable {
       private static String startLabel = "main";
       private String filename;
-      private ArrayList table;
+      private LinkedHashMap<String,Symbol> table; // by name, in order added
+      private HashMap<Integer,ArrayList<Symbol>> addressTable; // by address, each list in table order
    	// Note -1 is legal 32 bit address (0xFFFFFFFF) but it is the high address in 
    	// kernel address space so highly unlikely that any symbol will have this as 
    	// its associated address!
@@ -52,7 +56,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
        public SymbolTable(String filename) {
          this.filename = filename;
-         this.table = new ArrayList();
+         clear();
       }    
    	/**
    	  *  Adds a Symbol object into the array of Symbols.
@@ -69,7 +73,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          } 
          else {
             Symbol s= new Symbol(label, address, b);
-            table.add(s);
+            table.put(label, s);
+            ArrayList<Symbol> atAddress = addressTable.get(address);
+            if (atAddress == null) {
+               atAddress = new ArrayList<Symbol>(1);
+               addressTable.put(address, atAddress);
+            }
+            atAddress.add(s);
             if (Globals.debug) System.out.println("The symbol " + label + " with address " + address + " has been added to the "+this.filename+" symbol table.");
          }
       }
@@ -84,12 +94,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public void removeSymbol(Token token) {
          String label = token.getValue();
-         for (int i=0; i < table.size(); i++) {
-            if (((Symbol)(table.get(i))).getName().equals(label)){
-               table.remove(i);
-               if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
-               break;
+         Symbol s = table.remove(label);
+         if (s != null) {
+            ArrayList<Symbol> atAddress = addressTable.get(s.getAddress());
+            atAddress.remove(s);
+            if (atAddress.isEmpty()) {
+               addressTable.remove(s.getAddress());
             }
+            if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
          }
          return; 
       }
@@ -101,12 +113,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return The memory address of the label given, or NOT_FOUND if not found in symbol table.
    	  **/
        public int getAddress(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return((Symbol) table.get(i)).getAddress();
-            }
-         }
-         return NOT_FOUND;
+         Symbol symbol = table.get(s);
+         return (symbol == null) ? NOT_FOUND : symbol.getAddress();
       }
       
    	/**
@@ -118,7 +126,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/		
        public int getAddressLocalOrGlobal(String s) {
          int address = this.getAddress(s);
-         return (address==NOT_FOUND) ? Globals.symbolTable.getAddress(s) : address ;
+         return (address==NOT_FOUND) ? MachineContext.current().getSymbolTable().getAddress(s) : address ;
       }
    	
    	
@@ -129,12 +137,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        **/
        
        public Symbol getSymbol(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         return table.get(s);
       }
    
       /**
@@ -151,12 +154,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
              catch (NumberFormatException e) {
                return null;
             }
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getAddress() == address){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         ArrayList<Symbol> atAddress = addressTable.get(address);
+         return (atAddress == null) ? null : atAddress.get(0);
       }      
    
       /**
@@ -167,7 +166,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        **/
        public Symbol getSymbolGivenAddressLocalOrGlobal(String s){
          Symbol sym = this.getSymbolGivenAddress(s);
-         return (sym==null) ? Globals.symbolTable.getSymbolGivenAddress(s) : sym ;
+         return (sym==null) ? MachineContext.current().getSymbolTable().getSymbolGivenAddress(s) : sym ;
       }
    			  
    
@@ -179,9 +178,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
        public ArrayList getDataSymbols(){
          ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            if(((Symbol)table.get(i)).getType()){
-               list.add(table.get(i));
+         for (Symbol s : table.values()) {
+            if (s.getType()) {
+               list.add(s);
             }	
          }
          return list;
@@ -195,9 +194,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
        public ArrayList getTextSymbols(){
          ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            if(!((Symbol)table.get(i)).getType()){
-               list.add(table.get(i));
+         for (Symbol s : table.values()) {
+            if (!s.getType()) {
+               list.add(s);
             }	
          }
          return list;
@@ -209,11 +208,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
       
        public ArrayList getAllSymbols(){
-         ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            list.add(table.get(i));
-         }
-         return list;
+         return new ArrayList(table.values());
       }	
    
    	 /**
@@ -230,7 +225,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		**/
    	 
        public void clear(){
-         table= new ArrayList();
+         table = new LinkedHashMap<String,Symbol>();
+         addressTable = new HashMap<Integer,ArrayList<Symbol>>();
       }
    	
    /**
@@ -243,10 +239,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
    
        public void fixSymbolTableAddress(int originalAddress, int replacementAddress) {
-         Symbol label = getSymbolGivenAddress(Integer.toString(originalAddress));
-         while (label != null) {
-            label.setAddress(replacementAddress);
-            label = getSymbolGivenAddress(Integer.toString(originalAddress));
+         ArrayList<Symbol> moved = addressTable.remove(originalAddress);
+         if (moved == null) {
+            return;
+         }
+         for (int i=0; i<moved.size(); i++) {
+            moved.get(i).setAddress(replacementAddress);
+         }
+         if (addressTable.get(replacementAddress) == null) {
+            addressTable.put(replacementAddress, moved);
+         } 
+         else {
+            // Merge, keeping table order.  Rare: only when a symbol is already there.
+            ArrayList<Symbol> atAddress = new ArrayList<Symbol>();
+            for (Symbol s : table.values()) {
+               if (s.getAddress() == replacementAddress) {
+                  atAddress.add(s);
+               }
+            }
+            addressTable.put(replacementAddress, atAddress);
          }
          return;
       }
@@ -0,0 +1,160 @@
+   package mars.assembler;
+   import mars.*;
+   import java.util.*;
+
+/**
+ * Tokenized form of recently tokenized source files, so a file that has not changed
+ * since it was last assembled need not be tokenized again.  Tokenizing is the most
+ * expensive part of assembly, and assembling again after editing one file of a large
+ * project, or assembling the same file for many runs, would otherwise redo it for every
+ * file.
+ * <p>
+ * Entries are keyed by file name.  An entry is used only if the file's content, and the
+ * content of every file it includes, is the same as when it was tokenized; included
+ * files are read again to check.  The tokens and source lines handed out are copies
+ * belonging to the program being tokenized, since the assembler modifies them.  Files
+ * whose tokenizing produced errors are not cached.  The cache holds at most
+ * CAPACITY files, dropping the least recently used.  Token types depend on the
+ * instruction set, so InstructionSet.populate() clears the cache.
+ *
+ * @see Tokenizer
+ */
+
+    public class TokenCache {
+
+    /** Maximum number of files whose tokenized form is kept. */
+      public static final int CAPACITY = 64;
+
+      private static final Map entries =
+             new LinkedHashMap(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry eldest) {
+                  return size() > CAPACITY;
+               }
+            };
+
+      private ArrayList source;              // lines of the file as read
+      private MIPSprogram[] included;        // programs holding included files as read
+      private ArrayList<SourceLine> expandedLines;  // lines after .include, before .eqv; own lines have null program
+      private ArrayList<SourceLine> processedLines; // lines after .eqv; same object where unchanged
+      private ArrayList tokenLists;          // of TokenList
+      private HashMap<String,String> equivalents;
+
+       private TokenCache() {
+      }
+
+    /**
+     * Discard all cached files.
+     */
+       public static void clear() {
+         synchronized (entries) {
+            entries.clear();
+         }
+      }
+
+    /**
+     * Record the result of tokenizing a program without errors.
+     * @param program the tokenized program
+     * @param included programs holding the files it included, as read
+     * @param expandedLines its source lines after .include processing
+     * @param tokenLists its token lists, one per line of expandedLines
+     * @param equivalents .eqv symbols defined when tokenizing finished
+     */
+       static void store(MIPSprogram program, ArrayList included, ArrayList<SourceLine> expandedLines,
+                         ArrayList tokenLists, HashMap<String,String> equivalents) {
+         TokenCache entry = new TokenCache();
+         entry.source = new ArrayList(program.getSourceList());
+         entry.included = (MIPSprogram[]) included.toArray(new MIPSprogram[included.size()]);
+         ArrayList<SourceLine> processed = program.getSourceLineList();
+         entry.expandedLines = new ArrayList<SourceLine>(expandedLines.size());
+         entry.processedLines = new ArrayList<SourceLine>(expandedLines.size());
+         for (int i = 0; i < expandedLines.size(); i++) {
+            SourceLine expanded = relocate(expandedLines.get(i), program, null);
+            entry.expandedLines.add(expanded);
+            entry.processedLines.add((processed.get(i) == expandedLines.get(i))
+                                       ? expanded : relocate(processed.get(i), program, null));
+         }
+         entry.tokenLists = copyTokenLists(tokenLists, null);
+         entry.equivalents = new HashMap<String,String>(equivalents);
+         synchronized (entries) {
+            entries.put(program.getFilename(), entry);
+         }
+      }
+
+    /**
+     * Find the cached tokenized form of a program's file, if it is still valid.
+     * @param program program whose source has been read
+     * @return the entry, or null if there is none or the file or a file it includes
+     * has changed
+     */
+       static TokenCache lookUp(MIPSprogram program) {
+         TokenCache entry;
+         synchronized (entries) {
+            entry = (TokenCache) entries.get(program.getFilename());
+         }
+         if (entry == null || !entry.source.equals(program.getSourceList())) {
+            return null;
+         }
+         for (int i = 0; i < entry.included.length; i++) {
+            MIPSprogram current = new MIPSprogram();
+            try {
+               current.readSource(entry.included[i].getFilename());
+            }
+                catch (ProcessingException e) {
+                  return null;
+               }
+            if (!current.getSourceList().equals(entry.included[i].getSourceList())) {
+               return null;
+            }
+         }
+         return entry;
+      }
+
+    /**
+     * Give a program copies of the cached source lines and tokens, as tokenizing would.
+     * @param program the program, whose source has been read
+     * @return its token lists, one per source line
+     */
+       ArrayList restore(MIPSprogram program) {
+         ArrayList<SourceLine> lines = new ArrayList<SourceLine>(expandedLines.size());
+         for (int i = 0; i < expandedLines.size(); i++) {
+            lines.add(relocate(expandedLines.get(i), null, program));
+         }
+         program.setSourceLineList(lines);
+         for (int i = 0; i < processedLines.size(); i++) {
+            if (processedLines.get(i) != expandedLines.get(i)) {
+               lines.set(i, relocate(processedLines.get(i), null, program));
+            }
+         }
+         return copyTokenLists(tokenLists, program);
+      }
+
+    /**
+     * @return .eqv symbols defined at the end of the file, with their expressions
+     */
+       HashMap<String,String> getEquivalents() {
+         return new HashMap<String,String>(equivalents);
+      }
+
+      // Copy of the source line, belonging to program "to" if it belonged to "from".
+       private static SourceLine relocate(SourceLine line, MIPSprogram from, MIPSprogram to) {
+         MIPSprogram owner = (line.getMIPSprogram() == from) ? to : line.getMIPSprogram();
+         return new SourceLine(line.getSource(), owner, line.getLineNumber());
+      }
+
+      // Deep copy of a list of TokenList, with every token belonging to the given program.
+       private static ArrayList copyTokenLists(ArrayList tokenLists, MIPSprogram program) {
+         ArrayList result = new ArrayList(tokenLists.size());
+         for (int i = 0; i < tokenLists.size(); i++) {
+            TokenList original = (TokenList) tokenLists.get(i);
+            TokenList copy = new TokenList();
+            for (int j = 0; j < original.size(); j++) {
+               Token token = original.get(j);
+               copy.add(new Token(token.getType(), token.getValue(), program,
+                                  token.getSourceLine(), token.getStartPos()));
+            }
+            copy.setProcessedLine(original.getProcessedLine());
+            result.add(copy);
+         }
+         return result;
+      }
+   }
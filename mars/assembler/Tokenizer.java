@@ -52,6 +52,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private ErrorList errors;
       private MIPSprogram sourceMIPSprogram;
       private HashMap<String,String> equivalents; // DPS 11-July-2012
+      private ArrayList includedPrograms; // of MIPSprogram, for TokenCache
    	// The 8 escaped characters are: single quote, double quote, backslash, newline (linefeed),
    	// tab, backspace, return, form feed.  The characters and their corresponding decimal codes:
       private static final String escapedCharacters = "'\"\\ntbrf0";
@@ -76,7 +77,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    /**
     * Will tokenize a complete MIPS program.  MIPS is line oriented (not free format),
-    * so we will be line-oriented too.
+    * so we will be line-oriented too.  If the program's file, and the files it includes,
+    * are unchanged since they were last tokenized, the result is taken from the TokenCache.
     *
     * @param p The MIPSprogram to be tokenized.
     * @return An ArrayList representing the tokenized program.  Each list member is a TokenList
@@ -85,10 +87,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
        public ArrayList tokenize(MIPSprogram p) throws ProcessingException {
          sourceMIPSprogram = p;
+         TokenCache cached = TokenCache.lookUp(p);
+         if (cached != null) {
+            equivalents = cached.getEquivalents();
+            return cached.restore(p);
+         }
          equivalents = new HashMap<String,String>(); // DPS 11-July-2012
+         includedPrograms = new ArrayList();
          ArrayList tokenList = new ArrayList();
          //ArrayList source = p.getSourceList();
          ArrayList<SourceLine> source = processIncludes(p, new HashMap<String,String>()); // DPS 9-Jan-2013
+         ArrayList<SourceLine> expanded = new ArrayList<SourceLine>(source);
          p.setSourceLineList(source);
          TokenList currentLineTokens;
          String sourceLine;
@@ -108,6 +117,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (errors.errorsOccurred()) {
             throw new ProcessingException(errors);
          }
+         TokenCache.store(p, includedPrograms, expanded, tokenList, equivalents);
          return tokenList;
       }
    
@@ -155,6 +165,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                            "Error reading include file "+filename));	
                         throw new ProcessingException(errors);
                      }
+                  includedPrograms.add(incl);
                   ArrayList<SourceLine> allLines = processIncludes(incl, inclFiles);
                   result.addAll(allLines);
                   hasInclude = true;
@@ -1,5 +1,6 @@
    package mars.mips.hardware;
    import mars.Globals;
+   import mars.MachineContext;
    import java.util.*;
 
 /*
@@ -32,6 +33,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 /**
   *  Represents Coprocessor 0.  We will use only its interrupt/exception registers.
+  *  Each MachineContext has its own Coprocessor0; the static methods operate on that
+  *  of the calling thread's context.
   *   @author 	Pete Sanderson
   *   @version August 2005
   **/
@@ -49,19 +52,31 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 		// bit 1 (exception level) not set, bit 0 (interrupt enable) set.
 		public static final int DEFAULT_STATUS_VALUE = 0x0000FF11;
 		
-      private static Register [] registers = 
+      private Register [] registers = 
           { new Register("$8 (vaddr)", 8, 0),  
             new Register("$12 (status)", 12, DEFAULT_STATUS_VALUE),
          	new Register("$13 (cause)", 13, 0),  
          	new Register("$14 (epc)", 14, 0)
            };
         												  
+   	/**
+   	  *  Create a set of coprocessor 0 registers holding their reset values.  Used by
+   	  *  MachineContext; others use the static methods.
+   	  **/
+       public Coprocessor0() {
+      }
+   
+      // Coprocessor 0 of the calling thread's machine context.
+       private static Coprocessor0 current() {
+         return MachineContext.current().getCoprocessor0();
+      }
    	 
    	/**
    	  *  Method for displaying the register values for debugging.
    	  **/	 
    		 
        public static void showRegisters(){
+         Register[] registers = current().registers;
          for (int i=0; i< registers.length; i++){
             System.out.println("Name: " + registers[i].getName());
             System.out.println("Number: " + registers[i].getNumber());
@@ -78,6 +93,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int updateRegister(String n, int val){
+         Register[] registers = current().registers;
 		   int oldValue = 0;
          for (int i=0; i< registers.length; i++){
             if(("$"+registers[i].getNumber()).equals(n) || registers[i].getName().equals(n)) {
@@ -96,11 +112,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 		  *   @return old value in register prior to update
    	  **/
        public static int updateRegister(int num, int val){
+         Register[] registers = current().registers;
          int old = 0;
          for (int i=0; i< registers.length; i++){
             if(registers[i].getNumber()== num) {
                old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addCoprocessor0Restore(num,registers[i].setValue(val))
+                        ? MachineContext.current().getProgram().getBackStepper().addCoprocessor0Restore(num,registers[i].setValue(val))
                   		: registers[i].setValue(val);
                break;
             }
@@ -116,6 +133,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
+         Register[] registers = current().registers;
          for (int i=0; i< registers.length; i++){
             if(registers[i].getNumber()== num) {
                return registers[i].getValue();
@@ -131,6 +149,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		  **/	
       		
        public static int getNumber(String n){
+         Register[] registers = current().registers;
          for (int i=0; i< registers.length; i++){
             if(("$"+registers[i].getNumber()).equals(n) || registers[i].getName().equals(n)) {
                return registers[i].getNumber();
@@ -145,7 +164,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register[] getRegisters(){
-         return registers;
+         return current().registers;
       }
 
       
@@ -158,6 +177,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getRegisterPosition(Register r){
+         Register[] registers = current().registers;
          for (int i=0; i< registers.length; i++){
             if(registers[i]==r) {
                return i;
@@ -173,6 +193,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register getRegister(String rname) {
+         Register[] registers = current().registers;
          for (int i=0; i< registers.length; i++){
             if(("$"+registers[i].getNumber()).equals(rname) || registers[i].getName().equals(rname)) {
                return registers[i];
@@ -187,6 +208,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void resetRegisters(){
+         Register[] registers = current().registers;
          for(int i=0; i< registers.length; i++){
             registers[i].resetValue();
          }
@@ -197,6 +219,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will add the given Observer to each one.  
    	 */
        public static void addRegistersObserver(Observer observer) {
+         Register[] registers = current().registers;
          for (int i=0; i<registers.length; i++) {
             registers[i].addObserver(observer);
          }
@@ -207,6 +230,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will delete the given Observer from each one.  
    	 */
        public static void deleteRegistersObserver(Observer observer) {
+         Register[] registers = current().registers;
          for (int i=0; i<registers.length; i++) {
             registers[i].deleteObserver(observer);
          }
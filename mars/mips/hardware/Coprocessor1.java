@@ -1,6 +1,7 @@
    package mars.mips.hardware;
    import mars.util.*;
    import mars.Globals;
+   import mars.MachineContext;
    import java.util.*;
 
 /*
@@ -32,7 +33,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
 /**
-  *  Represents Coprocessor 1, the Floating Point Unit (FPU)
+  *  Represents Coprocessor 1, the Floating Point Unit (FPU).  Each MachineContext has
+  *  its own Coprocessor1; the static methods operate on that of the calling thread's
+  *  context.
   *   @author 	Pete Sanderson
   *   @version July 2005
   **/
@@ -48,7 +51,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 // storing into registers, and reassembled upon retrieval.
 
     public  class Coprocessor1 {
-      private static Register [] registers = 
+      private Register [] registers = 
           { new Register("$f0", 0, 0),  new Register("$f1", 1, 0),
          	new Register("$f2", 2, 0),  new Register("$f3", 3, 0),
          	new Register("$f4", 4, 0),  new Register("$f5", 5, 0),
@@ -67,14 +70,27 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          	new Register("$f30", 30, 0),new Register("$f31", 31, 0)
            };
    	// The 8 condition flags will be stored in bits 0-7 for flags 0-7.
-      private static Register condition = new Register("cf",32, 0);	 
+      private Register condition = new Register("cf",32, 0);	 
       private static int numConditionFlags = 8;
+   
+   	/**
+   	  *  Create a set of FPU registers and condition flags holding their reset values.
+   	  *  Used by MachineContext; others use the static methods.
+   	  **/
+       public Coprocessor1() {
+      }
+   
+      // Coprocessor 1 of the calling thread's machine context.
+       private static Coprocessor1 current() {
+         return MachineContext.current().getCoprocessor1();
+      }
    	
    	/**
    	  *  Method for displaying the register values for debugging.
    	  **/	 
    		 
        public static void showRegisters(){
+         Register[] registers = current().registers;
          for (int i=0; i< registers.length; i++){
           
             System.out.println("Name: " + registers[i].getName());
@@ -102,6 +118,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static void setRegisterToFloat(int reg, float val){
+         Register[] registers = current().registers;
          if(reg >= 0 && reg < registers.length) {
             registers[reg].setValue(Float.floatToRawIntBits(val));
          }
@@ -127,6 +144,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static void setRegisterToInt(int reg, int val){
+         Register[] registers = current().registers;
          if(reg >= 0 && reg < registers.length) {
             registers[reg].setValue(val);
          }
@@ -144,6 +162,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static void setRegisterPairToDouble(int reg, double val) 
                                     throws InvalidRegisterAccessException {
+         Register[] registers = current().registers;
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
          } 
@@ -179,6 +198,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static void setRegisterPairToLong(int reg, long val) 
                                     throws InvalidRegisterAccessException {
+         Register[] registers = current().registers;
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
          } 
@@ -210,6 +230,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static float getFloatFromRegister(int reg){
+         Register[] registers = current().registers;
          float result = 0F;
          if(reg >= 0 && reg < registers.length) {
             result = Float.intBitsToFloat(registers[reg].getValue());
@@ -236,6 +257,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getIntFromRegister(int reg){
+         Register[] registers = current().registers;
          int result = 0;
          if(reg >= 0 && reg < registers.length) {
             result = registers[reg].getValue();
@@ -264,6 +286,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static double getDoubleFromRegisterPair(int reg) 
                                     throws InvalidRegisterAccessException {
+         Register[] registers = current().registers;
          double result = 0.0;
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
@@ -296,6 +319,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static long getLongFromRegisterPair(int reg) 
                                     throws InvalidRegisterAccessException {
+         Register[] registers = current().registers;
          double result = 0.0;
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
@@ -326,11 +350,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static int updateRegister(int num, int val){
+         Register[] registers = current().registers;
          int old = 0;
          for (int i=0; i< registers.length; i++){
             if(registers[i].getNumber()== num) {
                old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addCoprocessor1Restore(num,registers[i].setValue(val))
+                        ? MachineContext.current().getProgram().getBackStepper().addCoprocessor1Restore(num,registers[i].setValue(val))
                   		: registers[i].setValue(val);
                break;
             }
@@ -347,6 +372,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
+         Register[] registers = current().registers;
          return registers[num].getValue();
       }
       		
@@ -357,6 +383,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		  **/	
       		
        public static int getRegisterNumber(String n){
+         Register[] registers = current().registers;
          int j=-1;
          for (int i=0; i< registers.length; i++){
             if(registers[i].getName().equals(n)) {
@@ -373,7 +400,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register[] getRegisters(){
-         return registers;
+         return current().registers;
       }
       
    	/**
@@ -383,6 +410,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register getRegister(String rName) {
+         Register[] registers = current().registers;
          Register reg = null;
          if (rName.charAt(0) == '$' && rName.length() > 1 && rName.charAt(1) == 'f') {
             try {
@@ -403,6 +431,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void resetRegisters(){
+         Register[] registers = current().registers;
          for(int i=0; i < registers.length; i++)
             registers[i].resetValue();
          clearConditionFlags();
@@ -414,6 +443,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will add the given Observer to each one.  
    	 */
        public static void addRegistersObserver(Observer observer) {
+         Register[] registers = current().registers;
          for (int i=0; i<registers.length; i++) {
             registers[i].addObserver(observer);
          }
@@ -425,6 +455,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will delete the given Observer from each one.  
    	 */
        public static void deleteRegistersObserver(Observer observer) {
+         Register[] registers = current().registers;
          for (int i=0; i<registers.length; i++) {
             registers[i].deleteObserver(observer);
          }
@@ -437,16 +468,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return previous flag setting (0 or 1)
    	 */
        public static int setConditionFlag(int flag) {
+         Register condition = current().condition;
          int old = 0;
          if (flag >= 0 && flag < numConditionFlags) {
             old = getConditionFlag(flag);
             condition.setValue(Binary.setBit(condition.getValue(),flag));
             if (Globals.getSettings().getBackSteppingEnabled())
                if (old==0) {
-                  Globals.program.getBackStepper().addConditionFlagClear(flag);
+                  MachineContext.current().getProgram().getBackStepper().addConditionFlagClear(flag);
                } 
                else {
-                  Globals.program.getBackStepper().addConditionFlagSet(flag);
+                  MachineContext.current().getProgram().getBackStepper().addConditionFlagSet(flag);
                }
          }
          return old;
@@ -459,16 +491,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return previous flag setting (0 or 1)
    	 */
        public static int clearConditionFlag(int flag) {
+         Register condition = current().condition;
          int old = 0;
          if (flag >= 0 && flag < numConditionFlags) {
             old = getConditionFlag(flag);
             condition.setValue(Binary.clearBit(condition.getValue(),flag));
             if (Globals.getSettings().getBackSteppingEnabled())
                if (old==0) {
-                  Globals.program.getBackStepper().addConditionFlagClear(flag);
+                  MachineContext.current().getProgram().getBackStepper().addConditionFlagClear(flag);
                } 
                else {
-                  Globals.program.getBackStepper().addConditionFlagSet(flag);
+                  MachineContext.current().getProgram().getBackStepper().addConditionFlagSet(flag);
                }
          }
          return old;
@@ -482,6 +515,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return 0 if condition is false, 1 if condition is true
    	 */
        public static int getConditionFlag(int flag) {
+         Register condition = current().condition;
          if (flag < 0 || flag >= numConditionFlags) 
             flag = 0;
          return Binary.bitValue(condition.getValue(), flag);
@@ -494,6 +528,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return array of int condition flags
    	 */
        public static int getConditionFlags() {
+         Register condition = current().condition;
          return condition.getValue();
       }	
    	
@@ -503,6 +538,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *
    	 */
        public static void clearConditionFlags() {
+         Register condition = current().condition;
          condition.setValue(0);  // sets all 32 bits to 0.
       }		
    	
@@ -511,6 +547,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *
    	 */
        public static void setConditionFlags() {
+         Register condition = current().condition;
          condition.setValue(-1);  // sets all 32 bits to 1.
       }	
    	
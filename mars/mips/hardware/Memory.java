@@ -89,7 +89,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	/** Current setting for endian (default LITTLE_ENDIAN) **/
       private static boolean byteOrder = LITTLE_ENDIAN;
    	
-      public static int heapAddress;
+      private int heapAddress;
    
     // Memory will maintain a collection of observables.  Each one is associated
     // with a specific memory address or address range, and each will have at least
@@ -105,6 +105,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
       Collection observables = getNewMemoryObserversCollection();
    
+    // Index of the 4 KB pages (address >>> OBSERVED_PAGE_SHIFT) covered by at least one
+    // observable that still has an observer.  Rebuilt whenever observers are added or
+    // removed, so an access to an unobserved page costs one bit test rather than a
+    // scan of the observables.
+      private static final int OBSERVED_PAGE_SHIFT = 12;
+      private volatile BitSet observedPages = new BitSet();
+   
     // The data segment is allocated in blocks of 1024 ints (4096 bytes).  Each block is
     // referenced by a "block table" entry, and the table has 1024 entries.  The capacity
     // is thus 1024 entries * 4096 bytes = 4 MB.  Should be enough to cover most
@@ -174,6 +181,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final int TEXT_BLOCK_TABLE_LENGTH = 1024; // Each entry of table points to a block.
       private ProgramStatement[][] textBlockTable;
       private ProgramStatement[][] kernelTextBlockTable;
+   
+    // Bumped whenever a statement is stored in either text segment or the tables are
+    // re-created.  Lets holders of predecoded text (e.g. the simulator's basic block
+    // cache) detect that their copy is stale without being notified of every store.
+      private int textSegmentVersion = 0;
+      // Changes whenever observers are added or removed; see getObserverVersion().
+      private volatile int observerVersion = 0;
+   
+    // Snapshots share blocks with the live tables instead of copying them.  Each table
+    // has a flag per block, set when the block may also be held by a MemorySnapshot.
+    // A shared block is copied before it is first stored into, so snapshots never change.
+    // sharedBlocks stays false until the first snapshot so stores can skip the check.
+      private boolean[] dataBlockShared;
+      private boolean[] kernelDataBlockShared;
+      private boolean[] stackBlockShared;
+      private boolean[] memoryMapBlockShared;
+      private boolean[] textBlockShared;
+      private boolean[] kernelTextBlockShared;
+      private boolean sharedBlocks = false;
     
     // Set "top" address boundary to go with each "base" address.  This determines permissable
     // address range for user program.  Currently limit is 4MB, or 1024 * 1024 * 4 bytes based
@@ -191,27 +217,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       														  BLOCK_LENGTH_WORDS * BLOCK_TABLE_LENGTH * WORD_LENGTH_BYTES;
       public static int memoryMapLimitAddress   = memoryMapBaseAddress + 
                                  					  BLOCK_LENGTH_WORDS * MMIO_TABLE_LENGTH * WORD_LENGTH_BYTES;  
-    // This will be a Singleton class, only one instance is ever created.  Since I know the 
-    // Memory object is always needed, I'll go ahead and create it at the time of class loading.
-    // (greedy rather than lazy instantiation).  The constructor is private and getInstance()
-    // always returns this instance.
+    // Originally a Singleton class.  Now each MachineContext owns one Memory, and
+    // getInstance() returns that of the calling thread's context.  The default context's
+    // Memory is the one in Globals.memory.  The memory configuration (segment addresses
+    // above) is still shared by all instances.
     
-      private static Memory uniqueMemoryInstance = new Memory(); 
-   	
-    
-    /*
-     * Private constructor for Memory.  Separate data structures for text and data segments. 
+    /**
+     * Constructor for Memory.  Separate data structures for text and data segments.  Used
+     * by MachineContext; others use getInstance().
      **/
-       private Memory() {
+       public Memory() {
          initialize();
       }
    
      /**
-      * Returns the unique Memory instance, which becomes in essence global.
+      * Returns the Memory instance of the calling thread's MachineContext.  For the GUI
+   	* and command mode this is the default context, whose Memory becomes in essence global.
    	*/
    	
        public static Memory getInstance() {
-         return uniqueMemoryInstance;
+         return MachineContext.current().getMemory();
       }
    	
    	/**
@@ -221,6 +246,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void clear() {
          setConfiguration();
          initialize(); 		
+         System.gc(); // call garbage collector on any Table memory just deallocated. 	  
       }
    
      /**
@@ -292,9 +318,113 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          kernelDataBlockTable  = new int[BLOCK_TABLE_LENGTH][];      
          stackBlockTable = new int[BLOCK_TABLE_LENGTH][];
          memoryMapBlockTable = new int[MMIO_TABLE_LENGTH][];
-         System.gc(); // call garbage collector on any Table memory just deallocated. 	  
+         textBlockShared = new boolean[TEXT_BLOCK_TABLE_LENGTH];
+         dataBlockShared = new boolean[BLOCK_TABLE_LENGTH];
+         kernelTextBlockShared = new boolean[TEXT_BLOCK_TABLE_LENGTH];
+         kernelDataBlockShared = new boolean[BLOCK_TABLE_LENGTH];
+         stackBlockShared = new boolean[BLOCK_TABLE_LENGTH];
+         memoryMapBlockShared = new boolean[MMIO_TABLE_LENGTH];
+         sharedBlocks = false;
+         textSegmentVersion++;
       }  
      
+   	/**
+   	 * Capture the current contents of MIPS memory (all segments, including the
+   	 * text segments and the heap allocation pointer) so they can be reinstated
+   	 * later by restore().  Observers are not notified.
+   	 * <p>
+   	 * Taking a snapshot copies only the block tables.  The 4K blocks themselves are
+   	 * shared between memory and the snapshot, and a block is copied the first time
+   	 * it is stored into afterwards, so the cost of a snapshot grows with the amount
+   	 * of memory later modified rather than the amount in use.
+   	 * @return snapshot of memory
+   	 */
+       public synchronized MemorySnapshot snapshot() {
+         MemorySnapshot snapshot = new MemorySnapshot();
+         snapshot.dataBlockTable = (int[][]) shareBlockTable(dataBlockTable, dataBlockShared);
+         snapshot.kernelDataBlockTable = (int[][]) shareBlockTable(kernelDataBlockTable, kernelDataBlockShared);
+         snapshot.stackBlockTable = (int[][]) shareBlockTable(stackBlockTable, stackBlockShared);
+         snapshot.memoryMapBlockTable = (int[][]) shareBlockTable(memoryMapBlockTable, memoryMapBlockShared);
+         snapshot.textBlockTable = (ProgramStatement[][]) shareBlockTable(textBlockTable, textBlockShared);
+         snapshot.kernelTextBlockTable = (ProgramStatement[][]) shareBlockTable(kernelTextBlockTable, kernelTextBlockShared);
+         snapshot.heapAddress = heapAddress;
+         sharedBlocks = true;
+         return snapshot;
+      }
+   
+   	/**
+   	 * Replace the contents of MIPS memory with those captured by snapshot().  The
+   	 * snapshot is unchanged and may be restored again; like snapshot() this shares
+   	 * blocks rather than copying them.  Observers are not notified.  The text
+   	 * segment version changes only if the text segments differ from the snapshot's,
+   	 * so predecoded text survives restoring the same program over and over.
+   	 * @param snapshot snapshot previously returned by snapshot()
+   	 */
+       public synchronized void restore(MemorySnapshot snapshot) {
+         boolean textChanged = !sameBlocks(textBlockTable, snapshot.textBlockTable) ||
+                               !sameBlocks(kernelTextBlockTable, snapshot.kernelTextBlockTable);
+         dataBlockTable = (int[][]) shareBlockTable(snapshot.dataBlockTable, dataBlockShared);
+         kernelDataBlockTable = (int[][]) shareBlockTable(snapshot.kernelDataBlockTable, kernelDataBlockShared);
+         stackBlockTable = (int[][]) shareBlockTable(snapshot.stackBlockTable, stackBlockShared);
+         memoryMapBlockTable = (int[][]) shareBlockTable(snapshot.memoryMapBlockTable, memoryMapBlockShared);
+         textBlockTable = (ProgramStatement[][]) shareBlockTable(snapshot.textBlockTable, textBlockShared);
+         kernelTextBlockTable = (ProgramStatement[][]) shareBlockTable(snapshot.kernelTextBlockTable, kernelTextBlockShared);
+         heapAddress = snapshot.heapAddress;
+         sharedBlocks = true;
+         if (textChanged) {
+            textSegmentVersion++;
+         }
+      }
+   
+      // Copy a block table (not its blocks), marking every allocated block as shared.
+       private static Object[] shareBlockTable(Object[] table, boolean[] shared) {
+         for (int i=0; i<table.length; i++) {
+            shared[i] = (table[i] != null);
+         }
+         return (Object[]) table.clone();
+      }
+   
+      // True if both tables hold the very same blocks.  Since shared blocks are copied
+   	// before being stored into, this means their contents are the same.
+       private static boolean sameBlocks(Object[] table, Object[] other) {
+         for (int i=0; i<table.length; i++) {
+            if (table[i] != other[i]) {
+               return false;
+            }
+         }
+         return true;
+      }
+   
+      // The shared-block flags that go with the given block table.
+       private boolean[] sharedFlagsFor(Object[] blockTable) {
+         if (blockTable == dataBlockTable) 
+            return dataBlockShared;
+         if (blockTable == stackBlockTable) 
+            return stackBlockShared;
+         if (blockTable == kernelDataBlockTable) 
+            return kernelDataBlockShared;
+         if (blockTable == memoryMapBlockTable) 
+            return memoryMapBlockShared;
+         if (blockTable == textBlockTable) 
+            return textBlockShared;
+         return kernelTextBlockShared;
+      }
+   
+      // Give a table its own copy of the given block if a snapshot may also hold it.
+   	// Called before storing into an allocated block once any snapshot has been taken.
+       private void unshareBlock(Object[] blockTable, int block) {
+         boolean[] shared = sharedFlagsFor(blockTable);
+         if (shared[block]) {
+            if (blockTable instanceof int[][]) {
+               blockTable[block] = ((int[]) blockTable[block]).clone();
+            } 
+            else {
+               blockTable[block] = ((ProgramStatement[]) blockTable[block]).clone();
+            }
+            shared[block] = false;
+         }
+      }
+   
    	/**
    	 * Returns the next available word-aligned heap address.  There is no recycling and
    	 * no heap management!  There is however nearly 4MB of heap space available in Mars.
@@ -479,7 +609,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          notifyAnyObservers(AccessNotice.WRITE, address, WORD_LENGTH_BYTES, value);
          if (Globals.getSettings().getBackSteppingEnabled()) {
-            Globals.program.getBackStepper().addMemoryRestoreRawWord(address,oldValue);
+            MachineContext.current().getProgram().getBackStepper().addMemoryRestoreRawWord(address,oldValue);
          }
          return oldValue;
       }
@@ -500,9 +630,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                "store address not aligned on word boundary ",
                Exceptions.ADDRESS_EXCEPTION_STORE,address);
          }
+         int oldValue;
+         // As in getWord, a little-endian word in the data segment or stack is stored whole.
+         if (byteOrder == LITTLE_ENDIAN && inDataSegment(address)) {
+            oldValue = storeWordInTable(dataBlockTable, (address - dataSegmentBaseAddress) >> 2, value);
+            notifyAnyObservers(AccessNotice.WRITE, address, WORD_LENGTH_BYTES, value);
+         } 
+         else if (byteOrder == LITTLE_ENDIAN && address > stackLimitAddress && address <= stackBaseAddress) {
+            oldValue = storeWordInTable(stackBlockTable, (stackBaseAddress - address) >> 2, value);
+            notifyAnyObservers(AccessNotice.WRITE, address, WORD_LENGTH_BYTES, value);
+         } 
+         else {
+            oldValue = set(address, value, WORD_LENGTH_BYTES);
+         }
          return (Globals.getSettings().getBackSteppingEnabled())
-            ? Globals.program.getBackStepper().addMemoryRestoreWord(address,set(address, value, WORD_LENGTH_BYTES))
-            : set(address, value, WORD_LENGTH_BYTES);
+            ? MachineContext.current().getProgram().getBackStepper().addMemoryRestoreWord(address, oldValue)
+            : oldValue;
       }
    
    
@@ -522,7 +665,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                Exceptions.ADDRESS_EXCEPTION_STORE, address);
          }
          return (Globals.getSettings().getBackSteppingEnabled())
-            ? Globals.program.getBackStepper().addMemoryRestoreHalf(address,set(address,value,2))
+            ? MachineContext.current().getProgram().getBackStepper().addMemoryRestoreHalf(address,set(address,value,2))
             : set(address, value, 2);
       }
    
@@ -537,7 +680,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      
        public int setByte(int address, int value) throws AddressErrorException {
          return (Globals.getSettings().getBackSteppingEnabled())
-            ? Globals.program.getBackStepper().addMemoryRestoreByte(address,set(address,value,1))
+            ? MachineContext.current().getProgram().getBackStepper().addMemoryRestoreByte(address,set(address,value,1))
             : set(address, value, 1);
       }
    
@@ -825,6 +968,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("fetch address not aligned on word boundary ",
                Exceptions.ADDRESS_EXCEPTION_LOAD, address);
          }
+         // A little-endian word is stored as is, so it can be fetched whole from the
+      	// data segment or stack rather than a byte at a time.
+         if (byteOrder == LITTLE_ENDIAN) {
+            int value;
+            if (inDataSegment(address)) {
+               value = fetchWordFromTable(dataBlockTable, (address - dataSegmentBaseAddress) >> 2);
+            } 
+            else if (address > stackLimitAddress && address <= stackBaseAddress) {
+               value = fetchWordFromTable(stackBlockTable, (stackBaseAddress - address) >> 2);
+            } 
+            else {
+               return get(address, WORD_LENGTH_BYTES, true);
+            }
+            notifyAnyObservers(AccessNotice.READ, address, WORD_LENGTH_BYTES, value);
+            return value;
+         }
          return get(address, WORD_LENGTH_BYTES, true);
       }   
    
@@ -875,6 +1034,151 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public int getByte(int address) throws AddressErrorException {
          return get(address, 1);
       }
+
+   ///////////////////////////////////////////////////////////////////////////////////////
+   /**
+    *  Reads the null-terminated string starting at the specified address, one character
+    *  per byte.  Equivalent to calling getByte() on successive addresses until a zero
+    *  byte is read, but in the data and kernel data segments the bytes of pages that no
+    *  observer watches are scanned directly from the block table, a block at a time.
+    *  Observed bytes are read with getByte(), so observers are notified as before.
+    *
+    *  @param address Address of the first byte of the string.
+    *  @param string Receives the characters of the string, not including the terminating
+    *  zero byte.  If an exception is thrown, holds the characters read before it.
+    *  @throws AddressErrorException If a byte of the string, or its terminator, is at an
+    *  address that cannot be read.
+    **/
+       public void getNullTerminatedString(int address, StringBuffer string) throws AddressErrorException {
+         while (true) {
+            int[][] blockTable = directBlockTable(address);
+            if (blockTable == null) {
+               int ch = getByte(address);
+               if (ch == 0) {
+                  return;
+               }
+               string.append((char) ch);
+               address++;
+               continue;
+            }
+            int length = directRunLength(blockTable, address, Integer.MAX_VALUE);
+            int scanned = scanBytesInTable(blockTable, directRelativeAddress(blockTable, address), length, string);
+            if (scanned < length) {
+               return;
+            }
+            address += length;
+         }
+      }
+   
+    /**
+     *  Reads the null-terminated string starting at the specified address.
+     *  @param address Address of the first byte of the string.
+     *  @return the string, not including the terminating zero byte.
+     *  @throws AddressErrorException If a byte of the string, or its terminator, is at an
+     *  address that cannot be read.
+     *  @see #getNullTerminatedString(int, StringBuffer)
+     **/
+       public String getNullTerminatedString(int address) throws AddressErrorException {
+         StringBuffer string = new StringBuffer();
+         getNullTerminatedString(address, string);
+         return string.toString();
+      }
+   
+   ///////////////////////////////////////////////////////////////////////////////////////
+   /**
+    *  Reads consecutive bytes of memory into an array.  Equivalent to calling getByte()
+    *  for each address in turn, but in the data and kernel data segments the bytes of
+    *  pages that no observer watches are copied directly from the block table, a block
+    *  at a time.  Observed bytes are read with getByte(), so observers are notified as
+    *  before.
+    *
+    *  @param address Address of the first byte to read.
+    *  @param buffer Receives the bytes.  If an exception is thrown, holds the bytes read
+    *  before it.
+    *  @param offset Index in buffer of the first byte.
+    *  @param length Number of bytes to read.
+    *  @throws AddressErrorException If a byte is at an address that cannot be read.
+    **/
+       public void readBytes(int address, byte[] buffer, int offset, int length) throws AddressErrorException {
+         int end = offset + length;
+         while (offset < end) {
+            int[][] blockTable = directBlockTable(address);
+            if (blockTable == null) {
+               buffer[offset++] = (byte) getByte(address++);
+               continue;
+            }
+            int run = directRunLength(blockTable, address, end - offset);
+            copyBytesInTable(blockTable, address, buffer, offset, run, FETCH, null);
+            address += run;
+            offset += run;
+         }
+      }
+   
+   ///////////////////////////////////////////////////////////////////////////////////////
+   /**
+    *  Writes consecutive bytes of an array into memory.  Equivalent to calling setByte()
+    *  for each address in turn, but in the data and kernel data segments the bytes of
+    *  pages that no observer watches are copied directly into the block table, a block
+    *  at a time.  If backstepping is enabled, the old contents of each word written
+    *  directly are recorded for it.  Observed bytes are written with setByte(), so
+    *  observers are notified as before.
+    *
+    *  @param address Address of the first byte to write.
+    *  @param buffer Holds the bytes.
+    *  @param offset Index in buffer of the first byte.
+    *  @param length Number of bytes to write.
+    *  @throws AddressErrorException If a byte is at an address that cannot be written.
+    *  The bytes before it have been written.
+    **/
+       public void writeBytes(int address, byte[] buffer, int offset, int length) throws AddressErrorException {
+         BackStepper backStepper = (Globals.getSettings().getBackSteppingEnabled())
+            ? MachineContext.current().getProgram().getBackStepper() : null;
+         int end = offset + length;
+         while (offset < end) {
+            int[][] blockTable = directBlockTable(address);
+            if (blockTable == null) {
+               setByte(address++, buffer[offset++]);
+               continue;
+            }
+            int run = directRunLength(blockTable, address, end - offset);
+            copyBytesInTable(blockTable, address, buffer, offset, run, STORE, backStepper);
+            address += run;
+            offset += run;
+         }
+      }
+   
+      // Helpers for the bulk accesses.  Bytes of the data and kernel data segments, whose
+   	// addresses run forward through their block tables, may be accessed straight from the
+   	// table when their page is not observed.  Other bytes are accessed one at a time.
+   
+      // Block table in which address may be accessed directly, or null if it may not.
+       private int[][] directBlockTable(int address) {
+         if (observedPages.get(address >>> OBSERVED_PAGE_SHIFT)) {
+            return null;
+         }
+         if (inDataSegment(address)) {
+            return dataBlockTable;
+         }
+         if (inKernelDataSegment(address)) {
+            return kernelDataBlockTable;
+         }
+         return null;
+      }
+   
+       private int directRelativeAddress(int[][] blockTable, int address) {
+         return address - ((blockTable == dataBlockTable) ? dataSegmentBaseAddress : kernelDataBaseAddress);
+      }
+   
+      // Number of bytes, at most length, that may be accessed directly starting at address:
+   	// up to the end of its block, its page or its segment, whichever is first.
+       private int directRunLength(int[][] blockTable, int address, int length) {
+         int blockBytes = BLOCK_LENGTH_WORDS * WORD_LENGTH_BYTES;
+         int pageBytes = 1 << OBSERVED_PAGE_SHIFT;
+         int limitAddress = (blockTable == dataBlockTable) ? dataSegmentLimitAddress : kernelDataSegmentLimitAddress;
+         length = Math.min(length, blockBytes - directRelativeAddress(blockTable, address) % blockBytes);
+         length = Math.min(length, pageBytes - (address & (pageBytes - 1)));
+         return Math.min(length, limitAddress - address);
+      }
    
    ////////////////////////////////////////////////////////////////////////////////
    /**
@@ -1119,6 +1423,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                Exceptions.ADDRESS_EXCEPTION_LOAD, startAddr);
          }
          observables.add(new MemoryObservable(obs, startAddr, endAddr));
+         indexObservedPages();
       }
    
       /**
@@ -1128,15 +1433,50 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return observables.size();
       }
    
+      /**
+   	 *  Determine whether any observer is registered for an address range that
+   	 *  overlaps the given range.  The simulator uses this to decide whether it
+   	 *  may skip the per-instruction text segment fetch (which notifies observers).
+   	 *  @param lowAddress low end of the address range
+   	 *  @param highAddress high end of the address range
+   	 *  @return true if at least one observer would be notified of some access in the range
+   	 */
+       public boolean hasObserversInRange(int lowAddress, int highAddress) {
+         Iterator it = observables.iterator();
+         while (it.hasNext()) {
+            MemoryObservable mo = (MemoryObservable) it.next();
+            if (mo.countObservers() > 0 && mo.overlaps(lowAddress, highAddress)) {
+               return true;
+            }
+         }
+         return false;
+      }
+   
+      /**
+   	 *  Returns the text segment version number.  It changes every time a statement
+   	 *  is stored into the user or kernel text segment, and every time memory is cleared.
+   	 *  Holders of predecoded copies of the text segment compare it to detect changes.
+   	 *  @return current text segment version
+   	 */
+       public int getTextSegmentVersion() {
+         return textSegmentVersion;
+      }
+   
    	/**
-   	 *  Remove specified memory observers
+   	 *  Remove specified memory observers.  Address ranges left with no observer
+   	 *  are dropped, so observers may come and go without the list growing.
    	 *  @param obs  Observer to be removed
    	 */   		
        public void deleteObserver(Observer obs) {
          Iterator it = observables.iterator();
          while (it.hasNext()) {
-            ((MemoryObservable)it.next()).deleteObserver(obs);
+            MemoryObservable mo = (MemoryObservable)it.next();
+            mo.deleteObserver(obs);
+            if (mo.countObservers() == 0) {
+               it.remove();
+            }
          }	
+         indexObservedPages();
       }
    	
    	/**
@@ -1145,6 +1485,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void deleteObservers() {
          // just drop the collection
          observables = getNewMemoryObserversCollection();
+         observedPages = new BitSet();
+         observerVersion++;
+      }
+   
+      /**
+   	 *  Returns the observer version number.  It changes every time an observer is
+   	 *  added or removed, so the simulator can tell when to look at observers again.
+   	 *  @return current observer version
+   	 */
+       public int getObserverVersion() {
+         return observerVersion;
       }
    	
    	/**
@@ -1171,6 +1522,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        private Collection getNewMemoryObserversCollection() {
          return new Vector();  // Vectors are thread-safe
       }
+   
+      // Rebuild the observed page index from the current observables.  A new BitSet
+   	// is built then swapped in so the simulator thread never sees a partial index.
+       private void indexObservedPages() {
+         BitSet pages = new BitSet();
+         Iterator it = observables.iterator();
+         while (it.hasNext()) {
+            MemoryObservable mo = (MemoryObservable)it.next();
+            if (mo.countObservers() > 0) {
+               mo.markPages(pages);
+            }
+         }
+         observedPages = pages;
+         observerVersion++;
+      }
    		
        /////////////////////////////////////////////////////////////////////////
        // Private class whose objects will represent an observable-observer pair 
@@ -1187,6 +1553,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           public boolean match(int address) {
             return (address >= lowAddress && address <= highAddress-1+WORD_LENGTH_BYTES);
          }
+      
+          public boolean overlaps(int low, int high) {
+            return (low <= highAddress-1+WORD_LENGTH_BYTES && high >= lowAddress);
+         }
+      	
+          public void markPages(BitSet pages) {
+            pages.set(lowAddress >>> OBSERVED_PAGE_SHIFT, 
+                      ((highAddress-1+WORD_LENGTH_BYTES) >>> OBSERVED_PAGE_SHIFT) + 1);
+         }
       	
           public void notifyObserver(MemoryAccessNotice notice) {
             this.setChanged();
@@ -1220,14 +1595,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    //
    // The "|| Globals.getGui()==null" is a hack added 19 July 2012 DPS.  IF MIPS simulation
    // is from command mode, Globals.program is null but still want ability to observe.
+   //
+   // Accesses to pages nobody observes return after the observedPages test.  Otherwise
+   // a single notice is created and shared by all matching observables; notices are
+   // immutable so this is safe.
        private void notifyAnyObservers(int type, int address, int length, int value) {
+         if (!observedPages.get(address >>> OBSERVED_PAGE_SHIFT)) {
+            return;
+         }
          if ((Globals.program != null || Globals.getGui()==null) && this.observables.size() > 0) {
             Iterator it = this.observables.iterator();
             MemoryObservable mo;
+            MemoryAccessNotice notice = null;
             while (it.hasNext()) {
                mo = (MemoryObservable)it.next();
                if (mo.match(address)) {
-                  mo.notifyObserver(new MemoryAccessNotice(type, address, length, value));
+                  if (notice == null) {
+                     notice = new MemoryAccessNotice(type, address, length, value);
+                  }
+                  mo.notifyObserver(notice);
                }
             }
          } 		
@@ -1269,7 +1655,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    // client using STORE or FETCH in last arg.
    // Modified 29 Dec 2005 to return old value of replaced bytes, for STORE.
    //
-       private synchronized int storeOrFetchBytesInTable(int [][] blockTable, 
+       private int storeOrFetchBytesInTable(int [][] blockTable, 
+                                   int relativeByteAddress, int length, int value, boolean op) {
+         if (Globals.singleOwnerExecution) {
+            return storeOrFetchBytesInTableUnlocked(blockTable, relativeByteAddress, length, value, op);
+         }
+         synchronized (this) {
+            return storeOrFetchBytesInTableUnlocked(blockTable, relativeByteAddress, length, value, op);
+         }
+      }
+   
+       private int storeOrFetchBytesInTableUnlocked(int [][] blockTable, 
                                    int relativeByteAddress, int length, int value, boolean op) {
          int relativeWordAddress, block, offset, bytePositionInMemory, bytePositionInValue;
          int oldValue = 0; // for STORE, return old values of replaced bytes
@@ -1298,6 +1694,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                else 
                   return 0;
             }
+            else if (op == STORE && sharedBlocks) {
+               unshareBlock(blockTable, block);
+            }
             if (byteOrder == LITTLE_ENDIAN) bytePositionInMemory = 3 - bytePositionInMemory;
             if (op == STORE) {
                oldValue = replaceByte(blockTable[block][offset], bytePositionInMemory,
@@ -1314,6 +1713,104 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return (op == STORE)	? oldValue : value;
       }	
    
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method for readBytes and writeBytes.  Copies length bytes between the buffer,
+   // starting at offset, and the table, starting at the given address, in the direction
+   // given by op.  The range must lie within one block.  An unallocated block reads as
+   // zeros and is allocated by a store.  If backStepper is not null, each word stored
+   // into has its old value recorded there.
+   //
+       private void copyBytesInTable(int[][] blockTable, int address, byte[] buffer, int offset, int length,
+                                     boolean op, BackStepper backStepper) {
+         if (Globals.singleOwnerExecution) {
+            copyBytesInTableUnlocked(blockTable, address, buffer, offset, length, op, backStepper);
+            return;
+         }
+         synchronized (this) {
+            copyBytesInTableUnlocked(blockTable, address, buffer, offset, length, op, backStepper);
+         }
+      }
+   
+       private void copyBytesInTableUnlocked(int[][] blockTable, int address, byte[] buffer, int offset, int length,
+                                             boolean op, BackStepper backStepper) {
+         int relativeByteAddress = directRelativeAddress(blockTable, address);
+         int relativeWordAddress = relativeByteAddress >> 2;
+         int block = relativeWordAddress / BLOCK_LENGTH_WORDS;
+         if (blockTable[block] == null) {
+            if (op == FETCH) {
+               Arrays.fill(buffer, offset, offset + length, (byte) 0);
+               return;
+            }
+            blockTable[block] = new int[BLOCK_LENGTH_WORDS];
+         } 
+         else if (op == STORE && sharedBlocks) {
+            unshareBlock(blockTable, block);
+         }
+         int[] words = blockTable[block];
+         int word = relativeWordAddress % BLOCK_LENGTH_WORDS;
+         int bytePosition = relativeByteAddress % WORD_LENGTH_BYTES;
+         int wordAddress = address - bytePosition;
+         int start = offset;
+         for (int end = offset + length; offset < end; offset++) {
+            int shift = (byteOrder == LITTLE_ENDIAN) ? bytePosition << 3 : (3 - bytePosition) << 3;
+            if (op == STORE) {
+               if (backStepper != null && (bytePosition == 0 || offset == start)) {
+                  backStepper.addMemoryRestoreRawWord(wordAddress, words[word]);
+               }
+               words[word] = (words[word] & ~(0xFF << shift)) | ((buffer[offset] & 0xFF) << shift);
+            } 
+            else {
+               buffer[offset] = (byte) (words[word] >>> shift);
+            }
+            if (++bytePosition == WORD_LENGTH_BYTES) {
+               bytePosition = 0;
+               word++;
+               wordAddress += WORD_LENGTH_BYTES;
+            }
+         }
+      }
+   
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method for getNullTerminatedString.  Appends to string the bytes of at most
+   // length consecutive bytes of the table, starting at relativeByteAddress, stopping at
+   // the first zero byte.  Returns the number of bytes appended, so a return of less than
+   // length means a zero byte was found.  The range must lie within one block.  An
+   // unallocated block reads as zero.  Not for the stack, whose addresses run backward.
+   //
+       private int scanBytesInTable(int[][] blockTable, int relativeByteAddress, int length, StringBuffer string) {
+         if (Globals.singleOwnerExecution) {
+            return scanBytesInTableUnlocked(blockTable, relativeByteAddress, length, string);
+         }
+         synchronized (this) {
+            return scanBytesInTableUnlocked(blockTable, relativeByteAddress, length, string);
+         }
+      }
+   
+       private int scanBytesInTableUnlocked(int[][] blockTable, int relativeByteAddress, int length, StringBuffer string) {
+         int relativeWordAddress = relativeByteAddress >> 2;
+         int[] words = blockTable[relativeWordAddress / BLOCK_LENGTH_WORDS];
+         if (words == null) {
+            return 0;
+         }
+         int offset = relativeWordAddress % BLOCK_LENGTH_WORDS;
+         int bytePosition = relativeByteAddress % WORD_LENGTH_BYTES;
+         for (int count = 0; count < length; count++) {
+            int shift = (byteOrder == LITTLE_ENDIAN) ? bytePosition << 3 : (3 - bytePosition) << 3;
+            int ch = (words[offset] >>> shift) & 0xFF;
+            if (ch == 0) {
+               return count;
+            }
+            string.append((char) ch);
+            if (++bytePosition == WORD_LENGTH_BYTES) {
+               bytePosition = 0;
+               offset++;
+            }
+         }
+         return length;
+      }
+   
    ////////////////////////////////////////////////////////////////////////////////
    //
    // Helper method to store 4 byte value in table that represents MIPS memory.
@@ -1321,8 +1818,19 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    // Both use different tables but same storage method and same table size
    // and block size.  Assumes address is word aligned, no endian processing.
    // Modified 29 Dec 2005 to return overwritten value.
+   // Each table helper has one body, its ...Unlocked method, and takes this Memory's
+   // lock around it unless Globals.singleOwnerExecution is set.
          
-       private synchronized int storeWordInTable(int[][] blockTable, int relative, int value) {
+       private int storeWordInTable(int[][] blockTable, int relative, int value) {
+         if (Globals.singleOwnerExecution) {
+            return storeWordInTableUnlocked(blockTable, relative, value);
+         }
+         synchronized (this) {
+            return storeWordInTableUnlocked(blockTable, relative, value);
+         }
+      }
+   
+       private int storeWordInTableUnlocked(int[][] blockTable, int relative, int value) {
          int  block, offset, oldValue;
          block = relative / BLOCK_LENGTH_WORDS;
          offset = relative % BLOCK_LENGTH_WORDS; 
@@ -1330,6 +1838,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                // First time writing to this block, so allocate the space.
             blockTable[block] = new int[BLOCK_LENGTH_WORDS];
          }
+         else if (sharedBlocks) {
+            unshareBlock(blockTable, block);
+         }
          oldValue = blockTable[block][offset];
          blockTable[block][offset] = value;
          return oldValue;
@@ -1343,7 +1854,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    // and block size.  Assumes word alignment, no endian processing.
    //
    
-       private synchronized int fetchWordFromTable(int[][] blockTable, int relative) {
+       private int fetchWordFromTable(int[][] blockTable, int relative) {
+         if (Globals.singleOwnerExecution) {
+            return fetchWordFromTableUnlocked(blockTable, relative);
+         }
+         synchronized (this) {
+            return fetchWordFromTableUnlocked(blockTable, relative);
+         }
+      }
+   
+       private int fetchWordFromTableUnlocked(int[][] blockTable, int relative) {
          int value = 0;
          int block, offset;
          block = relative / BLOCK_LENGTH_WORDS;
@@ -1418,11 +1938,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int relative = (address - baseAddress) >> 2; // convert byte address to words
          int block = relative / BLOCK_LENGTH_WORDS;
          int offset = relative % BLOCK_LENGTH_WORDS; 
+         textSegmentVersion++;
          if (block < TEXT_BLOCK_TABLE_LENGTH) {
             if (blockTable[block] == null) {
                // No instructions are stored in this block, so allocate the block.
                blockTable[block] = new ProgramStatement[BLOCK_LENGTH_WORDS];
             }
+            else if (sharedBlocks) {
+               unshareBlock(blockTable, block);
+            }
             blockTable[block][offset] = statement;
          }
       }
@@ -0,0 +1,92 @@
+   package mars.mips.hardware;
+
+/**
+ * A batch of MIPS memory access records delivered by a MemoryAccessStream.
+ * Records are held in parallel primitive arrays rather than as AccessNotice
+ * objects.  A batch object is reused by its stream, so a listener must copy
+ * out anything it wants to keep before returning.
+ *
+ * @see MemoryAccessStream
+ */
+
+    public class MemoryAccessBatch {
+      int[] types;
+      int[] addresses;
+      int[] lengths;
+      int[] values;
+      int[] programCounters;
+      int size;
+      int dropped;
+
+       MemoryAccessBatch(int capacity) {
+         types = new int[capacity];
+         addresses = new int[capacity];
+         lengths = new int[capacity];
+         values = new int[capacity];
+         programCounters = new int[capacity];
+      }
+
+    /**
+     * Number of access records in this batch.
+     * @return record count
+     */
+       public int size() {
+         return size;
+      }
+
+    /**
+     * Access type of the given record.
+     * @param i record index, 0 to size()-1
+     * @return AccessNotice.READ or AccessNotice.WRITE
+     */
+       public int getAccessType(int i) {
+         return types[i];
+      }
+
+    /**
+     * Memory address of the given record.
+     * @param i record index, 0 to size()-1
+     * @return address accessed
+     */
+       public int getAddress(int i) {
+         return addresses[i];
+      }
+
+    /**
+     * Length in bytes of the given record.
+     * @param i record index, 0 to size()-1
+     * @return 1, 2 or 4
+     */
+       public int getLength(int i) {
+         return lengths[i];
+      }
+
+    /**
+     * Value read or written by the given record.
+     * @param i record index, 0 to size()-1
+     * @return the value
+     */
+       public int getValue(int i) {
+         return values[i];
+      }
+
+    /**
+     * Program counter at the time of the given access.  For loads and stores it has
+     * already been incremented past the executing instruction; for instruction fetches
+     * it is the address being fetched.
+     * @param i record index, 0 to size()-1
+     * @return program counter value
+     */
+       public int getProgramCounter(int i) {
+         return programCounters[i];
+      }
+
+    /**
+     * Number of accesses that were not recorded, because the stream was full or
+     * sampling, since the previous batch was delivered.
+     * @return count of accesses not recorded
+     */
+       public int getDroppedCount() {
+         return dropped;
+      }
+   }
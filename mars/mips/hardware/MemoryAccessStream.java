@@ -0,0 +1,216 @@
+   package mars.mips.hardware;
+   import mars.*;
+   import java.util.*;
+
+/**
+ * Delivers MIPS memory accesses to a listener in batches, on a thread of its own,
+ * instead of one AccessNotice at a time on the simulator thread.  This lets a tool
+ * that does slow work per access (drawing, cache modeling) fall behind the running
+ * MIPS program instead of slowing it down.
+ * <p>
+ * The stream registers with Memory as an ordinary Observer of one or more address
+ * ranges.  Each access made by the executing MIPS program (accesses from the GUI or
+ * other threads are ignored) is copied into a bounded ring buffer of primitive records.
+ * A consumer thread removes records in batches and passes them to the listener.
+ * When the buffer is full the stream follows its policy:
+ * <ul>
+ * <li>BLOCK: the simulator waits for the consumer to make room.  Nothing is lost but
+ * the MIPS program runs no faster than the listener.  The listener must not lock
+ * Globals.memoryAndRegistersLock, which the simulator may be holding.</li>
+ * <li>DROP: new accesses are discarded until there is room.</li>
+ * <li>SAMPLE: once the buffer is half full only every SAMPLE_INTERVAL-th access is
+ * recorded, and accesses are discarded when it is full.</li>
+ * </ul>
+ * Discarded accesses are counted and reported with the next batch.  A stream cannot be
+ * reconnected after it is disconnected; create a new one.
+ *
+ * @see MemoryAccessBatch
+ */
+
+    public class MemoryAccessStream implements Observer {
+
+    /** Full-buffer policy: make the simulator wait. */
+      public static final int BLOCK = 0;
+    /** Full-buffer policy: discard new accesses. */
+      public static final int DROP = 1;
+    /** Full-buffer policy: record a sample of accesses once half full, discard when full. */
+      public static final int SAMPLE = 2;
+    /** Under the SAMPLE policy, one access in this many is recorded while the buffer is at least half full. */
+      public static final int SAMPLE_INTERVAL = 16;
+    /** Default number of records the ring buffer holds. */
+      public static final int DEFAULT_CAPACITY = 65536;
+    /** Maximum number of records delivered in one batch. */
+      public static final int BATCH_CAPACITY = 4096;
+
+    /**
+     * Receiver of batched memory accesses.  Called on the stream's consumer thread,
+     * never on the simulator thread or the AWT event thread.
+     */
+       public interface Listener {
+       /**
+        * Process a batch of accesses.  The batch is reused after this returns.
+        * @param batch the accesses, oldest first
+        */
+          public void accessesOccurred(MemoryAccessBatch batch);
+      }
+
+      private Listener listener;
+      private int policy;
+      private int capacity;
+      private int[] types, addresses, lengths, values, programCounters;
+      private int head = 0;   // index of oldest record
+      private int count = 0;  // number of records in the buffer
+      private int dropped = 0;
+      private int sampleCounter = 0;
+      private boolean closed = false;
+      private Thread consumer = null;
+
+    /**
+     * Create a stream with the default capacity.
+     * @param listener receiver of the batches
+     * @param policy BLOCK, DROP or SAMPLE
+     */
+       public MemoryAccessStream(Listener listener, int policy) {
+         this(listener, policy, DEFAULT_CAPACITY);
+      }
+
+    /**
+     * Create a stream.
+     * @param listener receiver of the batches
+     * @param policy BLOCK, DROP or SAMPLE
+     * @param capacity number of records the ring buffer holds
+     */
+       public MemoryAccessStream(Listener listener, int policy, int capacity) {
+         if (policy != BLOCK && policy != DROP && policy != SAMPLE || capacity < 1) {
+            throw new IllegalArgumentException();
+         }
+         this.listener = listener;
+         this.policy = policy;
+         this.capacity = capacity;
+         types = new int[capacity];
+         addresses = new int[capacity];
+         lengths = new int[capacity];
+         values = new int[capacity];
+         programCounters = new int[capacity];
+      }
+
+    /**
+     * Start receiving accesses to the given range of MIPS memory.  May be called more
+     * than once to observe several ranges.  See Memory.addObserver() for the range rules.
+     * @param lowAddress low end of memory address range, on word boundary
+     * @param highAddress high end of memory address range, on word boundary
+     * @throws AddressErrorException if the range is not valid
+     */
+       public synchronized void connect(int lowAddress, int highAddress) throws AddressErrorException {
+         if (closed) {
+            throw new IllegalStateException("stream has been disconnected");
+         }
+         Globals.memory.addObserver(this, lowAddress, highAddress);
+         if (consumer == null) {
+            consumer = new Thread(
+                   new Runnable() {
+                      public void run() {
+                        deliver();
+                     }
+                  }, "MemoryAccessStream");
+            consumer.setDaemon(true);
+            consumer.start();
+         }
+      }
+
+    /**
+     * Stop receiving accesses.  Records already buffered are still delivered, after
+     * which the consumer thread ends.
+     */
+       public void disconnect() {
+         Globals.memory.deleteObserver(this);
+         synchronized (this) {
+            closed = true;
+            notifyAll();
+         }
+      }
+
+    /**
+     * Required by Observer interface.  Records accesses made by the executing MIPS program.
+     * @param memory the Observable delegate of Memory
+     * @param notice the MemoryAccessNotice
+     */
+       public void update(Observable memory, Object notice) {
+         if (notice instanceof MemoryAccessNotice && ((AccessNotice) notice).accessIsFromMIPS()) {
+            MemoryAccessNotice man = (MemoryAccessNotice) notice;
+            record(man.getAccessType(), man.getAddress(), man.getLength(), man.getValue(),
+                   RegisterFile.getProgramCounterRegister().getValueNoNotify());
+         }
+      }
+
+      // Producer side, called on the simulator thread.
+       private synchronized void record(int type, int address, int length, int value, int programCounter) {
+         if (closed) {
+            return;
+         }
+         if (policy == SAMPLE && count >= capacity / 2 && ++sampleCounter % SAMPLE_INTERVAL != 0) {
+            dropped++;
+            return;
+         }
+         while (count == capacity) {
+            if (policy != BLOCK || closed) {
+               dropped++;
+               return;
+            }
+            try {
+               wait();
+            }
+                catch (InterruptedException e) {
+                  dropped++;
+                  return;
+               }
+         }
+         int tail = (head + count) % capacity;
+         types[tail] = type;
+         addresses[tail] = address;
+         lengths[tail] = length;
+         values[tail] = value;
+         programCounters[tail] = programCounter;
+         count++;
+         if (count == 1) {
+            notifyAll(); // consumer may be waiting for the buffer to become non-empty
+         }
+      }
+
+      // Consumer side.  Copy a batch out of the ring buffer while holding the lock, then
+   	// give it to the listener without the lock so the simulator can keep recording.
+       private void deliver() {
+         MemoryAccessBatch batch = new MemoryAccessBatch(Math.min(capacity, BATCH_CAPACITY));
+         while (true) {
+            synchronized (this) {
+               while (count == 0 && !closed) {
+                  try {
+                     wait();
+                  }
+                      catch (InterruptedException e) {
+                        return;
+                     }
+               }
+               if (count == 0) {
+                  return; // closed and drained
+               }
+               int n = Math.min(count, batch.types.length);
+               for (int i = 0; i < n; i++) {
+                  int from = (head + i) % capacity;
+                  batch.types[i] = types[from];
+                  batch.addresses[i] = addresses[from];
+                  batch.lengths[i] = lengths[from];
+                  batch.values[i] = values[from];
+                  batch.programCounters[i] = programCounters[from];
+               }
+               batch.size = n;
+               batch.dropped = dropped;
+               dropped = 0;
+               head = (head + n) % capacity;
+               count -= n;
+               notifyAll(); // simulator may be waiting for room
+            }
+            listener.accessesOccurred(batch);
+         }
+      }
+   }
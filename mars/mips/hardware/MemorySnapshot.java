@@ -0,0 +1,28 @@
+   package mars.mips.hardware;
+   import mars.*;
+
+/**
+ * The contents of MIPS memory at some moment, as captured by Memory.snapshot().
+ * It can be given back to Memory.restore() any number of times.  Its contents
+ * are not otherwise accessible.
+ * <p>
+ * A snapshot holds its own block tables but shares the 4K blocks they point to with
+ * Memory, and with other snapshots, until Memory stores into them.  The blocks
+ * referenced here are never modified.
+ *
+ * @see Memory#snapshot()
+ * @see Memory#restore(MemorySnapshot)
+ */
+
+    public class MemorySnapshot {
+      int[][] dataBlockTable;
+      int[][] kernelDataBlockTable;
+      int[][] stackBlockTable;
+      int[][] memoryMapBlockTable;
+      ProgramStatement[][] textBlockTable;
+      ProgramStatement[][] kernelTextBlockTable;
+      int heapAddress;
+   
+       MemorySnapshot() {
+      }
+   }
@@ -44,6 +44,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// are the only methods here used by the register collection
    	// (RegisterFile, Coprocessor0, Coprocessor1) methods. 
       private volatile int value;
+   	// True while at least one Observer is attached.  Lets every register access
+   	// skip Observable's synchronized countObservers() in the usual case of none.
+      private volatile boolean observed = false;
+   	// Changes whenever an observer is added to or deleted from any register.
+      private static volatile int observerVersion = 0;
       
    	 /**
         *  Creates a new register with specified name, number, and value.
@@ -74,7 +79,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return value The value of the Register.
    	  */
    	  
-       public synchronized int getValue(){
+       public int getValue(){
+         if (Globals.singleOwnerExecution) {
+            return readValue();
+         }
+         synchronized (this) {
+            return readValue();
+         }
+      }
+      
+      // The body of getValue(), which takes this Register's lock around it unless
+      // Globals.singleOwnerExecution is set.
+       private int readValue(){
          notifyAnyObservers(AccessNotice.READ);
          return value;
       }
@@ -115,7 +131,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return previous value of register
    	  */
    	  
-       public synchronized int setValue(int val){
+       public int setValue(int val){
+         if (Globals.singleOwnerExecution) {
+            return writeValue(val);
+         }
+         synchronized (this) {
+            return writeValue(val);
+         }
+      }
+      
+      // The body of setValue(), locked as for readValue().
+       private int writeValue(int val){
          int old = value;
          value = val;
          notifyAnyObservers(AccessNotice.WRITE);
@@ -140,11 +166,51 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          resetValue = reset;
       }
    
+   	/**
+   	 *  Adds an observer, which will be notified of register reads and writes.
+   	 *  Overridden to track whether any observers are attached.
+   	 *  @param o the Observer to add
+   	 */
+       public synchronized void addObserver(Observer o) {
+         super.addObserver(o);
+         observed = countObservers() > 0;
+         observerVersion++;
+      }
+   
+   	/**
+   	 *  Deletes an observer.  Overridden to track whether any observers are attached.
+   	 *  @param o the Observer to delete
+   	 */
+       public synchronized void deleteObserver(Observer o) {
+         super.deleteObserver(o);
+         observed = countObservers() > 0;
+         observerVersion++;
+      }
+   
+   	/**
+   	 *  Deletes all observers.  Overridden to track whether any observers are attached.
+   	 */
+       public synchronized void deleteObservers() {
+         super.deleteObservers();
+         observed = false;
+         observerVersion++;
+      }
+   
+   	/**
+   	 *  Returns the register observer version number.  It changes every time an
+   	 *  observer is added to or deleted from any register, so the simulator can tell
+   	 *  when to look at register observers again.
+   	 *  @return current observer version
+   	 */
+       public static int getObserverVersion() {
+         return observerVersion;
+      }
+   
    //
    // Method to notify any observers of register operation that has just occurred.
    //
        private void notifyAnyObservers(int type) {
-         if (this.countObservers() > 0){// && Globals.program != null) && Globals.program.inSteppedExecution()) {
+         if (observed && this.countObservers() > 0){// && Globals.program != null) && Globals.program.inSteppedExecution()) {
             this.setChanged();
             this.notifyObservers(new RegisterAccessNotice(type, this.name));
          } 
@@ -3,6 +3,7 @@
    import java.util.Observer;
 
    import mars.Globals;
+   import mars.MachineContext;
    import mars.assembler.SymbolTable;
    import mars.mips.instructions.Instruction;
    import mars.util.Binary;
@@ -36,7 +37,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
 /**
-  *  Represents the collection of MIPS registers.
+  *  Represents the collection of MIPS registers.  Each MachineContext has its own
+  *  RegisterFile; the static methods operate on that of the calling thread's context.
   *   @author Jason Bumgarner, Jason Shrewsbury
   *   @version June 2003
   **/
@@ -46,7 +48,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int GLOBAL_POINTER_REGISTER = 28;
       public static final int STACK_POINTER_REGISTER = 29;
    
-      private static Register [] regFile = 
+      private Register [] regFile = 
           { new Register("$zero", 0, 0), new Register("$at", 1, 0),
          	new Register("$v0", 2, 0),new Register("$v1", 3, 0),
          	new Register("$a0", 4, 0),new Register("$a1", 5, 0),
@@ -66,9 +68,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          	new Register("$fp", 30, 0),new Register("$ra", 31, 0)
            };
          												  
-      private static Register programCounter= new Register("pc", 32, Memory.textBaseAddress); 
-      private static Register hi= new Register("hi", 33, 0);//this is an internal register with arbitrary number
-      private static Register lo= new Register("lo", 34, 0);// this is an internal register with arbitrary number
+      private Register programCounter= new Register("pc", 32, Memory.textBaseAddress); 
+      private Register hi= new Register("hi", 33, 0);//this is an internal register with arbitrary number
+      private Register lo= new Register("lo", 34, 0);// this is an internal register with arbitrary number
+   		 
+   	/**
+   	  *  Create a set of registers holding their reset values.  Used by MachineContext;
+   	  *  others use the static methods.
+   	  **/
+       public RegisterFile() {
+      }
+   
+      // The register file of the calling thread's machine context.
+       private static RegisterFile current() {
+         return MachineContext.current().getRegisterFile();
+      }
    		 
    
    	/**
@@ -76,6 +90,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/	 
    		 
        public static void showRegisters(){
+         Register[] regFile = current().regFile;
          for (int i=0; i< regFile.length; i++){
             System.out.println("Name: " + regFile[i].getName());
             System.out.println("Number: " + regFile[i].getNumber());
@@ -93,29 +108,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static int updateRegister(int num, int val){
-         int old = 0;
-         if(num == 0){
-            //System.out.println("You can not change the value of the zero register.");
+         // Registers are stored in regFile by number, so index directly.
+         RegisterFile file = current();
+         Register register;
+         if (num > 0 && num < file.regFile.length) {
+            register = file.regFile[num];
          }
-         else {
-            for (int i=0; i< regFile.length; i++){
-               if(regFile[i].getNumber()== num) {
-                  old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addRegisterFileRestore(num,regFile[i].setValue(val))
-                     	: regFile[i].setValue(val);
-                  break;
-               }
-            }
+         else if (num == 33) {//updates the hi register
+            register = file.hi;
+         }
+         else if (num == 34) {// updates the low register
+            register = file.lo;
          }
-         if(num== 33){//updates the hi register
-            old = (Globals.getSettings().getBackSteppingEnabled())
-               	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,hi.setValue(val))
-               			: hi.setValue(val);
+         else {
+            //System.out.println("You can not change the value of the zero register.");
+            return 0;
          }
-         else if(num== 34){// updates the low register
-            old = (Globals.getSettings().getBackSteppingEnabled())
-               	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,lo.setValue(val))
-               			: lo.setValue(val);
+         int old = register.setValue(val);
+         if (Globals.getSettings().getBackSteppingEnabled()) {
+            MachineContext.current().getProgram().getBackStepper().addRegisterFileRestore(num, old);
          }
          return old;
       }
@@ -131,6 +142,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             //System.out.println("You can not change the value of the zero register.");
          }
          else{
+            Register[] regFile = current().regFile;
             for (int i=0; i< regFile.length; i++){
                if(regFile[i].getName().equals(reg)) {
                   updateRegister(i,val);
@@ -146,14 +158,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
+         RegisterFile file = current();
          if(num==33){
-            return hi.getValue();
+            return file.hi.getValue();
          }
          else if(num==34){
-            return lo.getValue();
+            return file.lo.getValue();
          }
          else  
-            return regFile[num].getValue();
+            return file.regFile[num].getValue();
             
       }
       		
@@ -166,6 +179,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       		
        public static int getNumber(String n){
          int j=-1;
+         Register[] regFile = current().regFile;
          for (int i=0; i< regFile.length; i++){
             if(regFile[i].getName().equals(n)) {
                j= regFile[i].getNumber();
@@ -181,7 +195,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register[] getRegisters(){
-         return regFile;
+         return current().regFile;
       }
       
    	/**
@@ -192,6 +206,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static Register getUserRegister(String Rname) {
          Register reg = null;
+         Register[] regFile = current().regFile;
          if (Rname.charAt(0) == '$') {
             try {
                    // check for register number 0-31.
@@ -221,7 +236,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
      
        public static void initializeProgramCounter(int value){
-         programCounter.setValue(value);
+         current().programCounter.setValue(value);
       }
    	
    	/**
@@ -234,12 +249,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 **/
    	 
        public static void initializeProgramCounter(boolean startAtMain) {  
-         int mainAddr = Globals.symbolTable.getAddress(SymbolTable.getStartLabel());
+         int mainAddr = MachineContext.current().getSymbolTable().getAddress(SymbolTable.getStartLabel());
          if (startAtMain && mainAddr != SymbolTable.NOT_FOUND && (Memory.inTextSegment(mainAddr) || Memory.inKernelTextSegment(mainAddr))) {
             initializeProgramCounter(mainAddr);
          } 
          else {
-            initializeProgramCounter(programCounter.getResetValue());
+            initializeProgramCounter(current().programCounter.getResetValue());
          }
       }
    	
@@ -251,10 +266,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
      
        public static int setProgramCounter(int value){
+         Register programCounter = current().programCounter;
          int old = programCounter.getValue();
          programCounter.setValue(value);
          if (Globals.getSettings().getBackSteppingEnabled()) {
-            Globals.program.getBackStepper().addPCRestore(old);
+            MachineContext.current().getProgram().getBackStepper().addPCRestore(old);
          } 
          return old;
       }
@@ -265,7 +281,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	 
        public static int getProgramCounter(){
-         return programCounter.getValue();
+         return current().programCounter.getValue();
       }
    
      /**
@@ -273,7 +289,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*  @return program counter's Register object.
    	*/
        public static Register getProgramCounterRegister() {
-         return programCounter;
+         return current().programCounter;
       }
    	
      /**
@@ -282,7 +298,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	 
        public static int getInitialProgramCounter(){
-         return programCounter.getResetValue();
+         return current().programCounter.getResetValue();
       }
    	
    	/**
@@ -295,12 +311,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void resetRegisters(){
-         for(int i=0; i< regFile.length; i++){
-            regFile[i].resetValue();
+         RegisterFile file = current();
+         for(int i=0; i< file.regFile.length; i++){
+            file.regFile[i].resetValue();
          }
          initializeProgramCounter(Globals .getSettings().getStartAtMain());// replaces "programCounter.resetValue()", DPS 3/3/09
-         hi.resetValue();
-         lo.resetValue();
+         file.hi.resetValue();
+         file.lo.resetValue();
       }
       
      /**
@@ -308,6 +325,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 **/
    
        public static void incrementPC(){
+         Register programCounter = current().programCounter;
          programCounter.setValue(programCounter.getValue() + Instruction.INSTRUCTION_LENGTH);
       }
    
@@ -317,23 +335,40 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  Counter.
    	 */
        public static void addRegistersObserver(Observer observer) {
-         for (int i=0; i<regFile.length; i++) {
-            regFile[i].addObserver(observer);
+         RegisterFile file = current();
+         for (int i=0; i<file.regFile.length; i++) {
+            file.regFile[i].addObserver(observer);
          }
-         hi.addObserver(observer);
-         lo.addObserver(observer);
+         file.hi.addObserver(observer);
+         file.lo.addObserver(observer);
       }
    	
+      /**
+   	 *  Determine whether any register, including the program counter, hi and lo, has
+   	 *  an observer attached.
+   	 *  @return true if some register has at least one observer
+   	 */
+       public static boolean hasObservers() {
+         RegisterFile file = current();
+         for (int i=0; i<file.regFile.length; i++) {
+            if (file.regFile[i].countObservers() > 0) {
+               return true;
+            }
+         }
+         return file.programCounter.countObservers() > 0 || file.hi.countObservers() > 0
+                || file.lo.countObservers() > 0;
+      }
       /**
    	 *  Each individual register is a separate object and Observable.  This handy method
    	 *  will delete the given Observer from each one.  Currently does not apply to Program
    	 *  Counter.
    	 */
        public static void deleteRegistersObserver(Observer observer) {
-         for (int i=0; i<regFile.length; i++) {
-            regFile[i].deleteObserver(observer);
+         RegisterFile file = current();
+         for (int i=0; i<file.regFile.length; i++) {
+            file.regFile[i].deleteObserver(observer);
          }
-         hi.deleteObserver(observer);
-         lo.deleteObserver(observer);
+         file.hi.deleteObserver(observer);
+         file.lo.deleteObserver(observer);
       }
    }
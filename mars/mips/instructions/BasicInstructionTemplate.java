@@ -0,0 +1,170 @@
+   package mars.mips.instructions;
+   import mars.*;
+   import mars.assembler.*;
+
+/**
+ * One basic instruction template of an ExtendedInstruction, tokenized in advance.
+ * The template is split once into tokens, and each token is either literal (e.g. the
+ * operator or "$1") or a slot containing one of the substitution markers described
+ * at ExtendedInstruction.makeTemplateSubstitutions().  To generate a basic statement
+ * only the slots are substituted, each on its own, and the statement's token list is
+ * built directly from the results.  This gives the same tokens, at the same positions,
+ * as substituting into the whole template and tokenizing the resulting string.
+ * <p>
+ * If the template cannot be handled this way (it is DBNOP, or has a literal token
+ * the tokenizer treats according to context), or a substituted value would not
+ * tokenize as a single token, the template falls back to string substitution and
+ * tokenizing.
+ *
+ * @see ExtendedInstruction
+ */
+
+    public class BasicInstructionTemplate {
+
+      // Substrings of all the substitution markers.  A token containing none of them
+   	// is the same after substitution.
+      private static final String[] MARKERS = {"RG", "NR", "OP", "LL", "LH", "VL", "VH", "S32", "LAB", "BROFF", "DBNOP"};
+      // Characters that delimit or start special tokens.  A substituted value containing
+   	// one would not tokenize as a single token.
+      private static final String DELIMITERS = " \t,#():\"'";
+
+      private String template;
+      private Token[] tokens;         // literal tokens, null at slots; null if not compiled
+      private String[] slots;         // template text of slots, null at literal tokens
+      private int[] gaps;             // characters between previous token (or line start) and this one
+
+    /**
+     * Tokenize a template.  Call only once the instruction set is complete, since
+     * classifying tokens consults it.
+     * @param template the template, as found in the ExtendedInstruction's template list
+     */
+       public BasicInstructionTemplate(String template) {
+         this.template = template;
+         compile();
+      }
+
+    /**
+     * @return the template as given to the constructor
+     */
+       public String getTemplate() {
+         return template;
+      }
+
+    /**
+     * Generate the tokens of the basic statement for an extended instruction statement.
+     * @param program the MIPSprogram being assembled, for label lookup
+     * @param theTokenList tokens of the extended statement, in basic assembly form
+     * @param sourceLine source line number given to the generated tokens
+     * @param errors receives lexical errors, which can only come from the fallback
+     * @return tokens of the generated basic statement, or null if the template generates
+     * no instruction (a DBNOP when delayed branching is disabled)
+     */
+       public TokenList makeTokenList(MIPSprogram program, TokenList theTokenList, int sourceLine, ErrorList errors) {
+         if (tokens != null) {
+            TokenList result = new TokenList();
+            int position = 1;
+            TokenTypes previousType = null;
+            for (int i = 0; i < tokens.length; i++) {
+               position += gaps[i];
+               Token token = tokens[i];
+               if (token == null) {
+                  String value = ExtendedInstruction.makeTemplateSubstitutions(program, slots[i], theTokenList);
+                  TokenTypes type = singleTokenType(value, previousType);
+                  if (type == null) {
+                     return tokenizeSubstituted(program, theTokenList, sourceLine, errors);
+                  }
+                  token = new Token(type, value, null, sourceLine, position);
+               }
+               else {
+                  token = new Token(token.getType(), token.getValue(), null, sourceLine, position);
+               }
+               result.add(token);
+               position += token.getValue().length();
+               previousType = token.getType();
+            }
+            return result;
+         }
+         return tokenizeSubstituted(program, theTokenList, sourceLine, errors);
+      }
+
+      // The original method: substitute into the whole template then tokenize the result.
+       private TokenList tokenizeSubstituted(MIPSprogram program, TokenList theTokenList, int sourceLine, ErrorList errors) {
+         String instruction = ExtendedInstruction.makeTemplateSubstitutions(program, template, theTokenList);
+         if (instruction == null || instruction.length() == 0) {
+            return null;
+         }
+         return new Tokenizer().tokenizeLine(sourceLine, instruction, errors, false);
+      }
+
+      // Type of the token the tokenizer would make of value, or null if it would not
+   	// make exactly one valid token of it.  A leading sign stays part of the token only
+   	// if a digit follows and the previous token is not an identifier.
+       private static TokenTypes singleTokenType(String value, TokenTypes previousType) {
+         if (value.length() == 0) {
+            return null;
+         }
+         for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (DELIMITERS.indexOf(c) >= 0) {
+               return null;
+            }
+            if ((c == '+' || c == '-') && (i > 0 || value.length() < 2 ||
+                   !Character.isDigit(value.charAt(1)) || previousType == TokenTypes.IDENTIFIER)) {
+               return null;
+            }
+         }
+         TokenTypes type = TokenTypes.matchTokenType(value);
+         return (type == TokenTypes.ERROR) ? null : type;
+      }
+
+      // Split the template into literal tokens and slots.  Leaves tokens null if the
+   	// template must be handled by the fallback.
+       private void compile() {
+         if (template.indexOf("DBNOP") >= 0) {
+            return;
+         }
+         ErrorList tokenizeErrors = new ErrorList();
+         TokenList templateTokens = new Tokenizer().tokenizeLine(0, template, tokenizeErrors, false);
+         int count = templateTokens.size();
+         Token[] literals = new Token[count];
+         String[] slotText = new String[count];
+         int[] gapLengths = new int[count];
+         int end = 1; // position following previous token
+         int labels = 0;
+         for (int i = 0; i < count; i++) {
+            Token token = templateTokens.get(i);
+            String value = token.getValue();
+            gapLengths[i] = token.getStartPos() - end;
+            end = token.getStartPos() + value.length();
+            if (containsMarker(value)) {
+               slotText[i] = value;
+               if (value.indexOf("LAB") >= 0) {
+                  labels++;
+               }
+            }
+            else {
+               char first = value.charAt(0);
+               if (token.getType() == TokenTypes.ERROR || first == '+' || first == '-' || first == '\'' || first == '"') {
+                  return;
+               }
+               literals[i] = token;
+            }
+         }
+         // LAB is substituted only at its first occurrence in the template.
+         if (tokenizeErrors.errorsOccurred() || count == 0 || labels > 1) {
+            return;
+         }
+         slots = slotText;
+         gaps = gapLengths;
+         tokens = literals;
+      }
+
+       private static boolean containsMarker(String value) {
+         for (int i = 0; i < MARKERS.length; i++) {
+            if (value.indexOf(MARKERS[i]) >= 0) {
+               return true;
+            }
+         }
+         return false;
+      }
+   }
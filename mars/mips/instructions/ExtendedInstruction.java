@@ -46,6 +46,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class ExtendedInstruction extends Instruction {
    
       private ArrayList translationStrings, compactTranslationStrings;
+      private BasicInstructionTemplate[] templates, compactTemplates;
     /**
      * Constructor for ExtendedInstruction.
      * 
@@ -160,6 +161,51 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ArrayList getCompactBasicIntructionTemplateList() {
          return compactTranslationStrings;
       }
+   
+    /**
+     * Tokenize the basic instruction templates in advance, for use by the assembler.
+     * Called by InstructionSet.populate() once the instruction set is complete, since the
+     * tokens depend on which mnemonics it contains.
+     */
+       public void compileTemplates() {
+         compactTemplates = compileTemplates(compactTranslationStrings);
+         templates = compileTemplates(translationStrings);
+      }
+   
+    /**
+     * Get the basic instruction templates in tokenized form.  They are in the same
+     * order as getBasicIntructionTemplateList().
+     * @return array of BasicInstructionTemplate.
+     */
+       public BasicInstructionTemplate[] getBasicInstructionTemplates() {
+         if (templates == null) {
+            compileTemplates();
+         }
+         return templates;
+      }
+   
+    /**
+     * Get the basic instruction templates of the compact translation in tokenized form.
+     * @return array of BasicInstructionTemplate.  Returns null if the instruction does not
+     * have a compact alternative.
+     */
+       public BasicInstructionTemplate[] getCompactBasicInstructionTemplates() {
+         if (templates == null) {
+            compileTemplates();
+         }
+         return compactTemplates;
+      }
+   
+       private static BasicInstructionTemplate[] compileTemplates(ArrayList translationList) {
+         if (translationList == null) {
+            return null;
+         }
+         BasicInstructionTemplate[] compiled = new BasicInstructionTemplate[translationList.size()];
+         for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = new BasicInstructionTemplate((String) translationList.get(i));
+         }
+         return compiled;
+      }
 		   
       /**
    	 * Given a basic instruction template and the list of tokens from an extended
@@ -3,6 +3,8 @@
    import mars.mips.hardware.*;
    import mars.mips.instructions.syscalls.*;
    import mars.*;
+   import mars.assembler.*;
+   import mars.util.*;
    import java.util.*;
    import java.io.*;
 
@@ -46,15 +48,23 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class InstructionSet
    {
       private ArrayList instructionList;
-	  private ArrayList opcodeMatchMaps;
+      private DecodeTable decodeTable;
       private SyscallLoader syscallLoader;
+      // Lower-case mnemonic to the Instruction[] having that mnemonic, and every prefix
+   	// of every lower-case mnemonic to the Instruction[] whose mnemonic starts with it.
+   	// Both keep instruction list order.  populate() rebuilds them as soon as the
+   	// instruction list is merged, before the example token lists are created, since
+   	// token classification looks operators up in them.
+      private HashMap operatorIndex;
+      private HashMap operatorPrefixIndex;
     /**
      * Creates a new InstructionSet object.
      */
        public InstructionSet()
       {
          instructionList = new ArrayList();
-      
+         operatorIndex = new HashMap();
+         operatorPrefixIndex = new HashMap();
       }
     /**
      * Retrieve the current instruction set.
@@ -100,49 +110,121 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       // 2025 RESEARCH: INSTRUCTIONS MOVED TO MipsAssembly.java
       // LanguageLoader now handles instructions, both for MIPS and custom-defined languages
       LanguageLoader.mergeCustomInstructions(instructionList);
+      // Token classification below consults the operator index, so build it first.
+      indexOperators();
+      // Cached tokens were classified under the previous instruction set.
+      TokenCache.clear();
 
         ////////////// GET AND CREATE LIST OF SYSCALL FUNCTION OBJECTS ////////////////////
          syscallLoader = new SyscallLoader();
          syscallLoader.loadSyscalls();
       	
         // Initialization step.  Create token list for each instruction example.  This is
-        // used by parser to determine user program correct syntax.
+        // used by parser to determine user program correct syntax.  Likewise tokenize
+        // the templates of extended instructions, used by the assembler to expand them.
          for (int i = 0; i < instructionList.size(); i++)
          {
             Instruction inst = (Instruction) instructionList.get(i);
             inst.createExampleTokenList();
          }
+         for (int i = 0; i < instructionList.size(); i++)
+         {
+            Instruction inst = (Instruction) instructionList.get(i);
+            if (inst instanceof ExtendedInstruction)
+            {
+               ((ExtendedInstruction) inst).compileTemplates();
+            }
+         }
 
-		 HashMap maskMap = new HashMap();
-		 ArrayList matchMaps = new ArrayList();
-		 for (int i = 0; i < instructionList.size(); i++) {
-		 	Object rawInstr = instructionList.get(i);
-			if (rawInstr instanceof BasicInstruction) {
-				BasicInstruction basic = (BasicInstruction) rawInstr;
-				Integer mask = Integer.valueOf(basic.getOpcodeMask());
-				Integer match = Integer.valueOf(basic.getOpcodeMatch());
-				HashMap matchMap = (HashMap) maskMap.get(mask);
-				if (matchMap == null) {
-					matchMap = new HashMap();
-					maskMap.put(mask, matchMap);
-					matchMaps.add(new MatchMap(mask, matchMap));
-				}
-				matchMap.put(match, basic);
-			}
-		 }
-		 Collections.sort(matchMaps);
-		 this.opcodeMatchMaps = matchMaps;
+         ArrayList basicInstructions = new ArrayList();
+         for (int i = 0; i < instructionList.size(); i++)
+         {
+            if (instructionList.get(i) instanceof BasicInstruction)
+            {
+               basicInstructions.add(instructionList.get(i));
+            }
+         }
+         decodeTable = new DecodeTable(basicInstructions);
+         List conflicts = decodeTable.getConflicts();
+         for (int i = 0; i < conflicts.size(); i++)
+         {
+            System.out.println("Warning: " + conflicts.get(i));
+         }
+      }
+   
+      // Build the mnemonic and mnemonic prefix indexes from the instruction list.
+       private void indexOperators()
+      {
+         HashMap index = new HashMap();
+         HashMap prefixIndex = new HashMap();
+         for (int i = 0; i < instructionList.size(); i++)
+         {
+            Instruction inst = (Instruction) instructionList.get(i);
+            String name = inst.getName().toLowerCase();
+            addToIndex(index, name, inst);
+            for (int length = 0; length <= name.length(); length++)
+            {
+               addToIndex(prefixIndex, name.substring(0, length), inst);
+            }
+         }
+         operatorIndex = toArrays(index);
+         operatorPrefixIndex = toArrays(prefixIndex);
+      }
+   
+       private static void addToIndex(HashMap index, String key, Instruction inst)
+      {
+         ArrayList instructions = (ArrayList) index.get(key);
+         if (instructions == null)
+         {
+            instructions = new ArrayList(1);
+            index.put(key, instructions);
+         }
+         instructions.add(inst);
+      }
+   
+      // Replace each ArrayList value of the index by an Instruction[].
+       private static HashMap toArrays(HashMap index)
+      {
+         HashMap arrays = new HashMap(index.size() * 2);
+         Iterator entries = index.entrySet().iterator();
+         while (entries.hasNext())
+         {
+            Map.Entry entry = (Map.Entry) entries.next();
+            ArrayList instructions = (ArrayList) entry.getValue();
+            arrays.put(entry.getKey(), instructions.toArray(new Instruction[instructions.size()]));
+         }
+         return arrays;
+      }
+   
+      // Fresh list of the instructions in an index entry, or null if there is none.
+       private static ArrayList lookUp(HashMap index, String key)
+      {
+         Instruction[] instructions = (Instruction[]) index.get(key);
+         return (instructions == null) ? null : new ArrayList(Arrays.asList(instructions));
       }
 
-	public BasicInstruction findByBinaryCode(int binaryInstr) {
-		ArrayList matchMaps = this.opcodeMatchMaps;
-		for (int i = 0; i < matchMaps.size(); i++) {
-			MatchMap map = (MatchMap) matchMaps.get(i);
-			BasicInstruction ret = map.find(binaryInstr);
-			if (ret != null) return ret;
-		}
-		return null;
-	}
+    /**
+     * Find the basic instruction a 32-bit binary machine instruction encodes.  If it
+     * matches more than one, the one whose opcode mask has the most 1 bits is chosen.
+     * @param binaryInstr the binary machine instruction
+     * @return the basic instruction, or null if it matches none
+     */
+       public BasicInstruction findByBinaryCode(int binaryInstr)
+      {
+         return decodeTable.find(binaryInstr);
+      }
+   
+    /**
+     * Describe pairs of basic instructions with overlapping encodings where neither is
+     * more specific than the other, so a binary instruction matching both decodes to
+     * one of them arbitrarily.  These can arise when custom languages are merged with
+     * the MIPS instructions.
+     * @return List of String, one per pair; empty if there are none
+     */
+       public List getEncodingConflicts()
+      {
+         return decodeTable.getConflicts();
+      }
    	
     /*  METHOD TO ADD PSEUDO-INSTRUCTIONS
     */
@@ -221,50 +303,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
     /**
      *  Given an operator mnemonic, will return the corresponding Instruction object(s)
-     *  from the instruction set.  Uses straight linear search technique.
+     *  from the instruction set.  Case-insensitive.  Looked up in a hash index of
+     *  mnemonics built when the instruction set is populated.
      *  @param name operator mnemonic (e.g. addi, sw,...)
      *  @return list of corresponding Instruction object(s), or null if not found.
      */
        public ArrayList matchOperator(String name)
       {
-         ArrayList matchingInstructions = null;
-        // Linear search for now....
-         for (int i = 0; i < instructionList.size(); i++)
-         {
-            if (((Instruction) instructionList.get(i)).getName().equalsIgnoreCase(name))
-            {
-               if (matchingInstructions == null) 
-                  matchingInstructions = new ArrayList();
-               matchingInstructions.add(instructionList.get(i));
-            }
-         }
-         return matchingInstructions;
+         return (name == null) ? null : lookUp(operatorIndex, name.toLowerCase());
       }
    
    
     /**
      *  Given a string, will return the Instruction object(s) from the instruction
      *  set whose operator mnemonic prefix matches it.  Case-insensitive.  For example
-     *  "s" will match "sw", "sh", "sb", etc.  Uses straight linear search technique.
+     *  "s" will match "sw", "sh", "sb", etc.  Looked up in an index of mnemonic
+     *  prefixes built when the instruction set is populated.
      *  @param name a string
      *  @return list of matching Instruction object(s), or null if none match.
      */
        public ArrayList prefixMatchOperator(String name)
       {
-         ArrayList matchingInstructions = null;
-        // Linear search for now....
-         if (name != null) {
-            for (int i = 0; i < instructionList.size(); i++)
-            {
-               if (((Instruction) instructionList.get(i)).getName().toLowerCase().startsWith(name.toLowerCase()))
-               {
-                  if (matchingInstructions == null) 
-                     matchingInstructions = new ArrayList();
-                  matchingInstructions.add(instructionList.get(i));
-               }
-            }
-         }
-         return matchingInstructions;
+         return (name == null) ? null : lookUp(operatorPrefixIndex, name.toLowerCase());
       }
    	
    	/*
@@ -277,7 +337,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                                                         throws ProcessingException {
          Syscall service = syscallLoader.findSyscall(number);
          if (service != null) {
-            service.simulate(statement);
+            MIPSprogram program = MachineContext.current().getProgram();
+            TimeTravel timeTravel = (program == null) ? null : program.getTimeTravel();
+            if (timeTravel != null) {
+               timeTravel.simulateSyscall(service, statement); // logs or replays its effects
+            } 
+            else {
+               service.simulate(statement);
+            }
             return;
          }
          throw new ProcessingException(statement,
@@ -319,7 +386,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 * The branch operand is a relative displacement in words
    	 * whereas the jump operand is an absolute address in bytes.
    	 *
-   	 * The parameter is jump target absolute byte address.
+   	 * The parameter is jump target absolute byte address.  A branch whose target
+   	 * is already absolute, from ProgramStatement.getBranchTarget(), may use it too.
    	 *
    	 * Handles delayed branching if that setting is enabled.
    	 */
@@ -351,39 +419,155 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             	  Instruction.INSTRUCTION_LENGTH : 0) );	 
       }
 
-	  private static class MatchMap implements Comparable {
-	  	private int mask;
-		private int maskLength; // number of 1 bits in mask
-		private HashMap matchMap;
-
-		public MatchMap(int mask, HashMap matchMap) {
-			this.mask = mask;
-			this.matchMap = matchMap;
-
-			int k = 0;
-			int n = mask;
-			while (n != 0) {
-				k++;
-				n &= n - 1;
-			}
-			this.maskLength = k;
-		}
-
-		public boolean equals(Object o) {
-			return o instanceof MatchMap && mask == ((MatchMap) o).mask;
-		}
-
-		public int compareTo(Object other) {
-			MatchMap o = (MatchMap) other;
-			int d = o.maskLength - this.maskLength;
-			if (d == 0) d = this.mask - o.mask;
-			return d;
-		}
-
-		public BasicInstruction find(int instr) {
-			int match = Integer.valueOf(instr & mask);
-			return (BasicInstruction) matchMap.get(match);
-		}
-	}
+      // Table for decoding binary instructions.  The opcode (bits 31-26) indexes a
+   	// bucket of the instructions that can have it.  Each bucket is split again by
+   	// whichever of the funct (bits 5-0), rt (bits 20-16) or rs/fmt (bits 25-21) fields
+   	// best separates its instructions, leaving a short list of candidates per field
+   	// value, most specific first.  The first candidate whose mask and match fit wins.
+       private static class DecodeTable
+      {
+         private static final int[] FIELD_SHIFTS = {0, 16, 21};
+         private static final int[] FIELD_MASKS = {0x3F, 0x1F, 0x1F};
+      
+         private int[] shifts = new int[64];
+         private int[] fieldMasks = new int[64];
+         private BasicInstruction[][][] candidates = new BasicInstruction[64][][];
+         private ArrayList conflicts = new ArrayList();
+      
+          DecodeTable(ArrayList instructions)
+         {
+            ArrayList ordered = prioritize(instructions);
+            for (int opcode = 0; opcode < 64; opcode++)
+            {
+               ArrayList bucket = select(ordered, opcode << 26, 0xFC000000);
+               int best = -1;
+               int bestSize = bucket.size();
+               BasicInstruction[][] bestLists = null;
+               for (int f = 0; f < FIELD_SHIFTS.length && bucket.size() > 1; f++)
+               {
+                  BasicInstruction[][] lists = split(bucket, FIELD_SHIFTS[f], FIELD_MASKS[f]);
+                  int size = 0;
+                  for (int i = 0; i < lists.length; i++)
+                  {
+                     size = Math.max(size, lists[i].length);
+                  }
+                  if (size < bestSize)
+                  {
+                     best = f;
+                     bestSize = size;
+                     bestLists = lists;
+                  }
+               }
+               if (best < 0)
+               {
+                  bestLists = split(bucket, 0, 0);
+               }
+               shifts[opcode] = (best < 0) ? 0 : FIELD_SHIFTS[best];
+               fieldMasks[opcode] = (best < 0) ? 0 : FIELD_MASKS[best];
+               candidates[opcode] = bestLists;
+            }
+            findConflicts(ordered);
+         }
+      
+          BasicInstruction find(int binary)
+         {
+            int opcode = binary >>> 26;
+            BasicInstruction[] list = candidates[opcode][(binary >>> shifts[opcode]) & fieldMasks[opcode]];
+            for (int i = 0; i < list.length; i++)
+            {
+               if ((binary & list[i].getOpcodeMask()) == list[i].getOpcodeMatch())
+               {
+                  return list[i];
+               }
+            }
+            return null;
+         }
+      
+          List getConflicts()
+         {
+            return conflicts;
+         }
+      
+         // Instructions in the order they are tried: more 1 bits in the mask first, then
+      	// lower mask.  Of instructions with the same mask and match, only the last added
+      	// is kept, as it replaces the others.
+          private ArrayList prioritize(ArrayList instructions)
+         {
+            LinkedHashMap encodings = new LinkedHashMap();
+            for (int i = 0; i < instructions.size(); i++)
+            {
+               BasicInstruction instruction = (BasicInstruction) instructions.get(i);
+               Long encoding = Long.valueOf(((long) instruction.getOpcodeMask() << 32)
+                                            | (instruction.getOpcodeMatch() & 0xFFFFFFFFL));
+               BasicInstruction replaced = (BasicInstruction) encodings.remove(encoding);
+               if (replaced != null)
+               {
+                  conflicts.add("\"" + replaced.getExampleFormat() + "\" and \"" + instruction.getExampleFormat()
+                                + "\" have the same encoding; \"" + instruction.getExampleFormat() + "\" is used");
+               }
+               encodings.put(encoding, instruction);
+            }
+            ArrayList ordered = new ArrayList(encodings.values());
+            Collections.sort(ordered,
+                   new Comparator() {
+                      public int compare(Object a, Object b) {
+                        int maskA = ((BasicInstruction) a).getOpcodeMask();
+                        int maskB = ((BasicInstruction) b).getOpcodeMask();
+                        int difference = Integer.bitCount(maskB) - Integer.bitCount(maskA);
+                        return (difference != 0) ? difference : (maskA < maskB) ? -1 : (maskA > maskB) ? 1 : 0;
+                     }
+                  });
+            return ordered;
+         }
+      
+         // The instructions that can match a binary instruction having the given bits.
+          private static ArrayList select(ArrayList instructions, int bits, int bitMask)
+         {
+            ArrayList selected = new ArrayList();
+            for (int i = 0; i < instructions.size(); i++)
+            {
+               BasicInstruction instruction = (BasicInstruction) instructions.get(i);
+               if (((bits ^ instruction.getOpcodeMatch()) & instruction.getOpcodeMask() & bitMask) == 0)
+               {
+                  selected.add(instruction);
+               }
+            }
+            return selected;
+         }
+      
+         // Candidate lists of a bucket, one per value of the field.
+          private static BasicInstruction[][] split(ArrayList bucket, int shift, int fieldMask)
+         {
+            BasicInstruction[][] lists = new BasicInstruction[fieldMask + 1][];
+            for (int value = 0; value <= fieldMask; value++)
+            {
+               ArrayList list = select(bucket, value << shift, fieldMask << shift);
+               lists[value] = (BasicInstruction[]) list.toArray(new BasicInstruction[list.size()]);
+            }
+            return lists;
+         }
+      
+         // Record pairs that both match some binary instruction when neither mask includes
+      	// all the bits of the other, so neither is a special case of the other.
+          private void findConflicts(ArrayList ordered)
+         {
+            for (int i = 0; i < ordered.size(); i++)
+            {
+               BasicInstruction first = (BasicInstruction) ordered.get(i);
+               for (int j = i + 1; j < ordered.size(); j++)
+               {
+                  BasicInstruction second = (BasicInstruction) ordered.get(j);
+                  int maskA = first.getOpcodeMask(), maskB = second.getOpcodeMask();
+                  if (((first.getOpcodeMatch() ^ second.getOpcodeMatch()) & maskA & maskB) == 0
+                         && (maskA & maskB) != maskA && (maskA & maskB) != maskB)
+                  {
+                     conflicts.add("\"" + first.getExampleFormat() + "\" and \"" + second.getExampleFormat()
+                                   + "\" both match " + Binary.intToHexString(first.getOpcodeMatch() | second.getOpcodeMatch())
+                                   + "; \"" + first.getExampleFormat() + "\" is used");
+                  }
+               }
+            }
+         }
+      }
    }
 
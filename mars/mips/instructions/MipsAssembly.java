@@ -45,9 +45,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int add1 = RegisterFile.getValue(operands[1]);
-                     int add2 = RegisterFile.getValue(operands[2]);
+                     int add1 = RegisterFile.getValue(statement.getRs());
+                     int add2 = RegisterFile.getValue(statement.getRt());
                      int sum = add1 + add2;
                   // overflow on A+B detected when A and B have same sign and A+B has other sign.
                      if ((add1 >= 0 && add2 >= 0 && sum < 0)
@@ -56,7 +55,7 @@ public class MipsAssembly extends CustomAssembly{
                         throw new ProcessingException(statement,
                             "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                      }
-                     RegisterFile.updateRegister(operands[0], sum);
+                     RegisterFile.updateRegister(statement.getRd(), sum);
                   }
                }));
          instructionList.add(
@@ -68,9 +67,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int sub1 = RegisterFile.getValue(operands[1]);
-                     int sub2 = RegisterFile.getValue(operands[2]);
+                     int sub1 = RegisterFile.getValue(statement.getRs());
+                     int sub2 = RegisterFile.getValue(statement.getRt());
                      int dif = sub1 - sub2;
                   // overflow on A-B detected when A and B have opposite signs and A-B has B's sign
                      if ((sub1 >= 0 && sub2 < 0 && dif < 0)
@@ -79,7 +77,7 @@ public class MipsAssembly extends CustomAssembly{
                         throw new ProcessingException(statement,
                             "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                      }
-                     RegisterFile.updateRegister(operands[0], dif);
+                     RegisterFile.updateRegister(statement.getRd(), dif);
                   }
                }));
          instructionList.add(
@@ -91,9 +89,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int add1 = RegisterFile.getValue(operands[1]);
-                     int add2 = operands[2] << 16 >> 16;
+                     int add1 = RegisterFile.getValue(statement.getRs());
+                     int add2 = statement.getImmediate();
                      int sum = add1 + add2;
                   // overflow on A+B detected when A and B have same sign and A+B has other sign.
                      if ((add1 >= 0 && add2 >= 0 && sum < 0)
@@ -102,7 +99,7 @@ public class MipsAssembly extends CustomAssembly{
                         throw new ProcessingException(statement,
                             "arithmetic overflow",Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
                      }
-                     RegisterFile.updateRegister(operands[0], sum);
+                     RegisterFile.updateRegister(statement.getRt(), sum);
                   }
                }));
          instructionList.add(
@@ -114,10 +111,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        + RegisterFile.getValue(operands[2]));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRs())
+                        + RegisterFile.getValue(statement.getRt()));
                   }
                }));
          instructionList.add(
@@ -129,10 +125,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        - RegisterFile.getValue(operands[2]));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRs())
+                        - RegisterFile.getValue(statement.getRt()));
                   }
                }));
          instructionList.add(
@@ -144,10 +139,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        + (operands[2] << 16 >> 16));
+                     RegisterFile.updateRegister(statement.getRt(),
+                        RegisterFile.getValue(statement.getRs())
+                        + statement.getImmediate());
                   }
                }));
          instructionList.add(
@@ -159,9 +153,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (long) RegisterFile.getValue(operands[0])
-                        * (long) RegisterFile.getValue(operands[1]);
+                     long product = (long) RegisterFile.getValue(statement.getRs())
+                        * (long) RegisterFile.getValue(statement.getRt());
                   // Register 33 is HIGH and 34 is LOW
                      RegisterFile.updateRegister(33, (int) (product >> 32));
                      RegisterFile.updateRegister(34, (int) ((product << 32) >> 32));
@@ -176,9 +169,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (((long) RegisterFile.getValue(operands[0]))<<32>>>32)
-                        * (((long) RegisterFile.getValue(operands[1]))<<32>>>32);
+                     long product = (((long) RegisterFile.getValue(statement.getRs()))<<32>>>32)
+                        * (((long) RegisterFile.getValue(statement.getRt()))<<32>>>32);
                   // Register 33 is HIGH and 34 is LOW
                      RegisterFile.updateRegister(33, (int) (product >> 32));
                      RegisterFile.updateRegister(34, (int) ((product << 32) >> 32));
@@ -193,10 +185,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (long) RegisterFile.getValue(operands[1])
-                        * (long) RegisterFile.getValue(operands[2]);
-                     RegisterFile.updateRegister(operands[0],
+                     long product = (long) RegisterFile.getValue(statement.getRs())
+                        * (long) RegisterFile.getValue(statement.getRt());
+                     RegisterFile.updateRegister(statement.getRd(),
                         (int) ((product << 32) >> 32));
                   // Register 33 is HIGH and 34 is LOW.  Not required by MIPS; SPIM does it.
                      RegisterFile.updateRegister(33, (int) (product >> 32));
@@ -212,9 +203,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (long) RegisterFile.getValue(operands[0])
-                        * (long) RegisterFile.getValue(operands[1]);
+                     long product = (long) RegisterFile.getValue(statement.getRs())
+                        * (long) RegisterFile.getValue(statement.getRt());
                      // Register 33 is HIGH and 34 is LOW. 
                      long contentsHiLo = Binary.twoIntsToLong(
                         RegisterFile.getValue(33), RegisterFile.getValue(34));
@@ -232,9 +222,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (((long) RegisterFile.getValue(operands[0]))<<32>>>32)
-                        * (((long) RegisterFile.getValue(operands[1]))<<32>>>32);
+                     long product = (((long) RegisterFile.getValue(statement.getRs()))<<32>>>32)
+                        * (((long) RegisterFile.getValue(statement.getRt()))<<32>>>32);
                      // Register 33 is HIGH and 34 is LOW. 
                      long contentsHiLo = Binary.twoIntsToLong(
                         RegisterFile.getValue(33), RegisterFile.getValue(34));
@@ -252,9 +241,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (long) RegisterFile.getValue(operands[0])
-                        * (long) RegisterFile.getValue(operands[1]);
+                     long product = (long) RegisterFile.getValue(statement.getRs())
+                        * (long) RegisterFile.getValue(statement.getRt());
                      // Register 33 is HIGH and 34 is LOW. 
                      long contentsHiLo = Binary.twoIntsToLong(
                         RegisterFile.getValue(33), RegisterFile.getValue(34));
@@ -272,9 +260,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     long product = (((long) RegisterFile.getValue(operands[0]))<<32>>>32)
-                        * (((long) RegisterFile.getValue(operands[1]))<<32>>>32);
+                     long product = (((long) RegisterFile.getValue(statement.getRs()))<<32>>>32)
+                        * (((long) RegisterFile.getValue(statement.getRt()))<<32>>>32);
                      // Register 33 is HIGH and 34 is LOW. 
                      long contentsHiLo = Binary.twoIntsToLong(
                         RegisterFile.getValue(33), RegisterFile.getValue(34));
@@ -292,8 +279,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[1]) == 0)
+                     if (RegisterFile.getValue(statement.getRt()) == 0)
                      {
                      // Note: no exceptions and undefined results for zero div
                      // COD3 Appendix A says "with overflow" but MIPS 32 instruction set
@@ -303,11 +289,11 @@ public class MipsAssembly extends CustomAssembly{
                   
                   // Register 33 is HIGH and 34 is LOW
                      RegisterFile.updateRegister(33,
-                        RegisterFile.getValue(operands[0])
-                        % RegisterFile.getValue(operands[1]));
+                        RegisterFile.getValue(statement.getRs())
+                        % RegisterFile.getValue(statement.getRt()));
                      RegisterFile.updateRegister(34,
-                        RegisterFile.getValue(operands[0])
-                        / RegisterFile.getValue(operands[1]));
+                        RegisterFile.getValue(statement.getRs())
+                        / RegisterFile.getValue(statement.getRt()));
                   }
                }));
          instructionList.add(
@@ -319,14 +305,13 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[1]) == 0)
+                     if (RegisterFile.getValue(statement.getRt()) == 0)
                      {
                      // Note: no exceptions, and undefined results for zero divide
                         return;
                      }
-                     long oper1 = ((long)RegisterFile.getValue(operands[0])) << 32 >>> 32; 
-                     long oper2 = ((long)RegisterFile.getValue(operands[1])) << 32 >>> 32; 
+                     long oper1 = ((long)RegisterFile.getValue(statement.getRs())) << 32 >>> 32; 
+                     long oper2 = ((long)RegisterFile.getValue(statement.getRt())) << 32 >>> 32; 
                   // Register 33 is HIGH and 34 is LOW
                      RegisterFile.updateRegister(33,
                         (int) (((oper1 % oper2) << 32) >> 32));
@@ -343,8 +328,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
+                     RegisterFile.updateRegister(statement.getRd(),
                         RegisterFile.getValue(33));
                   }
                }));
@@ -357,8 +341,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
+                     RegisterFile.updateRegister(statement.getRd(),
                         RegisterFile.getValue(34));
                   }
                }));
@@ -371,9 +354,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      RegisterFile.updateRegister(33,
-                        RegisterFile.getValue(operands[0]));
+                        RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -385,9 +367,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      RegisterFile.updateRegister(34,
-                        RegisterFile.getValue(operands[0]));
+                        RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -399,10 +380,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        & RegisterFile.getValue(operands[2]));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRs())
+                        & RegisterFile.getValue(statement.getRt()));
                   }
                }));
          instructionList.add(
@@ -414,10 +394,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        | RegisterFile.getValue(operands[2]));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRs())
+                        | RegisterFile.getValue(statement.getRt()));
                   }
                }));
          instructionList.add(
@@ -429,11 +408,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // ANDing with 0x0000FFFF zero-extends the immediate (high 16 bits always 0).
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        & (operands[2] & 0x0000FFFF));
+                     RegisterFile.updateRegister(statement.getRt(),
+                        RegisterFile.getValue(statement.getRs())
+                        & statement.getUnsignedImmediate());
                   }
                }));
          instructionList.add(
@@ -445,11 +423,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // ANDing with 0x0000FFFF zero-extends the immediate (high 16 bits always 0).
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        | (operands[2] & 0x0000FFFF));
+                     RegisterFile.updateRegister(statement.getRt(),
+                        RegisterFile.getValue(statement.getRs())
+                        | statement.getUnsignedImmediate());
                   }
                }));
          instructionList.add(
@@ -461,10 +438,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        ~(RegisterFile.getValue(operands[1])
-                        | RegisterFile.getValue(operands[2])));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        ~(RegisterFile.getValue(statement.getRs())
+                        | RegisterFile.getValue(statement.getRt())));
                   }
                }));
          instructionList.add(
@@ -476,10 +452,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        ^ RegisterFile.getValue(operands[2]));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRs())
+                        ^ RegisterFile.getValue(statement.getRt()));
                   }
                }));
          instructionList.add(
@@ -491,11 +466,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // ANDing with 0x0000FFFF zero-extends the immediate (high 16 bits always 0).
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1])
-                        ^ (operands[2] & 0x0000FFFF));
+                     RegisterFile.updateRegister(statement.getRt(),
+                        RegisterFile.getValue(statement.getRs())
+                        ^ statement.getUnsignedImmediate());
                   }
                }));					
          instructionList.add(
@@ -507,9 +481,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1]) << operands[2]);
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()) << statement.getShamt());
                   }
                }));
          instructionList.add(
@@ -521,11 +494,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // Mask all but low 5 bits of register containing shamt.
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1]) << 
-                        (RegisterFile.getValue(operands[2]) & 0x0000001F));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()) << 
+                        (RegisterFile.getValue(statement.getRs()) & 0x0000001F));
                   }
                }));
          instructionList.add(
@@ -537,10 +509,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // must zero-fill, so use ">>>" instead of ">>".
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1]) >>> operands[2]);
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()) >>> statement.getShamt());
                   }
                }));
          instructionList.add(
@@ -552,10 +523,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // must sign-fill, so use ">>".
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1]) >> operands[2]);
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()) >> statement.getShamt());
                   }
                }));
          instructionList.add(
@@ -567,11 +537,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // Mask all but low 5 bits of register containing shamt.Use ">>" to sign-fill.
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1]) >> 
-                        (RegisterFile.getValue(operands[2]) & 0x0000001F));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()) >> 
+                        (RegisterFile.getValue(statement.getRs()) & 0x0000001F));
                   }
                }));
          instructionList.add(
@@ -583,11 +552,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                   // Mask all but low 5 bits of register containing shamt.Use ">>>" to zero-fill.
-                     RegisterFile.updateRegister(operands[0],
-                        RegisterFile.getValue(operands[1]) >>> 
-                        (RegisterFile.getValue(operands[2]) & 0x0000001F));
+                     RegisterFile.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()) >>> 
+                        (RegisterFile.getValue(statement.getRs()) & 0x0000001F));
                   }
                }));
          instructionList.add(
@@ -599,12 +567,11 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getWord(
-                            RegisterFile.getValue(operands[2]) + operands[1]));
+                        RegisterFile.updateRegister(statement.getRt(),
+                            Memory.getInstance().getWord(
+                            RegisterFile.getValue(statement.getRs()) + statement.getImmediate()));
                      } 
                          catch (AddressErrorException e)
                         {
@@ -629,12 +596,11 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getWord(
-                            RegisterFile.getValue(operands[2]) + operands[1]));
+                        RegisterFile.updateRegister(statement.getRt(),
+                            Memory.getInstance().getWord(
+                            RegisterFile.getValue(statement.getRs()) + statement.getImmediate()));
                      } 
                          catch (AddressErrorException e)
                         {
@@ -651,15 +617,14 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        int address = RegisterFile.getValue(operands[2]) + operands[1];
-                        int result = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=address % Globals.memory.WORD_LENGTH_BYTES; i++) {
-                           result = Binary.setByte(result,3-i,Globals.memory.getByte(address-i));
+                        int address = RegisterFile.getValue(statement.getRs()) + statement.getImmediate();
+                        int result = RegisterFile.getValue(statement.getRt());
+                        for (int i=0; i<=address % Memory.getInstance().WORD_LENGTH_BYTES; i++) {
+                           result = Binary.setByte(result,3-i,Memory.getInstance().getByte(address-i));
                         }
-                        RegisterFile.updateRegister(operands[0], result);
+                        RegisterFile.updateRegister(statement.getRt(), result);
                      } 
                          catch (AddressErrorException e)
                         {
@@ -676,15 +641,14 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        int address = RegisterFile.getValue(operands[2]) + operands[1];
-                        int result = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=3-(address % Globals.memory.WORD_LENGTH_BYTES); i++) {
-                           result = Binary.setByte(result,i,Globals.memory.getByte(address+i));
+                        int address = RegisterFile.getValue(statement.getRs()) + statement.getImmediate();
+                        int result = RegisterFile.getValue(statement.getRt());
+                        for (int i=0; i<=3-(address % Memory.getInstance().WORD_LENGTH_BYTES); i++) {
+                           result = Binary.setByte(result,i,Memory.getInstance().getByte(address+i));
                         }
-                        RegisterFile.updateRegister(operands[0], result);
+                        RegisterFile.updateRegister(statement.getRt(), result);
                      } 
                          catch (AddressErrorException e)
                         {
@@ -701,12 +665,11 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setWord(
-                            RegisterFile.getValue(operands[2]) + operands[1],
-                            RegisterFile.getValue(operands[0]));
+                        Memory.getInstance().setWord(
+                            RegisterFile.getValue(statement.getRs()) + statement.getImmediate(),
+                            RegisterFile.getValue(statement.getRt()));
                      } 
                          catch (AddressErrorException e)
                         {
@@ -725,18 +688,17 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setWord(
-                            RegisterFile.getValue(operands[2]) + operands[1],
-                            RegisterFile.getValue(operands[0]));
+                        Memory.getInstance().setWord(
+                            RegisterFile.getValue(statement.getRs()) + statement.getImmediate(),
+                            RegisterFile.getValue(statement.getRt()));
                      } 
                          catch (AddressErrorException e)
                         {
                            throw new ProcessingException(statement, e);
                         }
-                     RegisterFile.updateRegister(operands[0],1); // always succeeds
+                     RegisterFile.updateRegister(statement.getRt(),1); // always succeeds
                   }
                }));
          instructionList.add(
@@ -748,13 +710,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        int address = RegisterFile.getValue(operands[2]) + operands[1];
-                        int source = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=address % Globals.memory.WORD_LENGTH_BYTES; i++) {
-                           Globals.memory.setByte(address-i,Binary.getByte(source,3-i));
+                        int address = RegisterFile.getValue(statement.getRs()) + statement.getImmediate();
+                        int source = RegisterFile.getValue(statement.getRt());
+                        for (int i=0; i<=address % Memory.getInstance().WORD_LENGTH_BYTES; i++) {
+                           Memory.getInstance().setByte(address-i,Binary.getByte(source,3-i));
                         }
                      } 
                          catch (AddressErrorException e)
@@ -772,13 +733,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        int address = RegisterFile.getValue(operands[2]) + operands[1];
-                        int source = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=3-(address % Globals.memory.WORD_LENGTH_BYTES); i++) {
-                           Globals.memory.setByte(address+i,Binary.getByte(source,i));
+                        int address = RegisterFile.getValue(statement.getRs()) + statement.getImmediate();
+                        int source = RegisterFile.getValue(statement.getRt());
+                        for (int i=0; i<=3-(address % Memory.getInstance().WORD_LENGTH_BYTES); i++) {
+                           Memory.getInstance().setByte(address+i,Binary.getByte(source,i));
                         }
                      } 
                          catch (AddressErrorException e)
@@ -796,8 +756,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0], operands[1] << 16);
+                     RegisterFile.updateRegister(statement.getRt(), statement.getImmediate() << 16);
                   }
                }));
          instructionList.add(
@@ -809,12 +768,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                  
-                     if (RegisterFile.getValue(operands[0])
-                        == RegisterFile.getValue(operands[1]))
+                     if (RegisterFile.getValue(statement.getRs())
+                        == RegisterFile.getValue(statement.getRt()))
                      {
-                        Globals.instructionSet.processBranch(operands[2]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -827,11 +784,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0])
-                        != RegisterFile.getValue(operands[1]))
+                     if (RegisterFile.getValue(statement.getRs())
+                        != RegisterFile.getValue(statement.getRt()))
                      {
-                        Globals.instructionSet.processBranch(operands[2]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -844,10 +800,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) >= 0)
+                     if (RegisterFile.getValue(statement.getRs()) >= 0)
                      {
-                        Globals.instructionSet.processBranch(operands[1]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -860,11 +815,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) >= 0)
+                     if (RegisterFile.getValue(statement.getRs()) >= 0)
                      {  // the "and link" part
                         Globals.instructionSet.processReturnAddress(31);//RegisterFile.updateRegister("$ra",RegisterFile.getProgramCounter());
-                        Globals.instructionSet.processBranch(operands[1]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   } 
                }));
@@ -877,10 +831,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) > 0)
+                     if (RegisterFile.getValue(statement.getRs()) > 0)
                      {
-                        Globals.instructionSet.processBranch(operands[1]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -893,10 +846,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) <= 0)
+                     if (RegisterFile.getValue(statement.getRs()) <= 0)
                      {
-                        Globals.instructionSet.processBranch(operands[1]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -909,10 +861,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) < 0)
+                     if (RegisterFile.getValue(statement.getRs()) < 0)
                      {
-                        Globals.instructionSet.processBranch(operands[1]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -925,11 +876,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) < 0)
+                     if (RegisterFile.getValue(statement.getRs()) < 0)
                      {  // the "and link" part
                         Globals.instructionSet.processReturnAddress(31);//RegisterFile.updateRegister("$ra",RegisterFile.getProgramCounter());
-                        Globals.instructionSet.processBranch(operands[1]);
+                        Globals.instructionSet.processJump(statement.getBranchTarget());
                      }
                   }
                }));
@@ -942,10 +892,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        (RegisterFile.getValue(operands[1])
-                        < RegisterFile.getValue(operands[2]))
+                     RegisterFile.updateRegister(statement.getRd(),
+                        (RegisterFile.getValue(statement.getRs())
+                        < RegisterFile.getValue(statement.getRt()))
                                 ? 1
                                 : 0);
                   }
@@ -959,17 +908,16 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int first = RegisterFile.getValue(operands[1]);
-                     int second = RegisterFile.getValue(operands[2]);
+                     int first = RegisterFile.getValue(statement.getRs());
+                     int second = RegisterFile.getValue(statement.getRt());
                      if (first >= 0 && second >= 0 || first < 0 && second < 0)
                      {
-                        RegisterFile.updateRegister(operands[0],
+                        RegisterFile.updateRegister(statement.getRd(),
                             (first < second) ? 1 : 0);
                      } 
                      else
                      {
-                        RegisterFile.updateRegister(operands[0],
+                        RegisterFile.updateRegister(statement.getRd(),
                             (first >= 0) ? 1 : 0);
                      }
                   }
@@ -983,11 +931,10 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                  // 16 bit immediate value in operands[2] is sign-extended
-                     RegisterFile.updateRegister(operands[0],
-                        (RegisterFile.getValue(operands[1])
-                        < (operands[2] << 16 >> 16))
+                  // 16 bit immediate value is sign-extended
+                     RegisterFile.updateRegister(statement.getRt(),
+                        (RegisterFile.getValue(statement.getRs())
+                        < statement.getImmediate())
                                 ? 1
                                 : 0);
                   }
@@ -1001,18 +948,17 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int first = RegisterFile.getValue(operands[1]);
-                  // 16 bit immediate value in operands[2] is sign-extended
-                     int second = operands[2] << 16 >> 16;
+                     int first = RegisterFile.getValue(statement.getRs());
+                  // 16 bit immediate value is sign-extended
+                     int second = statement.getImmediate();
                      if (first >= 0 && second >= 0 || first < 0 && second < 0)
                      {
-                        RegisterFile.updateRegister(operands[0],
+                        RegisterFile.updateRegister(statement.getRt(),
                             (first < second) ? 1 : 0);
                      } 
                      else
                      {
-                        RegisterFile.updateRegister(operands[0],
+                        RegisterFile.updateRegister(statement.getRt(),
                             (first >= 0) ? 1 : 0);
                      }
                   }
@@ -1026,9 +972,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[2])!=0)
-                        RegisterFile.updateRegister(operands[0], RegisterFile.getValue(operands[1]));
+                     if (RegisterFile.getValue(statement.getRt())!=0)
+                        RegisterFile.updateRegister(statement.getRd(), RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1040,9 +985,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[2])==0)
-                        RegisterFile.updateRegister(operands[0], RegisterFile.getValue(operands[1]));
+                     if (RegisterFile.getValue(statement.getRt())==0)
+                        RegisterFile.updateRegister(statement.getRd(), RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1054,9 +998,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
                      if (Coprocessor1.getConditionFlag(0)==0)
-                        RegisterFile.updateRegister(operands[0], RegisterFile.getValue(operands[1]));
+                        RegisterFile.updateRegister(statement.getRd(), RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1082,9 +1025,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
                      if (Coprocessor1.getConditionFlag(0)==1)
-                        RegisterFile.updateRegister(operands[0], RegisterFile.getValue(operands[1]));
+                        RegisterFile.updateRegister(statement.getRd(), RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1151,10 +1093,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     Globals.instructionSet.processJump(
-                        ((RegisterFile.getProgramCounter() & 0xF0000000)
-                                | (operands[0] << 2)));            
+                     Globals.instructionSet.processJump(statement.getJumpTarget());
                   }
                }));
          instructionList.add(
@@ -1166,8 +1105,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     Globals.instructionSet.processJump(RegisterFile.getValue(operands[0]));
+                     Globals.instructionSet.processJump(RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1179,11 +1117,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      Globals.instructionSet.processReturnAddress(31);// RegisterFile.updateRegister(31, RegisterFile.getProgramCounter());
-                     Globals.instructionSet.processJump(
-                        (RegisterFile.getProgramCounter() & 0xF0000000)
-                                | (operands[0] << 2));
+                     Globals.instructionSet.processJump(statement.getJumpTarget());
                   }
                }));
          instructionList.add(
@@ -1195,9 +1130,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     Globals.instructionSet.processReturnAddress(operands[0]);//RegisterFile.updateRegister(operands[0], RegisterFile.getProgramCounter());
-                     Globals.instructionSet.processJump(RegisterFile.getValue(operands[1]));
+                     Globals.instructionSet.processReturnAddress(statement.getRd());//RegisterFile.updateRegister(statement.getRd(), RegisterFile.getProgramCounter());
+                     Globals.instructionSet.processJump(RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1209,9 +1143,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      Globals.instructionSet.processReturnAddress(31);//RegisterFile.updateRegister(31, RegisterFile.getProgramCounter()); 
-                     Globals.instructionSet.processJump(RegisterFile.getValue(operands[0]));
+                     Globals.instructionSet.processJump(RegisterFile.getValue(statement.getRs()));
                   }
                }));
          instructionList.add(
@@ -1223,13 +1156,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getByte(
-                            RegisterFile.getValue(operands[2])
-                                    + (operands[1] << 16 >> 16))
+                        RegisterFile.updateRegister(statement.getRt(),
+                            Memory.getInstance().getByte(
+                            RegisterFile.getValue(statement.getRs())
+                                    + statement.getImmediate())
                                             << 24
                                             >> 24);
                      } 
@@ -1248,13 +1180,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getHalf(
-                            RegisterFile.getValue(operands[2])
-                                    + (operands[1] << 16 >> 16))
+                        RegisterFile.updateRegister(statement.getRt(),
+                            Memory.getInstance().getHalf(
+                            RegisterFile.getValue(statement.getRs())
+                                    + statement.getImmediate())
                                             << 16
                                             >> 16);
                      } 
@@ -1273,14 +1204,13 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
                      // offset is sign-extended and loaded halfword value is zero-extended
-                        RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getHalf(
-                            RegisterFile.getValue(operands[2])
-                                    + (operands[1] << 16 >> 16))
+                        RegisterFile.updateRegister(statement.getRt(),
+                            Memory.getInstance().getHalf(
+                            RegisterFile.getValue(statement.getRs())
+                                    + statement.getImmediate())
                                             & 0x0000ffff);
                      } 
                          catch (AddressErrorException e)
@@ -1298,13 +1228,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getByte(
-                            RegisterFile.getValue(operands[2])
-                                    + (operands[1] << 16 >> 16))
+                        RegisterFile.updateRegister(statement.getRt(),
+                            Memory.getInstance().getByte(
+                            RegisterFile.getValue(statement.getRs())
+                                    + statement.getImmediate())
                                             & 0x000000ff);
                      } 
                          catch (AddressErrorException e)
@@ -1322,13 +1251,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setByte(
-                            RegisterFile.getValue(operands[2])
-                                    + (operands[1] << 16 >> 16),
-                                    RegisterFile.getValue(operands[0])
+                        Memory.getInstance().setByte(
+                            RegisterFile.getValue(statement.getRs())
+                                    + statement.getImmediate(),
+                                    RegisterFile.getValue(statement.getRt())
                                             & 0x000000ff);
                      } 
                          catch (AddressErrorException e)
@@ -1346,13 +1274,12 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setHalf(
-                            RegisterFile.getValue(operands[2])
-                                    + (operands[1] << 16 >> 16),
-                                    RegisterFile.getValue(operands[0])
+                        Memory.getInstance().setHalf(
+                            RegisterFile.getValue(statement.getRs())
+                                    + statement.getImmediate(),
+                                    RegisterFile.getValue(statement.getRt())
                                             & 0x0000ffff);
                      } 
                          catch (AddressErrorException e)
@@ -1384,15 +1311,14 @@ public class MipsAssembly extends CustomAssembly{
                {   
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int value = RegisterFile.getValue(operands[1]);
+                     int value = RegisterFile.getValue(statement.getRs());
                      int leadingOnes = 0;
                      int bitPosition = 31;
                      while (Binary.bitValue(value,bitPosition)==1 && bitPosition>=0) {
                         leadingOnes++;
                         bitPosition--;
                      }
-                     RegisterFile.updateRegister(operands[0], leadingOnes);
+                     RegisterFile.updateRegister(statement.getRd(), leadingOnes);
                   }
                }));	
          instructionList.add(        
@@ -1405,15 +1331,14 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int value = RegisterFile.getValue(operands[1]);
+                     int value = RegisterFile.getValue(statement.getRs());
                      int leadingZeros = 0;
                      int bitPosition = 31;
                      while (Binary.bitValue(value,bitPosition)==0 && bitPosition>=0) {
                         leadingZeros++;
                         bitPosition--;
                      }
-                     RegisterFile.updateRegister(operands[0], leadingZeros);
+                     RegisterFile.updateRegister(statement.getRd(), leadingZeros);
                   }
                }));				
          instructionList.add(        
@@ -1425,9 +1350,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     RegisterFile.updateRegister(operands[0],
-                        Coprocessor0.getValue(operands[1]));
+                     RegisterFile.updateRegister(statement.getRt(),
+                        Coprocessor0.getValue(statement.getRd()));
                   }
                }));
          instructionList.add(
@@ -1439,9 +1363,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     Coprocessor0.updateRegister(operands[1],
-                        RegisterFile.getValue(operands[0]));
+                     Coprocessor0.updateRegister(statement.getRd(),
+                        RegisterFile.getValue(statement.getRt()));
                   }
                }));
       			
@@ -2670,7 +2593,7 @@ public class MipsAssembly extends CustomAssembly{
                      try
                      {
                         Coprocessor1.updateRegister(operands[0],
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1]));
                      } 
                          catch (AddressErrorException e)
@@ -2693,7 +2616,7 @@ public class MipsAssembly extends CustomAssembly{
                         throw new ProcessingException(statement, "first register must be even-numbered");
                      }
                   	// IF statement added by DPS 13-July-2011.
-                     if (!Globals.memory.doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
+                     if (!Memory.getInstance().doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
                         throw new ProcessingException(statement,
                            new AddressErrorException("address not aligned on doubleword boundary ",
                            Exceptions.ADDRESS_EXCEPTION_LOAD, RegisterFile.getValue(operands[2]) + operands[1]));
@@ -2702,10 +2625,10 @@ public class MipsAssembly extends CustomAssembly{
                      try
                      {
                         Coprocessor1.updateRegister(operands[0],
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1]));
                         Coprocessor1.updateRegister(operands[0]+1,
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1] + 4));
                      } 
                          catch (AddressErrorException e)
@@ -2726,7 +2649,7 @@ public class MipsAssembly extends CustomAssembly{
                      int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                             Coprocessor1.getValue(operands[0]));
                      } 
@@ -2750,17 +2673,17 @@ public class MipsAssembly extends CustomAssembly{
                         throw new ProcessingException(statement, "first register must be even-numbered");
                      }
                   	// IF statement added by DPS 13-July-2011.
-                     if (!Globals.memory.doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
+                     if (!Memory.getInstance().doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
                         throw new ProcessingException(statement,
                            new AddressErrorException("address not aligned on doubleword boundary ",
                            Exceptions.ADDRESS_EXCEPTION_STORE, RegisterFile.getValue(operands[2]) + operands[1]));
                      }
                      try
                      {
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                             Coprocessor1.getValue(operands[0]));
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1] + 4,
                             Coprocessor1.getValue(operands[0]+1));
                      } 
@@ -2780,8 +2703,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) == RegisterFile.getValue(operands[1]))
+                     if (RegisterFile.getValue(statement.getRs()) == RegisterFile.getValue(statement.getRt()))
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2797,8 +2719,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) == (operands[1] << 16 >> 16)) 
+                     if (RegisterFile.getValue(statement.getRs()) == statement.getImmediate()) 
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2814,8 +2735,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) != RegisterFile.getValue(operands[1]))
+                     if (RegisterFile.getValue(statement.getRs()) != RegisterFile.getValue(statement.getRt()))
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2831,8 +2751,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) != (operands[1] << 16 >> 16)) 
+                     if (RegisterFile.getValue(statement.getRs()) != statement.getImmediate()) 
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2848,8 +2767,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) >= RegisterFile.getValue(operands[1]))
+                     if (RegisterFile.getValue(statement.getRs()) >= RegisterFile.getValue(statement.getRt()))
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2865,9 +2783,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     int first = RegisterFile.getValue(operands[0]);
-                     int second = RegisterFile.getValue(operands[1]);
+                     int first = RegisterFile.getValue(statement.getRs());
+                     int second = RegisterFile.getValue(statement.getRt());
                   	// if signs same, do straight compare; if signs differ & first negative then first greater else second
                      if ((first >= 0 && second >= 0 || first < 0 && second < 0) ? (first >= second) : (first < 0) ) 
                      {
@@ -2885,8 +2802,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) >= (operands[1] << 16 >> 16)) 
+                     if (RegisterFile.getValue(statement.getRs()) >= statement.getImmediate()) 
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2902,10 +2818,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int first = RegisterFile.getValue(operands[0]);
-                     // 16 bit immediate value in operands[1] is sign-extended
-                     int second = operands[1] << 16 >> 16;
+                     int first = RegisterFile.getValue(statement.getRs());
+                     // 16 bit immediate value is sign-extended
+                     int second = statement.getImmediate();
                   	// if signs same, do straight compare; if signs differ & first negative then first greater else second
                      if ((first >= 0 && second >= 0 || first < 0 && second < 0) ? (first >= second) : (first < 0) ) 
                      {
@@ -2923,8 +2838,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) < RegisterFile.getValue(operands[1]))
+                     if (RegisterFile.getValue(statement.getRs()) < RegisterFile.getValue(statement.getRt()))
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2940,9 +2854,8 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   { 
-                     int[] operands = statement.getOperands();
-                     int first = RegisterFile.getValue(operands[0]);
-                     int second = RegisterFile.getValue(operands[1]);
+                     int first = RegisterFile.getValue(statement.getRs());
+                     int second = RegisterFile.getValue(statement.getRt());
                   	// if signs same, do straight compare; if signs differ & first positive then first is less else second
                      if ((first >= 0 && second >= 0 || first < 0 && second < 0) ? (first < second) : (first >= 0) ) 
                      {
@@ -2960,8 +2873,7 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     if (RegisterFile.getValue(operands[0]) < (operands[1] << 16 >> 16)) 
+                     if (RegisterFile.getValue(statement.getRs()) < statement.getImmediate()) 
                      {
                         throw new ProcessingException(statement,
                             "trap",Exceptions.TRAP_EXCEPTION);
@@ -2977,10 +2889,9 @@ public class MipsAssembly extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int[] operands = statement.getOperands();
-                     int first = RegisterFile.getValue(operands[0]);
-                     // 16 bit immediate value in operands[1] is sign-extended
-                     int second = operands[1] << 16 >> 16;
+                     int first = RegisterFile.getValue(statement.getRs());
+                     // 16 bit immediate value is sign-extended
+                     int second = statement.getImmediate();
                   	// if signs same, do straight compare; if signs differ & first positive then first is less else second
                      if ((first >= 0 && second >= 0 || first < 0 && second < 0) ? (first < second) : (first >= 0) ) 
                      {
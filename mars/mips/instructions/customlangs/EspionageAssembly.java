@@ -67,7 +67,7 @@ public class EspionageAssembly extends CustomAssembly {
                         int[] operands = statement.getOperands();
                         try {
                             RegisterFile.updateRegister(operands[0],
-                                Globals.memory.getWord(
+                                Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1])
                             );
                         } 
@@ -86,7 +86,7 @@ public class EspionageAssembly extends CustomAssembly {
                         int[] operands = statement.getOperands();
                         try {
                             RegisterFile.updateRegister(operands[0],
-                                    Globals.memory.getWord(
+                                    Memory.getInstance().getWord(
                                             RegisterFile.getValue(operands[2]) + operands[1])
                             );
                         }
@@ -104,7 +104,7 @@ public class EspionageAssembly extends CustomAssembly {
                     public void simulate(ProgramStatement statement) throws ProcessingException {
                         int[] operands = statement.getOperands();
                         try {
-                            Globals.memory.setWord(
+                            Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                                     RegisterFile.getValue(operands[0])
                             );
@@ -123,7 +123,7 @@ public class EspionageAssembly extends CustomAssembly {
                     public void simulate(ProgramStatement statement) throws ProcessingException {
                         int[] operands = statement.getOperands();
                         try {
-                            Globals.memory.setWord(
+                            Memory.getInstance().setWord(
                                     RegisterFile.getValue(operands[2]) + operands[1],
                                     RegisterFile.getValue(operands[0])
                             );
@@ -233,7 +233,7 @@ public class EspionageAssembly extends CustomAssembly {
                         int[] operands = statement.getOperands();
                         RegisterFile.updateRegister(29, RegisterFile.getValue(29) - 4);
                         try {
-                            Globals.memory.setWord(
+                            Memory.getInstance().setWord(
                                 RegisterFile.getValue(29),
                                 RegisterFile.getValue(operands[0])
                             );
@@ -254,7 +254,7 @@ public class EspionageAssembly extends CustomAssembly {
                         int[] operands = statement.getOperands();
                         try {
                             RegisterFile.updateRegister(operands[0],
-                                Globals.memory.getWord(
+                                Memory.getInstance().getWord(
                                     RegisterFile.getValue(RegisterFile.STACK_POINTER_REGISTER)
                                 )
                             );
@@ -410,12 +410,12 @@ public class EspionageAssembly extends CustomAssembly {
                         char ch = 0;
                         try {
                             int byteAddress = RegisterFile.getValue(operands[0]);
-                            ch = (char) Globals.memory.getByte(byteAddress);
+                            ch = (char) Memory.getInstance().getByte(byteAddress);
                             // won't stop until NULL byte reached!
                             while (ch != 0) {
                                 SystemIO.printString(String.valueOf(ch));
                                 byteAddress++;
-                                ch = (char) Globals.memory.getByte(byteAddress);
+                                ch = (char) Memory.getInstance().getByte(byteAddress);
                             }
                         }
                         catch (AddressErrorException e) {
@@ -13,7 +13,17 @@
 public class MarioKart extends CustomAssembly{
 
    // value for $v0 representing no item
-   private static int item = -1;
+   private static final int NO_ITEM = -1;
+
+   // The item held, kept per machine so programs running side by side each have their own.
+   private static int getItem() {
+      Integer item = (Integer) MachineContext.current().getState(MarioKart.class);
+      return (item == null) ? NO_ITEM : item.intValue();
+   }
+
+   private static void setItem(int item) {
+      MachineContext.current().setState(MarioKart.class, Integer.valueOf(item));
+   }
 
     @Override
     public String getName(){
@@ -137,7 +147,7 @@ public class MarioKart extends CustomAssembly{
                      // roll for a random number
                      Random random = new Random();
                      int roll = random.nextInt(6);
-                     item = roll;
+                     setItem(roll);
                      // SystemIO.printString("Random roll: " + roll + "\n");
 
                      RegisterFile.updateRegister(2, roll);
@@ -179,7 +189,7 @@ public class MarioKart extends CustomAssembly{
 
                   public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     if (item == -1) {
+                     if (getItem() == NO_ITEM) {
                         SystemIO.printString("No item to use!\n");
                         return;
                      }
@@ -209,8 +219,8 @@ public class MarioKart extends CustomAssembly{
                         break;
                      }
                      
-                     item = -1;
-                     RegisterFile.updateRegister(2, -1);
+                     setItem(NO_ITEM);
+                     RegisterFile.updateRegister(2, NO_ITEM);
                     }
                 }
             }));
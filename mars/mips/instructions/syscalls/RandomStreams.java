@@ -1,5 +1,7 @@
    package mars.mips.instructions.syscalls;
+   import mars.*;
 	import java.util.HashMap;
+	import java.util.Random;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -31,13 +33,55 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 
 /** 
- * This small class serves only to hold a static HashMap for storing
- * random number generators for use by all the random number generator
- * syscalls.
+ * This small class holds the random number generators of one machine for use
+ * by all the random number generator syscalls.  Each MachineContext has its own,
+ * starting with none, so programs running side by side do not share streams.
  */
  
     public class RandomStreams {
       /** Collection of pseudorandom number streams available for use in Rand-type syscalls.
        * The streams are by default not seeded. */
-		 static final HashMap randomStreams = new HashMap();
+		 private final HashMap randomStreams = new HashMap();
+
+      /**
+       * The streams of the calling thread's machine context, created on first use.
+       */
+       static RandomStreams current() {
+         MachineContext context = MachineContext.current();
+         synchronized (context) {
+            RandomStreams streams = (RandomStreams) context.getState(RandomStreams.class);
+            if (streams == null) {
+               streams = new RandomStreams();
+               context.setState(RandomStreams.class, streams);
+            }
+            return streams;
+         }
+      }
+
+      /**
+       * The stream with the given index, created non-seeded if there is none yet.
+       */
+       Random get(int index) {
+         Integer key = Integer.valueOf(index);
+         Random stream = (Random) randomStreams.get(key);
+         if (stream == null) {
+            stream = new Random(); // create a non-seeded stream
+            randomStreams.put(key, stream);
+         }
+         return stream;
+      }
+
+      /**
+       * Seed the stream with the given index, creating it if there is none yet.
+       */
+       void setSeed(int index, long seed) {
+         Integer key = Integer.valueOf(index);
+         Random stream = (Random) randomStreams.get(key);
+         if (stream == null) {
+            randomStreams.put(key, new Random(seed));
+         } 
+         else {
+            stream.setSeed(seed);
+         }
+      }
    }
\ No newline at end of file
@@ -50,21 +50,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void simulate(ProgramStatement statement) throws ProcessingException {
          int byteAddress = RegisterFile.getValue(4);
-         char ch = 0;
+         StringBuffer string = new StringBuffer();
          try
          {
-            ch = (char) Globals.memory.getByte(byteAddress);
-                              // won't stop until NULL byte reached!
-            while (ch != 0)
-            {
-               SystemIO.printString(new Character(ch).toString());
-               byteAddress++;
-               ch = (char) Globals.memory.getByte(byteAddress);
-            }
+            Memory.getInstance().getNullTerminatedString(byteAddress, string);
          } 
              catch (AddressErrorException e)
             {
+               // Characters before the bad address are printed, as when printing one at a time.
+               SystemIO.printString(string.toString());
                throw new ProcessingException(statement, e);
             }
+         SystemIO.printString(string.toString());
       }
    }
\ No newline at end of file
@@ -54,12 +54,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void simulate(ProgramStatement statement) throws ProcessingException {
           // Input arguments: $a0 = index of pseudorandom number generator
           // Return: $a0 = the next pseudorandom, uniformly distributed int value from this random number generator's sequence.
-          Integer index = new Integer(RegisterFile.getValue(4));
-			 Random stream = (Random) RandomStreams.randomStreams.get(index);
-          if (stream == null) {
-			    stream = new Random(); // create a non-seeded stream
-			    RandomStreams.randomStreams.put(index, stream);
-			 } 
+			 Random stream = RandomStreams.current().get(RegisterFile.getValue(4));
 			 RegisterFile.updateRegister(4, stream.nextInt() );
        }
 
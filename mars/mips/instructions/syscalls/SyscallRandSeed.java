@@ -3,7 +3,6 @@
    import mars.mips.hardware.*;
 	import mars.simulator.*;
    import mars.*;
-   import java.util.Random;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -55,13 +54,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           //   $a1 = seed for pseudorandom number generator.
           // Result: No values are returned. Sets the seed of the underlying Java pseudorandom number generator.
 
-          Integer index = new Integer(RegisterFile.getValue(4));
-			 Random stream = (Random) RandomStreams.randomStreams.get(index);
-          if (stream == null) {
-			    RandomStreams.randomStreams.put(index, new Random(RegisterFile.getValue(5)));
-			 } else {
-			    stream.setSeed(RegisterFile.getValue(5));
-			 }
+			 RandomStreams.current().setSeed(RegisterFile.getValue(4), RegisterFile.getValue(5));
        }
 
    }
@@ -67,17 +67,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int stringLength = Math.min(maxLength, inputString.length());
          try
          {
+            byte[] bytes = new byte[stringLength];
             for (int index = 0; index < stringLength; index++)
             {
-               Globals.memory.setByte(buf + index,
-                                       inputString.charAt(index));
-            }            
+               bytes[index] = (byte) inputString.charAt(index);
+            }
+            Memory.getInstance().writeBytes(buf, bytes, 0, stringLength);
             if (stringLength < maxLength)
             {
-               Globals.memory.setByte(buf + stringLength, '\n');
+               Memory.getInstance().setByte(buf + stringLength, '\n');
                stringLength++;
             }
-            if (addNullByte) Globals.memory.setByte(buf + stringLength, 0);
+            if (addNullByte) Memory.getInstance().setByte(buf + stringLength, 0);
          } 
              catch (AddressErrorException e)
             {
@@ -53,6 +53,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final int COPROC1_CONDITION_CLEAR = 8;
       private static final int COPROC1_CONDITION_SET = 9;
       private static final int DO_NOTHING = 10;  // instruction does not write anything.
+   	// Flag or-ed into the stored action when the instruction executed in a delay slot.
+      private static final int IN_DELAY_SLOT = 0x40;
    
       // Flag to mark BackStep object as prepresenting specific situation: user manipulates
    	// memory/register value via GUI after assembling program but before running it.
@@ -94,6 +96,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          engaged = state;
       }
    
+      /**
+   	 * Discard all recorded steps.  Used when the machine state is replaced wholesale
+   	 * (e.g. restored from a checkpoint), which makes recorded steps meaningless.
+   	 */
+       public void clear() {
+         backSteps.clear();
+      }
+   
       /**
    	 * Test whether there are steps that can be undone.
    	 * @return true if there are no steps to be undone, false otherwise.
@@ -110,7 +120,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	// Added 25 June 2007
        public boolean inDelaySlot() {
-         return !empty() && backSteps.peek().inDelaySlot;
+         return !empty() && backSteps.peekInDelaySlot();
       }
    	
       /**
@@ -127,49 +137,48 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 
        public void backStep() {
          if (engaged && !backSteps.empty()) {
-            ProgramStatement statement = ((BackStep)backSteps.peek()).ps;
+            int statementPC = backSteps.peekPC();
             engaged = false; // GOTTA DO THIS SO METHOD CALL IN SWITCH WILL NOT RESULT IN NEW ACTION ON STACK!
             do {
-               BackStep step = (BackStep) backSteps.pop();
-            /*
-            	System.out.println("backstep POP: action "+step.action+" pc "+mars.util.Binary.intToHexString(step.pc)+
-            	                   " source "+((step.ps==null)? "none":step.ps.getSource())+
-            							 " parm1 "+step.param1+" parm2 "+step.param2);
-            */
-               if (step.pc != NOT_PC_VALUE) {
-                  RegisterFile.setProgramCounter(step.pc);
+               int pc = backSteps.peekPC();
+               int action = backSteps.peekAction();
+               int param1 = backSteps.peekParam1();
+               int param2 = backSteps.peekParam2();
+               backSteps.pop();
+               if (pc != NOT_PC_VALUE) {
+                  RegisterFile.setProgramCounter(pc);
                }
                try {
-                  switch (step.action) {
+                  switch (action) {
                      case MEMORY_RESTORE_RAW_WORD : 
-                        Globals.memory.setRawWord(step.param1, step.param2);
+                        Memory.getInstance().setRawWord(param1, param2);
                         break;
                      case MEMORY_RESTORE_WORD : 
-                        Globals.memory.setWord(step.param1, step.param2);
+                        Memory.getInstance().setWord(param1, param2);
                         break;
                      case MEMORY_RESTORE_HALF :
-                        Globals.memory.setHalf(step.param1, step.param2);
+                        Memory.getInstance().setHalf(param1, param2);
                         break;
                      case MEMORY_RESTORE_BYTE :
-                        Globals.memory.setByte(step.param1, step.param2);
+                        Memory.getInstance().setByte(param1, param2);
                         break;
                      case REGISTER_RESTORE :
-                        RegisterFile.updateRegister(step.param1, step.param2);
+                        RegisterFile.updateRegister(param1, param2);
                         break;
                      case PC_RESTORE : 
-                        RegisterFile.setProgramCounter(step.param1);
+                        RegisterFile.setProgramCounter(param1);
                         break;
                      case COPROC0_REGISTER_RESTORE :
-                        Coprocessor0.updateRegister(step.param1, step.param2);
+                        Coprocessor0.updateRegister(param1, param2);
                         break;
                      case COPROC1_REGISTER_RESTORE :
-                        Coprocessor1.updateRegister(step.param1, step.param2);
+                        Coprocessor1.updateRegister(param1, param2);
                         break;
                      case COPROC1_CONDITION_CLEAR :
-                        Coprocessor1.clearConditionFlag(step.param1);
+                        Coprocessor1.clearConditionFlag(param1);
                         break;
                      case COPROC1_CONDITION_SET :
-                        Coprocessor1.setConditionFlag(step.param1);
+                        Coprocessor1.setConditionFlag(param1);
                         break;
                      case DO_NOTHING :
                         break;
@@ -180,7 +189,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      System.out.println("Internal MARS error: address exception while back-stepping.");
                      System.exit(0);
                   }
-            } while (!backSteps.empty() && statement == ((BackStep)backSteps.peek()).ps);
+            } while (!backSteps.empty() && statementPC == backSteps.peekPC());
             engaged = true;  // RESET IT (was disabled at top of loop -- see comment)
          }
       }
@@ -321,93 +330,59 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * is to do nothing!  This is just a place holder so when user is backstepping
    	  * through the program no instructions will be skipped.  Cosmetic. If the top of the
    	  * stack has the same PC counter, the do-nothing action will not be added.  
+   	  * Consecutive do-nothing instructions at sequential addresses share one stack entry.
    	  * @return 0
    	  */
        public int addDoNothing(int pc) {
-         if (backSteps.empty() || backSteps.peek().pc != pc) { 
-            backSteps.push(DO_NOTHING, pc);
-         }
+         backSteps.pushDoNothing(pc);
          return 0;
       }
    	
-   		   	 	
-   	// Represents a "back step" (undo action) on the stack.
-       private class BackStep {
-         private int action;  // what do do MEMORY_RESTORE_WORD, etc
-         private int pc;      // program counter value when original step occurred
-         private ProgramStatement ps;   // statement whose action is being "undone" here
-         private int param1;  // first parameter required by that action
-         private int param2;  // optional second parameter required by that action
-         private boolean inDelaySlot; // true if instruction executed in "delay slot" (delayed branching enabled)
-      
-         // it is critical that BackStep object get its values by calling this method
-      	// rather than assigning to individual members, because of the technique used
-      	// to set its ps member (and possibly pc).
-          private void assign(int act, int programCounter, int parm1, int parm2) {
-            action = act;
-            pc     = programCounter;
-            try {
-            // Client does not have direct access to program statement, and rather than making all
-            // of them go through the methods below to obtain it, we will do it here.  
-            // Want the program statement but do not want observers notified.
-               ps = Globals.memory.getStatementNoNotify(programCounter);
-            } 
-                catch (Exception e) {
-                // The only situation causing this so far: user modifies memory or register
-                // contents through direct manipulation on the GUI, after assembling the program but
-                // before starting to run it (or after backstepping all the way to the start).
-                // The action will not be associated with any instruction, but will be carried out
-                // when popped.
-                  ps = null;
-                  pc = NOT_PC_VALUE; // Backstep method above will see this as flag to not set PC
-               } 
-            param1 = parm1;
-            param2 = parm2;
-            inDelaySlot = Simulator.inDelaySlot(); // ADDED 25 June 2007
-         /*				
-            System.out.println("backstep PUSH: action "+action+" pc "+mars.util.Binary.intToHexString(pc)+
-         		                   " source "+((ps==null)? "none":ps.getSource())+
-         								 " parm1 "+param1+" parm2 "+param2);
-         */
-         }
-      }
-   	
    	// *****************************************************************************
    	// special purpose stack class for backstepping.  You've heard of circular queues
    	// implemented with an array, right?  This is a circular stack!  When full, the
    	// newly-pushed item overwrites the oldest item, with circular top!  All operations 
    	// are constant time.  It's synchronized too, to be safe (is used by both the 
    	// simulation thread and the GUI thread for the back-step button).
-   	// Upon construction, it is filled with newly-created empty BackStep objects which
-   	// will exist for the life of the stack.  Push does not create a BackStep object 
-   	// but instead overwrites the contents of the existing one.  Thus during MIPS
-   	// program (simulated) execution, BackStep objects are never created or junked
-   	// regardless of how many steps are executed.  This will speed things up a bit
-   	// and make life easier for the garbage collector.
+   	//
+   	// Each entry ("back step") is one undo action: the action code (with IN_DELAY_SLOT
+   	// or-ed in if the instruction executed in a delay slot), the program counter of the
+   	// instruction being undone (NOT_PC_VALUE if not from an instruction), and up to two
+   	// parameters for the action.  Entries are stored column-wise in primitive arrays,
+   	// allocated once, so pushing never creates objects and each entry takes 13 bytes.
+   	// The entries of one instruction are recognized by their common program counter.
+   	//
+   	// A DO_NOTHING entry stands for a run of instructions at sequential addresses that
+   	// wrote nothing: its pc is that of the last one and param1 is how many there are.
+   	// Popping it undoes only the last instruction of the run.
    	
        private class BackstepStack {
          private int capacity;
          private int size;
          private int top;
-         private BackStep[] stack;
+         private byte[] actions;
+         private int[] pcs;
+         private int[] param1s;
+         private int[] param2s;
       
-          // Stack is created upon successful assembly or reset.  The one-time overhead of
-      	 // creating all the BackStep objects will not be noticed by the user, and enhances
-      	 // runtime performance by not having to create or recycle them during MIPS
-      	 // program execution.
           private BackstepStack(int capacity) {
             this.capacity = capacity;
             this.size = 0;
             this.top = -1;
-            this.stack = new BackStep[capacity];
-            for (int i=0; i<capacity; i++) {
-               this.stack[i] = new BackStep();
-            }
+            this.actions = new byte[capacity];
+            this.pcs = new int[capacity];
+            this.param1s = new int[capacity];
+            this.param2s = new int[capacity];
          }
       	
           private synchronized boolean empty() {
             return size==0;
          }
+      	
+          private synchronized void clear() {
+            size = 0;
+            top = -1;
+         }
          
           private synchronized void push(int act, int programCounter, int parm1, int parm2) {
             if (size==0) {
@@ -421,24 +396,42 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             else { // size == capacity.  The top moves up one, replacing oldest entry (goodbye!)
                top = (top + 1) % capacity;
             }
-         	// We'll re-use existing objects rather than create/discard each time.
-         	// Must use assign() method rather than series of assignment statements!
-            stack[top].assign(act, programCounter, parm1, parm2);
+            if (Simulator.inDelaySlot()) {
+               act |= IN_DELAY_SLOT;
+            }
+            actions[top] = (byte) act;
+            pcs[top] = instructionPC(programCounter);
+            param1s[top] = parm1;
+            param2s[top] = parm2;
          }
       	
           private synchronized void push(int act, int programCounter, int parm1) {
             push(act, programCounter, parm1, 0);
          }
       	
-          private synchronized void push(int act, int programCounter) {
-            push(act, programCounter, 0, 0);
+          private synchronized void pushDoNothing(int programCounter) {
+            if (size > 0) {
+               if (pcs[top] == programCounter) {
+                  return;
+               }
+               if (actions[top] == DO_NOTHING && pcs[top] + Instruction.INSTRUCTION_LENGTH == programCounter
+                   && !Simulator.inDelaySlot()) {
+                  pcs[top] = programCounter;
+                  param1s[top]++;
+                  return;
+               }
+            }
+            push(DO_NOTHING, programCounter, 1);
          }
-         
+      
       	// NO PROTECTION.  This class is used only within this file so there is no excuse
       	// for trying to pop from empty stack.
-          private synchronized BackStep pop() {
-            BackStep bs;
-            bs = stack[top];
+          private synchronized void pop() {
+            if ((actions[top] & ~IN_DELAY_SLOT) == DO_NOTHING && param1s[top] > 1) {
+               pcs[top] -= Instruction.INSTRUCTION_LENGTH;
+               param1s[top]--;
+               return;
+            }
             if (size==1) {
                top = -1;
             } 
@@ -446,15 +439,49 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                top = (top + capacity - 1) % capacity;
             }
             size--;
-            return bs;
          }
       
-      	// NO PROTECTION.  This class is used only within this file so there is no excuse
-      	// for trying to peek from empty stack.         
-          private synchronized BackStep peek() {
-            return stack[top];
+      	// NO PROTECTION.  The peek methods are used only within this file so there is 
+      	// no excuse for trying to peek at an empty stack.         
+          private synchronized int peekAction() {
+            return actions[top] & ~IN_DELAY_SLOT;
+         }
+      	
+          private synchronized int peekPC() {
+            return pcs[top];
+         }
+      	
+          private synchronized int peekParam1() {
+            return param1s[top];
+         }
+      	
+          private synchronized int peekParam2() {
+            return param2s[top];
+         }
+      	
+          private synchronized boolean peekInDelaySlot() {
+            return (actions[top] & IN_DELAY_SLOT) != 0;
+         }
+      	
+      	// The PC value to record for an action.  It is NOT_PC_VALUE if the value does not
+      	// address a program statement, which happens when the user modifies memory or register
+      	// contents through direct manipulation on the GUI, after assembling the program but
+      	// before starting to run it (or after backstepping all the way to the start).
+      	// The action will not be associated with any instruction, but will be carried out
+      	// when popped.
+          private int instructionPC(int programCounter) {
+            if (Memory.wordAligned(programCounter) && 
+                (Memory.inTextSegment(programCounter) || Memory.inKernelTextSegment(programCounter))) {
+               return programCounter;
+            }
+            try {
+               Memory.getInstance().getStatementNoNotify(programCounter);
+               return programCounter;
+            } 
+                catch (Exception e) {
+                  return NOT_PC_VALUE;
+               }
          }
-      			
       }
    
-   }
\ No newline at end of file
+   }
@@ -0,0 +1,98 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.instructions.*;
+
+/**
+ * A straight-line run of predecoded text segment statements.  The block starts
+ * at a given address and extends through the first branch or jump, or up to (but not
+ * including) the first word that has no executable statement.  Each statement's
+ * SimulationCode is looked up once, when the block is built, so the fast run loop
+ * in Simulator does not repeat the memory fetch and cast for every instruction.
+ *
+ * A block that is entered often is translated into a CompiledBlock, which the
+ * simulator then runs instead when conditions allow.
+ *
+ * Blocks are built and cached by BasicBlockCache.  A block does not "know" which
+ * of its instructions will actually transfer control; the simulator detects that
+ * at runtime by comparing the program counter against the next sequential address.
+ *
+ * @see BasicBlockCache
+ */
+
+    public class BasicBlock {
+      private int startAddress;
+      private ProgramStatement[] statements;
+      private SimulationCode[] simulationCode;
+      private int entries;              // times entered, counted up to the hot block threshold
+      private CompiledBlock compiledBlock;
+
+    /**
+     * Create a basic block from the given statements, which must occupy consecutive
+     * text segment words starting at the given address.
+     * @param startAddress text segment address of the first statement
+     * @param statements the statements, in address order.  Each must have a BasicInstruction.
+     */
+       BasicBlock(int startAddress, ProgramStatement[] statements) {
+         this.startAddress = startAddress;
+         this.statements = statements;
+         this.simulationCode = new SimulationCode[statements.length];
+         for (int i=0; i<statements.length; i++) {
+            simulationCode[i] = ((BasicInstruction) statements[i].getInstruction()).getSimulationCode();
+         }
+      }
+
+    /**
+     * Address of the first statement in the block.
+     * @return text segment address
+     */
+       public int getStartAddress() {
+         return startAddress;
+      }
+
+    /**
+     * Number of statements in the block.  Always at least 1.
+     * @return statement count
+     */
+       public int length() {
+         return statements.length;
+      }
+
+    /**
+     * The block's statements, in address order.  Do not modify.
+     * @return array of ProgramStatement
+     */
+       public ProgramStatement[] getStatements() {
+         return statements;
+      }
+
+    /**
+     * SimulationCode for each statement, parallel to getStatements().  Do not modify.
+     * @return array of SimulationCode
+     */
+       public SimulationCode[] getSimulationCode() {
+         return simulationCode;
+      }
+
+    /**
+     * Count an entry into the block and return its compiled form, compiling it when
+     * the count reaches Globals.hotBlockThreshold.
+     * @return the compiled block, or null if the block is not yet hot or cannot be compiled
+     */
+       CompiledBlock enterCompiled() {
+         if (compiledBlock == null && entries < Globals.hotBlockThreshold) {
+            entries++;
+            if (entries == Globals.hotBlockThreshold) {
+               compiledBlock = CompiledBlock.compile(this);
+            }
+         }
+         return compiledBlock;
+      }
+
+    /**
+     * The block's compiled form, without counting an entry.
+     * @return the compiled block, or null if it has not been compiled
+     */
+       CompiledBlock getCompiledBlock() {
+         return compiledBlock;
+      }
+   }
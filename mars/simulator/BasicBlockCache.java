@@ -0,0 +1,130 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+
+/**
+ * Cache of predecoded basic blocks, keyed by starting address, for use by the
+ * simulator's fast run loop.  Blocks are built lazily the first time execution
+ * reaches an address and are discarded whenever the text segment is modified
+ * (see Memory.getTextSegmentVersion()).
+ *
+ * Storage mirrors the Memory text segment tables: a table of 1024 blocks of
+ * 1024 entries each for the user text segment and another for the kernel text
+ * segment, so lookup is two array indexes and no hashing or boxing.
+ *
+ * @see BasicBlock
+ */
+
+    public class BasicBlockCache {
+
+      // Longest block we will build.  Limits the work wasted when a block is entered
+   	// at its top but left early, and bounds how long the simulator goes between
+   	// checks of the stop flag.
+      private static final int MAXIMUM_BLOCK_LENGTH = 256;
+      private static final int TABLE_BLOCK_LENGTH = 1024;
+      private static final int TABLE_LENGTH = 1024;
+
+      private BasicBlock[][] textBlocks;
+      private BasicBlock[][] kernelTextBlocks;
+      private int textSegmentVersion;
+
+    /**
+     * Create an empty cache.
+     */
+       public BasicBlockCache() {
+         clear();
+      }
+
+    /**
+     * Discard all cached blocks.
+     */
+       public void clear() {
+         textBlocks = new BasicBlock[TABLE_LENGTH][];
+         kernelTextBlocks = new BasicBlock[TABLE_LENGTH][];
+         textSegmentVersion = Memory.getInstance().getTextSegmentVersion();
+      }
+
+    /**
+     * Discard all cached blocks if the text segment has been modified since
+     * they were built.  Call before a run.
+     */
+       public void validate() {
+         if (textSegmentVersion != Memory.getInstance().getTextSegmentVersion()) {
+            clear();
+         }
+      }
+
+    /**
+     * Return the basic block starting at the given address, building and caching
+     * it if necessary.
+     * @param address text segment address
+     * @return the block, or null if the address is not in a text segment, or does not
+     * contain a statement with a basic instruction.  The caller must then use the ordinary
+     * one-instruction-at-a-time path, which reports any error.
+     */
+       public BasicBlock getBlock(int address) {
+         BasicBlock[][] table;
+         int relative;
+         if (Memory.inTextSegment(address)) {
+            table = textBlocks;
+            relative = (address - Memory.textBaseAddress) >> 2;
+         }
+         else if (Memory.inKernelTextSegment(address)) {
+            table = kernelTextBlocks;
+            relative = (address - Memory.kernelTextBaseAddress) >> 2;
+         }
+         else {
+            return null;
+         }
+         if ((address & 3) != 0 || relative >= TABLE_LENGTH * TABLE_BLOCK_LENGTH) {
+            return null;
+         }
+         int block = relative / TABLE_BLOCK_LENGTH;
+         int offset = relative % TABLE_BLOCK_LENGTH;
+         if (table[block] == null) {
+            table[block] = new BasicBlock[TABLE_BLOCK_LENGTH];
+         }
+         BasicBlock basicBlock = table[block][offset];
+         if (basicBlock == null) {
+            basicBlock = buildBlock(address);
+            table[block][offset] = basicBlock;
+         }
+         return basicBlock;
+      }
+
+      // Collect consecutive statements starting at address.  Stop after a branch or
+   	// jump, or before a word that has no statement or no basic instruction.
+       private BasicBlock buildBlock(int address) {
+         ProgramStatement[] statements = new ProgramStatement[MAXIMUM_BLOCK_LENGTH];
+         int count = 0;
+         int next = address;
+         while (count < MAXIMUM_BLOCK_LENGTH) {
+            ProgramStatement statement;
+            try {
+               statement = Memory.getInstance().getStatementNoNotify(next);
+            }
+                catch (AddressErrorException aee) {
+                  break;
+               }
+            if (statement == null || !(statement.getInstruction() instanceof BasicInstruction)) {
+               break;
+            }
+            statements[count++] = statement;
+            BasicInstructionFormat format = ((BasicInstruction) statement.getInstruction()).getInstructionFormat();
+            if (format == BasicInstructionFormat.I_BRANCH_FORMAT || format == BasicInstructionFormat.J_FORMAT) {
+               break;
+            }
+            next += Instruction.INSTRUCTION_LENGTH;
+            if (!Memory.inTextSegment(next) && !Memory.inKernelTextSegment(next)) {
+               break;
+            }
+         }
+         if (count == 0) {
+            return null;
+         }
+         ProgramStatement[] blockStatements = new ProgramStatement[count];
+         System.arraycopy(statements, 0, blockStatements, 0, count);
+         return new BasicBlock(address, blockStatements);
+      }
+   }
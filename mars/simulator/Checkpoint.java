@@ -0,0 +1,116 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.util.*;
+   import mars.mips.hardware.*;
+
+/**
+ * Complete machine state at some point in a program's execution: memory, the
+ * register file, coprocessors 0 and 1, any pending delayed branch, and the
+ * positions of open files.  Taken and restored by TimeTravel, which also notes how
+ * many of its logged syscalls had been executed.
+ *
+ * @see TimeTravel
+ */
+
+    class Checkpoint {
+      private long instructionCount;
+      private int syscallCount;
+      private MemorySnapshot memory;
+      private int[] registers;          // $0-$31, then hi, lo
+      private int programCounter;
+      private int[] coprocessor0;       // parallel to Coprocessor0.getRegisters()
+      private int[] coprocessor1;
+      private int conditionFlags;
+      private int delayedBranchState, delayedBranchTarget;
+      private SystemIO.FileState files;
+   
+    /**
+     * Capture the current machine state.  Must be called only between instructions.
+     * @param instructionCount number of instructions executed so far
+     * @param syscallCount number of syscalls executed so far
+     */
+       Checkpoint(long instructionCount, int syscallCount) {
+         this.instructionCount = instructionCount;
+         this.syscallCount = syscallCount;
+         memory = Memory.getInstance().snapshot();
+         Register[] regs = RegisterFile.getRegisters();
+         registers = new int[regs.length + 2];
+         for (int i=0; i<regs.length; i++) {
+            registers[i] = regs[i].getValueNoNotify();
+         }
+         registers[regs.length] = RegisterFile.getValue(33);
+         registers[regs.length+1] = RegisterFile.getValue(34);
+         programCounter = RegisterFile.getProgramCounterRegister().getValueNoNotify();
+         coprocessor0 = values(Coprocessor0.getRegisters());
+         coprocessor1 = values(Coprocessor1.getRegisters());
+         conditionFlags = Coprocessor1.getConditionFlags();
+         delayedBranchState = DelayedBranch.getState();
+         delayedBranchTarget = DelayedBranch.getBranchTargetAddress();
+         files = SystemIO.saveFileState();
+      }
+   
+    /**
+     * Number of instructions that had been executed when this checkpoint was taken.
+     * @return instruction count
+     */
+       long getInstructionCount() {
+         return instructionCount;
+      }
+   
+    /**
+     * Number of syscalls that had been executed when this checkpoint was taken.
+     * @return syscall count
+     */
+       int getSyscallCount() {
+         return syscallCount;
+      }
+   
+    /**
+     * Program counter value when this checkpoint was taken.
+     * @return address of next instruction to execute
+     */
+       int getProgramCounter() {
+         return programCounter;
+      }
+   
+    /**
+     * Put the machine back in the state it was when this checkpoint was taken.
+     * Backstepping must be disabled by the caller so restoring is not recorded.
+     */
+       void restore() {
+         Memory.getInstance().restore(memory);
+         int numRegisters = RegisterFile.getRegisters().length;
+         for (int i=1; i<numRegisters; i++) {
+            RegisterFile.updateRegister(i, registers[i]);
+         }
+         RegisterFile.updateRegister(33, registers[numRegisters]);
+         RegisterFile.updateRegister(34, registers[numRegisters+1]);
+         RegisterFile.initializeProgramCounter(programCounter);
+         Register[] regs = Coprocessor0.getRegisters();
+         for (int i=0; i<regs.length; i++) {
+            Coprocessor0.updateRegister(regs[i].getNumber(), coprocessor0[i]);
+         }
+         regs = Coprocessor1.getRegisters();
+         for (int i=0; i<regs.length; i++) {
+            Coprocessor1.updateRegister(regs[i].getNumber(), coprocessor1[i]);
+         }
+         for (int flag=0; flag<Coprocessor1.getConditionFlagCount(); flag++) {
+            if (Binary.bitValue(conditionFlags, flag) == 1) {
+               Coprocessor1.setConditionFlag(flag);
+            } 
+            else {
+               Coprocessor1.clearConditionFlag(flag);
+            }
+         }
+         DelayedBranch.restore(delayedBranchState, delayedBranchTarget);
+         SystemIO.restoreFileState(files);
+      }
+   
+       private static int[] values(Register[] regs) {
+         int[] values = new int[regs.length];
+         for (int i=0; i<regs.length; i++) {
+            values[i] = regs[i].getValueNoNotify();
+         }
+         return values;
+      }
+   }
@@ -0,0 +1,719 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import java.util.*;
+
+/**
+ * A hot BasicBlock translated for faster execution.  Once the simulator has entered
+ * a block Globals.hotBlockThreshold times, its statements are translated into
+ * parallel arrays of operation codes, register numbers and immediates, with
+ * immediates already sign- or zero-extended and branch and jump targets already
+ * computed.  execute() runs them in one loop on register values held in an int
+ * array rather than in the RegisterFile.
+ * <p>
+ * The simulator loads the array with load(), then runs compiled blocks one after
+ * another for as long as execution stays in compiled blocks, and only then writes
+ * the registers back with store() and sets the program counter.  A compiled block
+ * writes them back itself before running a statement it could not translate and
+ * before throwing a ProcessingException.
+ * <p>
+ * Only the integer instructions of the basic MIPS instruction set (MipsAssembly) are
+ * translated.  Any other statement, such as a syscall or a floating point or custom
+ * language instruction, is run by its own SimulationCode, with the registers written
+ * back before and loaded again after.  If it changes the program counter, execution
+ * leaves the block there.
+ * <p>
+ * Unless Globals.fuseInstructions is off, common pairs of translated statements are
+ * fused into one operation, such as the lui and ori that li and la expand to, or a
+ * slt and a branch on its result.  Both statements still have their full effect, in
+ * order, so registers and the exception behavior are the same as without fusion.
+ * <p>
+ * Since the RegisterFile is out of date while compiled blocks run, the simulator uses
+ * them only when nothing could look at it in the meantime: no observers of registers
+ * or memory, no back stepping, no time travel, and none of the conditions that rule
+ * out the fast run.  Blocks, compiled or not, are discarded when the text segment
+ * is modified.
+ *
+ * @see BasicBlock
+ */
+
+    public class CompiledBlock {
+
+      // Operations.  Operands are in d (destination register), s and t (source
+   	// registers), and imm (immediate, target address or memory offset).
+      private static final int INTERPRET = 0;   // run the statement's SimulationCode
+      private static final int NOP = 1;
+      private static final int ADD = 2;         // d = s + t, with overflow
+      private static final int ADDI = 3;        // d = s + imm, with overflow
+      private static final int SUB = 4;         // d = s - t, with overflow
+      private static final int ADDU = 5;
+      private static final int ADDIU = 6;
+      private static final int SUBU = 7;
+      private static final int AND = 8;
+      private static final int ANDI = 9;
+      private static final int OR = 10;
+      private static final int ORI = 11;
+      private static final int XOR = 12;
+      private static final int XORI = 13;
+      private static final int NOR = 14;
+      private static final int SLT = 15;
+      private static final int SLTI = 16;
+      private static final int SLTU = 17;
+      private static final int SLTIU = 18;
+      private static final int SLL = 19;        // d = s << imm
+      private static final int SRL = 20;
+      private static final int SRA = 21;
+      private static final int SLLV = 22;       // d = s << t
+      private static final int SRLV = 23;
+      private static final int SRAV = 24;
+      private static final int LOAD_IMMEDIATE = 25; // d = imm (lui)
+      private static final int MOVE = 26;       // d = s (mfhi, mflo, mthi, mtlo)
+      private static final int MOVN = 27;
+      private static final int MOVZ = 28;
+      private static final int MULT = 29;       // hi, lo = s * t
+      private static final int MULTU = 30;
+      private static final int MUL = 31;        // d, hi, lo = s * t
+      private static final int DIV = 32;
+      private static final int DIVU = 33;
+      private static final int LW = 34;         // d = memory[s + imm]
+      private static final int LH = 35;
+      private static final int LHU = 36;
+      private static final int LB = 37;
+      private static final int LBU = 38;
+      private static final int SW = 39;         // memory[s + imm] = t
+      private static final int SH = 40;
+      private static final int SB = 41;
+      private static final int BEQ = 42;        // branch to imm if s == t
+      private static final int BNE = 43;
+      private static final int BGEZ = 44;       // branch to imm if s >= 0
+      private static final int BGTZ = 45;
+      private static final int BLEZ = 46;
+      private static final int BLTZ = 47;
+      private static final int J = 48;          // jump to imm
+      private static final int JAL = 49;        // d = return address, jump to imm
+      private static final int JR = 50;         // jump to s
+      private static final int JALR = 51;       // d = return address, jump to s
+      // Fused operations.  Each executes statement i and then statement i + 1, using the
+   	// operands of each, so a pair is fused only at the start of a block or after
+   	// another statement, never where execution could enter between them.
+      private static final int LUI_ORI = 52;    // lui, then ori from its result; imm of ori folded to the constant
+      private static final int LUI_LW = 53;     // lui, then lw based on it; imm of lw folded to the address
+      private static final int LUI_SW = 54;     // lui, then sw based on it; imm of sw folded to the address
+      private static final int SLT_BRANCH = 55; // slt, then beq or bne comparing its result with $zero
+      private static final int SLTI_BRANCH = 56;
+      private static final int SLTU_BRANCH = 57;
+      private static final int SLTIU_BRANCH = 58;
+      private static final int ADDIU_BRANCH = 59; // addiu, then beq or bne
+      private static final int MULT_MOVE = 60;  // mult, then mfhi or mflo
+      private static final int DIV_MOVE = 61;   // div, then mfhi or mflo
+
+      // Register array indexes.  Writes to $zero go to SCRATCH so it stays 0.
+      private static final int HI = 33;
+      private static final int LO = 34;
+      private static final int SCRATCH = 35;
+
+    /** Length of the register array used by execute(). */
+      public static final int REGISTER_COUNT = 36;
+
+      // Operation of each MipsAssembly instruction translated, by example format.
+      private static final HashMap<String,Integer> OPERATIONS = new HashMap<String,Integer>();
+      static {
+         // In operation order, starting with NOP.
+         String[] formats = {
+            "nop", "add $t1,$t2,$t3", "addi $t1,$t2,-100", "sub $t1,$t2,$t3",
+            "addu $t1,$t2,$t3", "addiu $t1,$t2,-100", "subu $t1,$t2,$t3",
+            "and $t1,$t2,$t3", "andi $t1,$t2,100", "or $t1,$t2,$t3", "ori $t1,$t2,100",
+            "xor $t1,$t2,$t3", "xori $t1,$t2,100", "nor $t1,$t2,$t3",
+            "slt $t1,$t2,$t3", "slti $t1,$t2,-100", "sltu $t1,$t2,$t3", "sltiu $t1,$t2,-100",
+            "sll $t1,$t2,10", "srl $t1,$t2,10", "sra $t1,$t2,10",
+            "sllv $t1,$t2,$t3", "srlv $t1,$t2,$t3", "srav $t1,$t2,$t3",
+            "lui $t1,100", "mfhi $t1", "movn $t1,$t2,$t3", "movz $t1,$t2,$t3",
+            "mult $t1,$t2", "multu $t1,$t2", "mul $t1,$t2,$t3", "div $t1,$t2", "divu $t1,$t2",
+            "lw $t1,-100($t2)", "lh $t1,-100($t2)", "lhu $t1,-100($t2)",
+            "lb $t1,-100($t2)", "lbu $t1,-100($t2)",
+            "sw $t1,-100($t2)", "sh $t1,-100($t2)", "sb $t1,-100($t2)",
+            "beq $t1,$t2,label", "bne $t1,$t2,label", "bgez $t1,label", "bgtz $t1,label",
+            "blez $t1,label", "bltz $t1,label",
+            "j target", "jal target", "jr $t1", "jalr $t1,$t2"};
+         for (int i = 0; i < formats.length; i++) {
+            OPERATIONS.put(formats[i], Integer.valueOf(NOP + i));
+         }
+         // These share an operation with another instruction.
+         OPERATIONS.put("mflo $t1", Integer.valueOf(MOVE));
+         OPERATIONS.put("mthi $t1", Integer.valueOf(MOVE));
+         OPERATIONS.put("mtlo $t1", Integer.valueOf(MOVE));
+         OPERATIONS.put("jalr $t1", Integer.valueOf(JALR));
+      }
+
+      private int startAddress;
+      private ProgramStatement[] statements;
+      private SimulationCode[] simulationCode;
+      private int[] operations;
+      private int[] d, s, t, imm;
+      private int exitIndex;
+
+      private CompiledBlock(BasicBlock block) {
+         startAddress = block.getStartAddress();
+         statements = block.getStatements();
+         simulationCode = block.getSimulationCode();
+         int length = statements.length;
+         operations = new int[length];
+         d = new int[length];
+         s = new int[length];
+         t = new int[length];
+         imm = new int[length];
+      }
+
+    /**
+     * Translate a block.
+     * @param block the block
+     * @return the compiled block, or null if none of its statements can be translated
+     */
+       static CompiledBlock compile(BasicBlock block) {
+         CompiledBlock compiled = new CompiledBlock(block);
+         boolean translated = false;
+         for (int i = 0; i < compiled.statements.length; i++) {
+            translated |= compiled.translate(i);
+         }
+         if (translated && Globals.fuseInstructions) {
+            compiled.fuse();
+         }
+         return translated ? compiled : null;
+      }
+
+    /**
+     * Load register values from the RegisterFile.
+     * @param r register array of length REGISTER_COUNT
+     */
+       public static void load(int[] r) {
+         Register[] file = RegisterFile.getRegisters();
+         for (int number = 1; number < file.length; number++) {
+            r[number] = file[number].getValue();
+         }
+         r[HI] = RegisterFile.getValue(HI);
+         r[LO] = RegisterFile.getValue(LO);
+      }
+
+    /**
+     * Write register values back to the RegisterFile.
+     * @param r register array of length REGISTER_COUNT
+     */
+       public static void store(int[] r) {
+         Register[] file = RegisterFile.getRegisters();
+         for (int number = 1; number < file.length; number++) {
+            file[number].setValue(r[number]);
+         }
+         RegisterFile.updateRegister(HI, r[HI]);
+         RegisterFile.updateRegister(LO, r[LO]);
+      }
+
+    /**
+     * Number of statements in the block.
+     * @return statement count
+     */
+       public int length() {
+         return operations.length;
+      }
+
+    /**
+     * Address of a statement in the block.
+     * @param index index of the statement
+     * @return its text segment address
+     */
+       public int getAddress(int index) {
+         return startAddress + index * Instruction.INSTRUCTION_LENGTH;
+      }
+
+    /**
+     * Index of the statement at which the most recent execute() left the block, so
+     * the number of statements it executed is one more.  If execute() threw a
+     * ProcessingException, this is the statement that caused it.
+     * @return statement index
+     */
+       public int getExitIndex() {
+         return exitIndex;
+      }
+
+    /**
+     * Execute the block from its start until a statement transfers control or the
+     * block ends.  Register values in r are then as if the statements had been
+     * simulated one at a time; the RegisterFile and program counter are not updated.
+     * Call only with the conditions described above in effect.
+     * @param r register values, as filled in by load()
+     * @param memory the Memory of the running program
+     * @return address of the statement to execute next
+     * @throws ProcessingException if a statement causes a runtime exception or ends
+     * the program.  Registers and program counter have been written back.
+     */
+       public int execute(int[] r, Memory memory) throws ProcessingException {
+         int length = operations.length;
+         int next = startAddress + length * Instruction.INSTRUCTION_LENGTH;
+         int i = 0;
+         try {
+         execution:
+            for (; i < length; i++) {
+               switch (operations[i]) {
+                  case NOP:
+                     break;
+                  case ADD: {
+                        int a = r[s[i]], b = r[t[i]], sum = a + b;
+                        if ((a >= 0 && b >= 0 && sum < 0) || (a < 0 && b < 0 && sum >= 0)) {
+                           throw overflow(r, i);
+                        }
+                        r[d[i]] = sum;
+                        break;
+                     }
+                  case ADDI: {
+                        int a = r[s[i]], b = imm[i], sum = a + b;
+                        if ((a >= 0 && b >= 0 && sum < 0) || (a < 0 && b < 0 && sum >= 0)) {
+                           throw overflow(r, i);
+                        }
+                        r[d[i]] = sum;
+                        break;
+                     }
+                  case SUB: {
+                        int a = r[s[i]], b = r[t[i]], difference = a - b;
+                        if ((a >= 0 && b < 0 && difference < 0) || (a < 0 && b >= 0 && difference >= 0)) {
+                           throw overflow(r, i);
+                        }
+                        r[d[i]] = difference;
+                        break;
+                     }
+                  case ADDU:
+                     r[d[i]] = r[s[i]] + r[t[i]];
+                     break;
+                  case ADDIU:
+                     r[d[i]] = r[s[i]] + imm[i];
+                     break;
+                  case SUBU:
+                     r[d[i]] = r[s[i]] - r[t[i]];
+                     break;
+                  case AND:
+                     r[d[i]] = r[s[i]] & r[t[i]];
+                     break;
+                  case ANDI:
+                     r[d[i]] = r[s[i]] & imm[i];
+                     break;
+                  case OR:
+                     r[d[i]] = r[s[i]] | r[t[i]];
+                     break;
+                  case ORI:
+                     r[d[i]] = r[s[i]] | imm[i];
+                     break;
+                  case XOR:
+                     r[d[i]] = r[s[i]] ^ r[t[i]];
+                     break;
+                  case XORI:
+                     r[d[i]] = r[s[i]] ^ imm[i];
+                     break;
+                  case NOR:
+                     r[d[i]] = ~(r[s[i]] | r[t[i]]);
+                     break;
+                  case SLT:
+                     r[d[i]] = (r[s[i]] < r[t[i]]) ? 1 : 0;
+                     break;
+                  case SLTI:
+                     r[d[i]] = (r[s[i]] < imm[i]) ? 1 : 0;
+                     break;
+                  case SLTU:
+                     r[d[i]] = ((r[s[i]] ^ 0x80000000) < (r[t[i]] ^ 0x80000000)) ? 1 : 0;
+                     break;
+                  case SLTIU:
+                     r[d[i]] = ((r[s[i]] ^ 0x80000000) < (imm[i] ^ 0x80000000)) ? 1 : 0;
+                     break;
+                  case SLL:
+                     r[d[i]] = r[s[i]] << imm[i];
+                     break;
+                  case SRL:
+                     r[d[i]] = r[s[i]] >>> imm[i];
+                     break;
+                  case SRA:
+                     r[d[i]] = r[s[i]] >> imm[i];
+                     break;
+                  case SLLV:
+                     r[d[i]] = r[s[i]] << (r[t[i]] & 0x1F);
+                     break;
+                  case SRLV:
+                     r[d[i]] = r[s[i]] >>> (r[t[i]] & 0x1F);
+                     break;
+                  case SRAV:
+                     r[d[i]] = r[s[i]] >> (r[t[i]] & 0x1F);
+                     break;
+                  case LOAD_IMMEDIATE:
+                     r[d[i]] = imm[i];
+                     break;
+                  case MOVE:
+                     r[d[i]] = r[s[i]];
+                     break;
+                  case MOVN:
+                     if (r[t[i]] != 0) {
+                        r[d[i]] = r[s[i]];
+                     }
+                     break;
+                  case MOVZ:
+                     if (r[t[i]] == 0) {
+                        r[d[i]] = r[s[i]];
+                     }
+                     break;
+                  case MULT: {
+                        long product = (long) r[s[i]] * (long) r[t[i]];
+                        r[HI] = (int) (product >> 32);
+                        r[LO] = (int) product;
+                        break;
+                     }
+                  case MULTU: {
+                        long product = ((long) r[s[i]] & 0xFFFFFFFFL) * ((long) r[t[i]] & 0xFFFFFFFFL);
+                        r[HI] = (int) (product >> 32);
+                        r[LO] = (int) product;
+                        break;
+                     }
+                  case MUL: {
+                        long product = (long) r[s[i]] * (long) r[t[i]];
+                        r[d[i]] = (int) product;
+                        r[HI] = (int) (product >> 32);
+                        r[LO] = (int) product;
+                        break;
+                     }
+                  case DIV: {
+                        int divisor = r[t[i]];
+                        if (divisor != 0) {
+                           int dividend = r[s[i]];
+                           r[HI] = dividend % divisor;
+                           r[LO] = dividend / divisor;
+                        }
+                        break;
+                     }
+                  case DIVU: {
+                        long divisor = (long) r[t[i]] & 0xFFFFFFFFL;
+                        if (divisor != 0) {
+                           long dividend = (long) r[s[i]] & 0xFFFFFFFFL;
+                           r[HI] = (int) (dividend % divisor);
+                           r[LO] = (int) (dividend / divisor);
+                        }
+                        break;
+                     }
+                  case LW:
+                     r[d[i]] = memory.getWord(r[s[i]] + imm[i]);
+                     break;
+                  case LH:
+                     r[d[i]] = memory.getHalf(r[s[i]] + imm[i]) << 16 >> 16;
+                     break;
+                  case LHU:
+                     r[d[i]] = memory.getHalf(r[s[i]] + imm[i]) & 0x0000FFFF;
+                     break;
+                  case LB:
+                     r[d[i]] = memory.getByte(r[s[i]] + imm[i]) << 24 >> 24;
+                     break;
+                  case LBU:
+                     r[d[i]] = memory.getByte(r[s[i]] + imm[i]) & 0x000000FF;
+                     break;
+                  case SW:
+                     memory.setWord(r[s[i]] + imm[i], r[t[i]]);
+                     break;
+                  case SH:
+                     memory.setHalf(r[s[i]] + imm[i], r[t[i]] & 0x0000FFFF);
+                     break;
+                  case SB:
+                     memory.setByte(r[s[i]] + imm[i], r[t[i]] & 0x000000FF);
+                     break;
+                  case BEQ:
+                     if (r[s[i]] == r[t[i]]) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case BNE:
+                     if (r[s[i]] != r[t[i]]) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case BGEZ:
+                     if (r[s[i]] >= 0) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case BGTZ:
+                     if (r[s[i]] > 0) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case BLEZ:
+                     if (r[s[i]] <= 0) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case BLTZ:
+                     if (r[s[i]] < 0) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case J:
+                     next = imm[i];
+                     break execution;
+                  case JAL:
+                     r[d[i]] = getAddress(i + 1);
+                     next = imm[i];
+                     break execution;
+                  case JR:
+                     next = r[s[i]];
+                     break execution;
+                  case JALR:
+                     // Link first: the jump uses the new value if both are the same register.
+                     r[d[i]] = getAddress(i + 1);
+                     next = r[s[i]];
+                     break execution;
+                  case LUI_ORI:
+                     r[d[i]] = imm[i];
+                     i++;
+                     r[d[i]] = imm[i];
+                     break;
+                  case LUI_LW:
+                     r[d[i]] = imm[i];
+                     i++;
+                     r[d[i]] = memory.getWord(imm[i]);
+                     break;
+                  case LUI_SW:
+                     r[d[i]] = imm[i];
+                     i++;
+                     memory.setWord(imm[i], r[t[i]]);
+                     break;
+                  case SLT_BRANCH: case SLTI_BRANCH: case SLTU_BRANCH: case SLTIU_BRANCH: {
+                        int a = r[s[i]];
+                        int b = (operations[i] == SLT_BRANCH || operations[i] == SLTU_BRANCH) ? r[t[i]] : imm[i];
+                        if (operations[i] == SLTU_BRANCH || operations[i] == SLTIU_BRANCH) {
+                           a ^= 0x80000000;
+                           b ^= 0x80000000;
+                        }
+                        int set = (a < b) ? 1 : 0;
+                        r[d[i]] = set;
+                        i++;
+                        if ((set != 0) == (operations[i] == BNE)) {
+                           next = imm[i];
+                           break execution;
+                        }
+                        break;
+                     }
+                  case ADDIU_BRANCH:
+                     r[d[i]] = r[s[i]] + imm[i];
+                     i++;
+                     if ((r[s[i]] != r[t[i]]) == (operations[i] == BNE)) {
+                        next = imm[i];
+                        break execution;
+                     }
+                     break;
+                  case MULT_MOVE: {
+                        long product = (long) r[s[i]] * (long) r[t[i]];
+                        r[HI] = (int) (product >> 32);
+                        r[LO] = (int) product;
+                        i++;
+                        r[d[i]] = r[s[i]];
+                        break;
+                     }
+                  case DIV_MOVE: {
+                        int divisor = r[t[i]];
+                        if (divisor != 0) {
+                           int dividend = r[s[i]];
+                           r[HI] = dividend % divisor;
+                           r[LO] = dividend / divisor;
+                        }
+                        i++;
+                        r[d[i]] = r[s[i]];
+                        break;
+                     }
+                  default: {
+                        int sequential = getAddress(i + 1);
+                        exitIndex = i; // in case it throws
+                        store(r);
+                        RegisterFile.setProgramCounter(sequential);
+                        simulationCode[i].simulate(statements[i]);
+                        load(r);
+                        int programCounter = RegisterFile.getProgramCounter();
+                        if (programCounter != sequential) {
+                           return programCounter;
+                        }
+                        break;
+                     }
+               }
+            }
+         }
+             catch (AddressErrorException e) {
+               leave(r, i);
+               throw new ProcessingException(statements[i], e);
+            }
+         exitIndex = (i == length) ? length - 1 : i;
+         return next;
+      }
+
+      // Write back registers and set the program counter as the simulator would have
+   	// while simulating statement i, before throwing an exception caused by it.
+       private void leave(int[] r, int i) {
+         exitIndex = i;
+         store(r);
+         RegisterFile.setProgramCounter(getAddress(i + 1));
+      }
+
+       private ProcessingException overflow(int[] r, int i) {
+         leave(r, i);
+         return new ProcessingException(statements[i], "arithmetic overflow",
+                                        Exceptions.ARITHMETIC_OVERFLOW_EXCEPTION);
+      }
+
+      // Replace the operation of each statement that begins a fusable pair with the fused
+   	// operation.  The second statement of a pair keeps its operation, but is executed
+   	// only as part of the pair since execution always enters a block at its start.
+       private void fuse() {
+         for (int i = 0; i + 1 < operations.length; i++) {
+            int second = operations[i + 1];
+            // Whether the second statement reads the register the first one sets.
+            boolean chained = d[i] != SCRATCH && s[i + 1] == d[i];
+            int fused = INTERPRET;
+            switch (operations[i]) {
+               case LOAD_IMMEDIATE:
+                  if (chained && second == ORI) {
+                     imm[i + 1] |= imm[i];
+                     fused = LUI_ORI;
+                  }
+                  else if (chained && second == LW) {
+                     imm[i + 1] += imm[i];
+                     fused = LUI_LW;
+                  }
+                  else if (chained && second == SW) {
+                     imm[i + 1] += imm[i];
+                     fused = LUI_SW;
+                  }
+                  break;
+               case SLT: case SLTI: case SLTU: case SLTIU:
+                  if ((second == BEQ || second == BNE) && d[i] != SCRATCH
+                         && ((s[i + 1] == d[i] && t[i + 1] == 0) || (s[i + 1] == 0 && t[i + 1] == d[i]))) {
+                     fused = (operations[i] == SLT) ? SLT_BRANCH : (operations[i] == SLTI) ? SLTI_BRANCH
+                            : (operations[i] == SLTU) ? SLTU_BRANCH : SLTIU_BRANCH;
+                  }
+                  break;
+               case ADDIU:
+                  if (second == BEQ || second == BNE) {
+                     fused = ADDIU_BRANCH;
+                  }
+                  break;
+               case MULT: case DIV:
+                  if (second == MOVE && (s[i + 1] == HI || s[i + 1] == LO)) {
+                     fused = (operations[i] == MULT) ? MULT_MOVE : DIV_MOVE;
+                  }
+                  break;
+            }
+            if (fused != INTERPRET) {
+               operations[i] = fused;
+               i++;
+            }
+         }
+      }
+
+      // Fill in the operation and operands of statement i.  Returns false, leaving it
+   	// INTERPRET, if it is not one of the translated MipsAssembly instructions.
+       private boolean translate(int i) {
+         BasicInstruction instruction = (BasicInstruction) statements[i].getInstruction();
+         if (instruction.getSimulationCode().getClass().getEnclosingClass() != MipsAssembly.class) {
+            return false;
+         }
+         Integer operation = OPERATIONS.get(instruction.getExampleFormat());
+         if (operation == null) {
+            return false;
+         }
+         ProgramStatement statement = statements[i];
+         String name = instruction.getName();
+         int op = operation.intValue();
+         switch (op) {
+            case NOP:
+               break;
+            case ADD: case SUB: case ADDU: case SUBU: case AND: case OR: case XOR: case NOR:
+            case SLT: case SLTU: case MUL: case MOVN: case MOVZ:
+               d[i] = statement.getRd();
+               s[i] = statement.getRs();
+               t[i] = statement.getRt();
+               break;
+            case SLLV: case SRLV: case SRAV:
+               d[i] = statement.getRd();
+               s[i] = statement.getRt();
+               t[i] = statement.getRs();
+               break;
+            case ADDI: case ADDIU: case SLTI: case SLTIU:
+               d[i] = statement.getRt();
+               s[i] = statement.getRs();
+               imm[i] = statement.getImmediate();
+               break;
+            case ANDI: case ORI: case XORI:
+               d[i] = statement.getRt();
+               s[i] = statement.getRs();
+               imm[i] = statement.getUnsignedImmediate();
+               break;
+            case SLL: case SRL: case SRA:
+               d[i] = statement.getRd();
+               s[i] = statement.getRt();
+               imm[i] = statement.getShamt();
+               break;
+            case LOAD_IMMEDIATE:
+               d[i] = statement.getRt();
+               imm[i] = statement.getImmediate() << 16;
+               break;
+            case MOVE:
+               if (name.equals("mfhi") || name.equals("mflo")) {
+                  d[i] = statement.getRd();
+                  s[i] = name.equals("mfhi") ? HI : LO;
+               }
+               else {
+                  d[i] = name.equals("mthi") ? HI : LO;
+                  s[i] = statement.getRs();
+               }
+               break;
+            case MULT: case MULTU: case DIV: case DIVU:
+               s[i] = statement.getRs();
+               t[i] = statement.getRt();
+               break;
+            case LW: case LH: case LHU: case LB: case LBU:
+               d[i] = statement.getRt();
+               s[i] = statement.getRs();
+               imm[i] = statement.getImmediate();
+               break;
+            case SW: case SH: case SB:
+               t[i] = statement.getRt();
+               s[i] = statement.getRs();
+               imm[i] = statement.getImmediate();
+               break;
+            case BEQ: case BNE:
+               s[i] = statement.getRs();
+               t[i] = statement.getRt();
+               imm[i] = statement.getBranchTarget();
+               break;
+            case BGEZ: case BGTZ: case BLEZ: case BLTZ:
+               s[i] = statement.getRs();
+               imm[i] = statement.getBranchTarget();
+               break;
+            case J:
+               imm[i] = statement.getJumpTarget();
+               break;
+            case JAL:
+               d[i] = 31;
+               imm[i] = statement.getJumpTarget();
+               break;
+            case JR:
+               s[i] = statement.getRs();
+               break;
+            case JALR:
+               d[i] = statement.getRd();
+               s[i] = statement.getRs();
+               break;
+            default:
+               return false;
+         }
+         if (d[i] == 0) {
+            d[i] = SCRATCH;
+         }
+         operations[i] = op;
+         return true;
+      }
+   }
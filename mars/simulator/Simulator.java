@@ -44,8 +44,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
     public class Simulator extends Observable {
       private SimThread simulatorThread;
-      private static Simulator simulator = null;  // Singleton object
+      private BasicBlockCache blockCache = null; // predecoded text for fast runs, created on first use
       private static Runnable interactiveGUIUpdater = null;
+      // Most statements run by chained compiled blocks between the checks of the run loop.
+      private static final int MAXIMUM_CHAINED_STEPS = 100000;
       // Others can set this true to indicate external interrupt.  Initially used
    	// to simulate keyboard and display interrupts.  The device is identified
    	// by the address of its MMIO control register.  keyboard 0xFFFF0000 and
@@ -61,22 +63,23 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int PAUSE_OR_STOP = 6;
    
       /**
-   	 * Returns the Simulator object
+   	 * Returns the Simulator object of the calling thread's MachineContext.
    	 *
    	 * @return the Simulator object in use
    	 */
        public static Simulator getInstance() {
-         // Do NOT change this to create the Simulator at load time (in declaration above)!
+         return MachineContext.current().getSimulator();
+      }
+   
+      /**
+   	 * Create a Simulator.  Used by MachineContext, which creates one per simulated
+   	 * machine on first use; others get it from getInstance().
+   	 */
+       public Simulator() {
+         // Do NOT create the Simulator at load time!
       	// Its constructor looks for the GUI, which at load time is not created yet,
       	// and incorrectly leaves interactiveGUIUpdater null!  This causes runtime
       	// exceptions while running in timed mode.
-         if (simulator==null) {
-            simulator = new Simulator();
-         }
-         return simulator;
-      }
-   
-       private Simulator() {
          simulatorThread = null;
          if (Globals.getGui() != null) {
             interactiveGUIUpdater = new UpdateGUI();
@@ -112,17 +115,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     **/
     
        public boolean simulate(MIPSprogram p, int pc, int maxSteps, int[] breakPoints, AbstractAction actor) throws ProcessingException {
-         simulatorThread = new SimThread(p,pc,maxSteps,breakPoints,actor);
-         simulatorThread.start();
+         SimThread thread = new SimThread(p,pc,maxSteps,breakPoints,actor);
+         simulatorThread = thread;
+         thread.start();
       	
       	// Condition should only be true if run from command-line instead of GUI.
       	// If so, just stick around until execution thread is finished.
+      	// Uses its own reference since stopExecution() clears simulatorThread.
          if (actor == null) {
-            Object dun = simulatorThread.get(); // this should emulate join()
-            ProcessingException pe = simulatorThread.pe;
-            boolean done = simulatorThread.done;
+            Object dun = thread.get(); // this should emulate join()
+            ProcessingException pe = thread.pe;
+            boolean done = thread.done;
             if (done) SystemIO.resetFiles(); // close any files opened in MIPS progra
             this.simulatorThread = null;
+            if (thread.internalError != null) {
+               throw thread.internalError; // a bug in MARS, not the MIPS program
+            }
             if (pe != null) {
                throw pe;
             }
@@ -167,6 +175,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          stopListeners.remove(l);
       }
    
+   	 // Cache of predecoded basic blocks used by fast runs.  Created on first use
+   	 // because Memory must exist first.
+       private BasicBlockCache getBlockCache() {
+         if (blockCache == null) {
+            blockCache = new BasicBlockCache();
+         }
+         return blockCache;
+      }
+   
    	 // The Simthread object will call this method when it enters and returns from
    	 // its construct() method.  These signal start and stop, respectively, of
    	 // simulation execution.  The observer can then adjust its own state depending
@@ -207,6 +224,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          private volatile AbstractAction stopper;
          private AbstractAction starter;
          private int constructReturnReason;
+         private MachineContext context;
+         private boolean fastRunPossible; // settings allow basic blocks for this run
+         private boolean fastRun;   // runs basic blocks, as observers now allow
+         private boolean compiling; // may run hot blocks compiled
+         private BasicBlockCache blocks; // the block cache, once fastRun has been true
+         private Memory memory;
+         private int observerVersion; // register and memory observer versions when last looked at
+         private int[] registers;   // register values while compiled blocks run
+         private int lastAddress;   // address of the last statement executeBlock executed
+         private boolean throttle;  // whether the run speed setting applies to this run
+         private RuntimeException internalError; // thrown by the simulator itself, if any
       
       
          /**
@@ -228,6 +256,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             this.pe = null;
             this.starter = starter;
             this.stopper = null;
+            this.context = MachineContext.current();
+            // With the GUI up, a run nobody started from the GUI is TimeTravel going
+         	// forward to the point it is taking execution back to.  It is not shown, so
+         	// it is not slowed down.
+            this.throttle = (Globals.getGui() != null) ? starter != null : Globals.runSpeedPanelExists;
          }
       	
       	/**
@@ -252,6 +285,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	 */
       	
           public Object construct() {
+            // Run in the machine context of the thread that started the simulation.
+            context.bind();
+            try {
+               return execute();
+            } 
+               catch (RuntimeException e) {
+                  // Without a GUI starter, simulate() is waiting and throws it on.
+                  if (starter != null) {
+                     throw e;
+                  }
+                  internalError = e;
+                  return null;
+               }
+            finally {
+               SystemIO.flushConsoleOutput();
+               MachineContext.unbind();
+            }
+         }
+      
+          private Object execute() {
             // The next two statements are necessary for GUI to be consistently updated
          	// before the simulation gets underway.  Without them, this happens only intermittently,
          	// with a consequence that some simulations are interruptable using PAUSE/STOP and others
@@ -271,7 +324,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             RegisterFile.initializeProgramCounter(pc);
             ProgramStatement statement = null;
             try {
-               statement = Globals.memory.getStatement(RegisterFile.getProgramCounter());
+               statement = Memory.getInstance().getStatement(RegisterFile.getProgramCounter());
             } 
                 catch (AddressErrorException e) {
                   ErrorList el = new ErrorList();
@@ -321,68 +374,68 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          	// *********************************************************************
          	
             int pc = 0;  // added: 7/26/06 (explanation above)
+         	
+         	// Fast run: when nothing needs to see individual instructions go by, execute
+         	// predecoded basic blocks and do the stop/step-limit checks once per block
+         	// instead of once per instruction.  Blocks entered often are compiled.  Stepping, breakpoints, self-modifying code,
+         	// delayed branching and observers of the text segment (e.g. the "ic" option)
+         	// all need the one-at-a-time path below, as does a throttled run speed (which
+         	// is checked at each block boundary since the user can change it mid-run).
+            fastRunPossible = maxSteps != 1 && breakPoints == null 
+                            && Globals.getSettings().getBooleanSetting(Settings.FAST_RUN_ENABLED)
+                            && !Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED)
+                            && !Globals.getSettings().getDelayedBranchingEnabled();
+            memory = Memory.getInstance();
+            observersChanged();
+            TimeTravel timeTravel = p.getTimeTravel();
+            int stepsTaken;
+            if (timeTravel != null) {
+               timeTravel.executed(0); // takes the initial checkpoint on first run
+            }
          
             while (statement != null) {
                pc = RegisterFile.getProgramCounter(); // added: 7/26/06 (explanation above)
-               RegisterFile.incrementPC();           	
-            	// Perform the MIPS instruction in synchronized block.  If external threads agree
-            	// to access MIPS memory and registers only through synchronized blocks on same 
-            	// lock variable, then full (albeit heavy-handed) protection of MIPS memory and 
-            	// registers is assured.  Not as critical for reading from those resources.
-               synchronized (Globals.memoryAndRegistersLock) {
-                  try {                      
-                     if (Simulator.externalInterruptingDevice != NO_DEVICE) {
-                        int deviceInterruptCode = externalInterruptingDevice;
-                        Simulator.externalInterruptingDevice = NO_DEVICE;
-                        throw new ProcessingException(statement, "External Interrupt", deviceInterruptCode);
-                     }
-                     BasicInstruction instruction = (BasicInstruction)statement.getInstruction();
-                     if (instruction == null) {
-                        throw new ProcessingException(statement,
-                            "undefined instruction ("+Binary.intToHexString(statement.getBinaryStatement())+")",
-                            Exceptions.RESERVED_INSTRUCTION_EXCEPTION);
-                     }
-                     // THIS IS WHERE THE INSTRUCTION EXECUTION IS ACTUALLY SIMULATED!
-                     instruction.getSimulationCode().simulate(statement);
-                  	
-                  	// IF statement added 7/26/06 (explanation above)
-                     if (Globals.getSettings().getBackSteppingEnabled()) {
-                        Globals.program.getBackStepper().addDoNothing(pc);
+               if (observerVersion != currentObserverVersion()) {
+                  observersChanged(); // e.g. a tool or the GUI began watching mid-run
+               }
+               BasicBlock block = (fastRun && !throttled() && Simulator.externalInterruptingDevice == NO_DEVICE) 
+                                ? blocks.getBlock(pc) : null;
+               if (block != null) {
+                  int limit = (maxSteps > 0) ? Math.min(maxSteps - steps, MAXIMUM_CHAINED_STEPS) : MAXIMUM_CHAINED_STEPS;
+                  if (Globals.singleOwnerExecution) {
+                     stepsTaken = executeBlock(block, limit);
+                  } 
+                  else {
+                     synchronized (context.getLock()) {
+                        stepsTaken = executeBlock(block, limit);
                      }
+                  }
+                  if (stepsTaken < 0) {
+                     return new Boolean(done);
+                  }
+                  pc = lastAddress;
+               }
+               else {
+                  stepsTaken = 1;
+                  RegisterFile.incrementPC();
+                  boolean terminated;
+               	// Perform the MIPS instruction in synchronized block.  If external threads agree
+               	// to access MIPS memory and registers only through synchronized blocks on same 
+               	// lock variable, then full (albeit heavy-handed) protection of MIPS memory and 
+               	// registers is assured.  Not as critical for reading from those resources.
+               	// No lock is needed when this thread is the only one touching them.
+                  if (Globals.singleOwnerExecution) {
+                     terminated = executeStatement(statement, pc);
                   } 
-                      catch (ProcessingException pe) {
-                        if (pe.errors() == null) {
-                           this.constructReturnReason = NORMAL_TERMINATION;
-                           this.done = true;
-                           SystemIO.resetFiles(); // close any files opened in MIPS program
-                           Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
-                           return new Boolean(done); // execution completed without error.
-                        } 
-                        else {
-                           // See if an exception handler is present.  Assume this is the case
-                        	// if and only if memory location Memory.exceptionHandlerAddress
-                        	// (e.g. 0x80000180) contains an instruction.  If so, then set the
-                        	// program counter there and continue.  Otherwise terminate the
-                        	// MIPS program with appropriate error message.
-                           ProgramStatement exceptionHandler = null;
-                           try {
-                              exceptionHandler = Globals.memory.getStatement(Memory.exceptionHandlerAddress);
-                           } 
-                               catch (AddressErrorException aee) { } // will not occur with this well-known addres
-                           if (exceptionHandler != null) {
-                              RegisterFile.setProgramCounter(Memory.exceptionHandlerAddress);
-                           } 
-                           else {
-                              this.constructReturnReason = EXCEPTION;
-                              this.pe = pe;
-                              this.done = true;
-                              SystemIO.resetFiles(); // close any files opened in MIPS program
-                              Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
-                              return new Boolean(done);
-                           }
-                        }
+                  else {
+                     synchronized (context.getLock()) {
+                        terminated = executeStatement(statement, pc);
                      }
-               }// end synchronized block
+                  }
+                  if (terminated) {
+                     return new Boolean(done);
+                  }
+               }
             	
             	///////// DPS 15 June 2007.  Handle delayed branching if it occurs./////
                if (DelayedBranch.isTriggered()) {
@@ -393,6 +446,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   DelayedBranch.trigger();
                }//////////////////////////////////////////////////////////////////////
             	
+               if (timeTravel != null) {
+                  timeTravel.executed(stepsTaken);
+               }
+            	
             	// Volatile variable initialized false but can be set true by the main thread.
             	// Used to stop or pause a running MIPS program.  See stopSimulation() above.
                if (stop == true) { 
@@ -411,7 +468,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
             	// Check number of MIPS instructions executed.  Return if at limit (-1 is no limit).
                if (maxSteps > 0) {
-                  steps++;
+                  steps += stepsTaken;
                   if (steps >= maxSteps) {
                      this.constructReturnReason = MAX_STEPS;
                      this.done = false;
@@ -424,11 +481,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             	//                              using Run,  not Step (maxSteps > 1) AND
             	//                              running slowly enough for GUI to keep up
                //if (Globals.getGui() != null && maxSteps != 1 &&             
-               if (interactiveGUIUpdater != null && maxSteps != 1 && 
+               if (interactiveGUIUpdater != null && throttle && maxSteps != 1 && 
                           RunSpeedPanel.getInstance().getRunSpeed() < RunSpeedPanel.UNLIMITED_SPEED) {
                   SwingUtilities.invokeLater(interactiveGUIUpdater);
                }
-               if (Globals.getGui() != null || Globals.runSpeedPanelExists) { // OR added by DPS 24 July 2008 to enable speed control by stand-alone tool
+               if (throttle) { // Globals.runSpeedPanelExists added by DPS 24 July 2008 to enable speed control by stand-alone tool
                   if (maxSteps != 1 && 
                           RunSpeedPanel.getInstance().getRunSpeed() < RunSpeedPanel.UNLIMITED_SPEED) {
                      try { Thread.sleep((int)(1000/RunSpeedPanel.getInstance().getRunSpeed())); // make sure it's never zero!
@@ -441,7 +498,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                // Get next instruction in preparation for next iteration.
             
                try {
-                  statement = Globals.memory.getStatement(RegisterFile.getProgramCounter());
+                  statement = Memory.getInstance().getStatement(RegisterFile.getProgramCounter());
                } 
                    catch (AddressErrorException e) {
                      ErrorList el = new ErrorList();
@@ -475,6 +532,189 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
             return new Boolean(done); // true;  // execution completed
          }
+      	
+      	/*
+      	 * Simulate one statement, whose address is pc.  The program counter has already
+      	 * been incremented.  Returns true if the simulation is over (see terminatedBy).
+      	 */
+          private boolean executeStatement(ProgramStatement statement, int pc) {
+            try {                      
+               if (Simulator.externalInterruptingDevice != NO_DEVICE) {
+                  int deviceInterruptCode = externalInterruptingDevice;
+                  Simulator.externalInterruptingDevice = NO_DEVICE;
+                  throw new ProcessingException(statement, "External Interrupt", deviceInterruptCode);
+               }
+               BasicInstruction instruction = (BasicInstruction)statement.getInstruction();
+               if (instruction == null) {
+                  throw new ProcessingException(statement,
+                      "undefined instruction ("+Binary.intToHexString(statement.getBinaryStatement())+")",
+                      Exceptions.RESERVED_INSTRUCTION_EXCEPTION);
+               }
+               // THIS IS WHERE THE INSTRUCTION EXECUTION IS ACTUALLY SIMULATED!
+               instruction.getSimulationCode().simulate(statement);
+            	
+            	// IF statement added 7/26/06 (explanation above)
+               if (Globals.getSettings().getBackSteppingEnabled()) {
+                  context.getProgram().getBackStepper().addDoNothing(pc);
+               }
+            } 
+                catch (ProcessingException pe) {
+                  return terminatedBy(pe, pc);
+               }
+            return false;
+         }
+      	
+      	// Decide from the observers attached now whether to run basic blocks and whether
+      	// they may be compiled.  Observers of the text segment (e.g. the "ic" option) must
+      	// see each instruction fetched.  Compiled blocks keep register values to themselves
+      	// until they exit, so nothing may be watching registers or memory either.
+          private void observersChanged() {
+            observerVersion = currentObserverVersion();
+            fastRun = fastRunPossible
+                      && !memory.hasObserversInRange(Memory.textBaseAddress, Memory.textLimitAddress)
+                      && !memory.hasObserversInRange(Memory.kernelTextBaseAddress, Memory.kernelTextLimitAddress);
+            if (fastRun && blocks == null) {
+               blocks = Simulator.getInstance().getBlockCache();
+               blocks.validate();
+            }
+            compiling = fastRun && p.getTimeTravel() == null && Globals.hotBlockThreshold > 0
+                        && !RegisterFile.hasObservers() && memory.countObservers() == 0;
+            if (compiling && registers == null) {
+               registers = new int[CompiledBlock.REGISTER_COUNT];
+            }
+         }
+      
+          private int currentObserverVersion() {
+            return Register.getObserverVersion() + memory.getObserverVersion();
+         }
+      
+      	/*
+      	 * Simulate statements of the block, from its start, until one of them transfers
+      	 * control, the block ends, or limit statements have been executed.  If the block
+      	 * is compiled, execution may go on through other compiled blocks, up to limit
+      	 * statements.  Returns the number of statements executed, or -1 if the simulation
+      	 * is over (see terminatedBy), and sets lastAddress.
+      	 */
+          private int executeBlock(BasicBlock block, int limit) {
+            ProgramStatement[] statements = block.getStatements();
+            SimulationCode[] simulationCode = block.getSimulationCode();
+            boolean backStepping = Globals.getSettings().getBackSteppingEnabled();
+            if (compiling && !backStepping && limit >= block.length()) {
+               CompiledBlock compiledBlock = block.enterCompiled();
+               if (compiledBlock != null) {
+                  return executeCompiled(compiledBlock, limit);
+               }
+            }
+            int pc = block.getStartAddress();
+            int stepsTaken = 0;
+            try {
+               while (true) {
+                  RegisterFile.incrementPC();
+                  simulationCode[stepsTaken].simulate(statements[stepsTaken]);
+                  stepsTaken++;
+                  if (backStepping) {
+                     context.getProgram().getBackStepper().addDoNothing(pc);
+                  }
+                  lastAddress = pc;
+                  pc += Instruction.INSTRUCTION_LENGTH;
+                  if (stepsTaken == limit || stepsTaken == statements.length || RegisterFile.getProgramCounter() != pc) {
+                     return stepsTaken;
+                  }
+               }
+            } 
+                catch (ProcessingException pe) {
+                  lastAddress = pc;
+                  if (terminatedBy(pe, pc)) {
+                     return -1;
+                  }
+                  return stepsTaken + 1;
+               }
+         }
+      	
+      	/*
+      	 * Execute a compiled block, then the compiled blocks that execution goes on to,
+      	 * keeping register values in the registers array until execution reaches a block
+      	 * that is not compiled, limit statements would be exceeded, or the simulation is
+      	 * stopped or interrupted.  Returns as executeBlock.
+      	 */
+          private int executeCompiled(CompiledBlock compiledBlock, int limit) {
+            int[] r = registers;
+            int stepsTaken = 0;
+            int next;
+            CompiledBlock.load(r);
+            try {
+               while (true) {
+                  next = compiledBlock.execute(r, memory);
+                  lastAddress = compiledBlock.getAddress(compiledBlock.getExitIndex());
+                  stepsTaken += compiledBlock.getExitIndex() + 1;
+                  if (stop || Simulator.externalInterruptingDevice != NO_DEVICE
+                      || observerVersion != currentObserverVersion()) {
+                     break;
+                  }
+                  BasicBlock following = blocks.getBlock(next);
+                  if (following == null || following.getCompiledBlock() == null
+                      || following.length() > limit - stepsTaken) {
+                     break;
+                  }
+                  compiledBlock = following.getCompiledBlock();
+               }
+            } 
+                catch (ProcessingException pe) {
+                  // Registers and program counter have been written back.
+                  int index = compiledBlock.getExitIndex();
+                  lastAddress = compiledBlock.getAddress(index);
+                  if (terminatedBy(pe, lastAddress)) {
+                     return -1;
+                  }
+                  return stepsTaken + index + 1;
+               }
+            CompiledBlock.store(r);
+            RegisterFile.setProgramCounter(next);
+            return stepsTaken;
+         }
+      	
+      	/*
+      	 * Deal with a ProcessingException thrown while simulating the instruction at pc.
+      	 * Returns true if the simulation is over (normal termination through syscall, or
+      	 * runtime error with no exception handler to go to), in which case construct()
+      	 * must return.  Otherwise the program counter has been set to the exception handler
+      	 * and simulation continues.
+      	 */
+          private boolean terminatedBy(ProcessingException pe, int pc) {
+            if (pe.errors() == null) {
+               this.constructReturnReason = NORMAL_TERMINATION;
+               this.done = true;
+               SystemIO.resetFiles(); // close any files opened in MIPS program
+               Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
+               return true; // execution completed without error.
+            } 
+            // See if an exception handler is present.  Assume this is the case
+            // if and only if memory location Memory.exceptionHandlerAddress
+            // (e.g. 0x80000180) contains an instruction.  If so, then set the
+            // program counter there and continue.  Otherwise terminate the
+            // MIPS program with appropriate error message.
+            ProgramStatement exceptionHandler = null;
+            try {
+               exceptionHandler = Memory.getInstance().getStatement(Memory.exceptionHandlerAddress);
+            } 
+                catch (AddressErrorException aee) { } // will not occur with this well-known addres
+            if (exceptionHandler != null) {
+               RegisterFile.setProgramCounter(Memory.exceptionHandlerAddress);
+               return false;
+            } 
+            this.constructReturnReason = EXCEPTION;
+            this.pe = pe;
+            this.done = true;
+            SystemIO.resetFiles(); // close any files opened in MIPS program
+            Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
+            return true;
+         }
+      	
+      	// True if the user has slowed execution with the run speed slider, in which
+      	// case every instruction is followed by a GUI update and a sleep.
+          private boolean throttled() {
+            return throttle && RunSpeedPanel.getInstance().getRunSpeed() < RunSpeedPanel.UNLIMITED_SPEED;
+         }
          
       	
       	/**
@@ -488,8 +728,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       	 */
       	 
           public void finished() {
-           // If running from the command-line, then there is no GUI to update.
-            if (Globals.getGui() == null) {
+           // If running from the command-line, then there is no GUI to update.  Nor is
+         	// there when TimeTravel runs, whose caller updates the GUI itself.
+            if (Globals.getGui() == null || starter == null) {
                return;
             }
             String starterName = (String) starter.getValue(AbstractAction.NAME);
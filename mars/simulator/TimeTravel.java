@@ -0,0 +1,404 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.util.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.syscalls.*;
+   import java.util.*;
+
+/**
+ * Reverse execution beyond the reach of the BackStepper.  While a program runs,
+ * the simulator counts instructions and every Globals.checkpointInterval
+ * instructions takes a Checkpoint of the whole machine.  To go back to an earlier
+ * instruction, the latest checkpoint at or before it is restored and execution
+ * runs forward from there to the exact instruction, so going back costs at most
+ * one restore plus one interval of forward execution.
+ * <p>
+ * Checkpoints are kept for the whole run.  When there would be more than
+ * Globals.maximumCheckpoints of them, every other one is dropped and the interval
+ * doubles, so memory stays bounded and the entire run stays reachable at the price
+ * of a longer forward run for older instructions.
+ * <p>
+ * The forward run must take the same course as the original one, so the register
+ * and memory changes made by each syscall are logged the first time it runs and
+ * applied in its place on later forward runs.  Input is not read again, output is not
+ * printed again, and the time, random numbers and dialog results come out as before.
+ * Syscalls whose state a checkpoint restores run again instead: open, close, read and
+ * write of files other than standard input and output, sbrk and exit.  Files the
+ * program has open are repositioned by the checkpoint, and output written to them
+ * after it is discarded and written again.
+ * <p>
+ * The backstep history is cleared whenever a checkpoint is restored.  Checkpoints and
+ * logged syscalls later than the point returned to are discarded since execution may
+ * take a different course from there, so running on from it reads input anew.
+ * <p>
+ * A TimeTravel object belongs to a MIPSprogram and is created upon successful
+ * assembly when the TIME_TRAVEL_ENABLED setting is on.  In the GUI it is used by
+ * Run -> Reverse Step and Run -> Reverse Continue.  Its methods run the simulator
+ * synchronously, so call them from a thread other than the GUI's.
+ *
+ * @see Checkpoint
+ */
+
+    public class TimeTravel {
+      private MIPSprogram program;
+      private ArrayList checkpoints; // of Checkpoint, oldest first
+      private ArrayList syscalls;    // of SyscallEffect, in order of execution
+      private int syscallCount;      // number of logged syscalls executed so far
+      private long instructionCount;
+      private long interval;
+      private long nextCheckpoint;
+      private boolean recording;
+
+    /**
+     * Create a TimeTravel for the given program.  The first checkpoint is taken when
+     * the program starts running.
+     * @param program the assembled program
+     */
+       public TimeTravel(MIPSprogram program) {
+         this.program = program;
+         checkpoints = new ArrayList();
+         syscalls = new ArrayList();
+         syscallCount = 0;
+         instructionCount = 0;
+         interval = Math.max(1, Globals.checkpointInterval);
+         nextCheckpoint = 0;
+         recording = true;
+      }
+
+    /**
+     * Number of instructions the program has executed, counting from the start of the
+     * run and going down when execution is taken back.
+     * @return instruction count
+     */
+       public long getInstructionCount() {
+         return instructionCount;
+      }
+
+    /**
+     * Number of checkpoints currently held.
+     * @return checkpoint count
+     */
+       public int getCheckpointCount() {
+         return checkpoints.size();
+      }
+
+    /**
+     * Called by the simulator between instructions, when a run starts and after each
+     * instruction (or basic block) it executes.
+     * @param stepsTaken number of instructions just executed, 0 at start of run
+     */
+       void executed(int stepsTaken) {
+         instructionCount += stepsTaken;
+         if (recording && instructionCount >= nextCheckpoint) {
+            checkpoints.add(new Checkpoint(instructionCount, syscallCount));
+            nextCheckpoint = instructionCount + interval;
+            if (checkpoints.size() > Globals.maximumCheckpoints) {
+               thin();
+            }
+         }
+      }
+
+    /**
+     * Take execution back to the point where the given number of instructions had been
+     * executed.
+     * @param target instruction count to return to, from 0 to getInstructionCount()
+     * @return true if successful, false if target is out of range or there is no
+     * checkpoint before it
+     * @throws ProcessingException if the forward run ends in a runtime error
+     */
+       public boolean runBackTo(long target) throws ProcessingException {
+         if (target < 0 || target > instructionCount) {
+            return false;
+         }
+         int index = latestCheckpointAtOrBefore(target);
+         if (index < 0) {
+            return false;
+         }
+         while (checkpoints.size() > index + 1) {
+            checkpoints.remove(checkpoints.size() - 1);
+         }
+         Checkpoint checkpoint = (Checkpoint) checkpoints.get(index);
+         restore(checkpoint);
+         nextCheckpoint = checkpoint.getInstructionCount() + interval;
+         runForward(target, null);
+         discardLaterSyscalls();
+         return instructionCount == target;
+      }
+
+    /**
+     * Take execution back one instruction.
+     * @return true if successful, false if at the start or there is no checkpoint
+     * @throws ProcessingException if the forward run ends in a runtime error
+     */
+       public boolean reverseStep() throws ProcessingException {
+         return instructionCount > 0 && runBackTo(instructionCount - 1);
+      }
+
+    /**
+     * Take execution back to the most recent point, before the current one, at which
+     * the program counter held one of the given breakpoint addresses.  If there is
+     * none, execution is left where it is.
+     * @param breakPoints breakpoint addresses, sorted ascending
+     * @return true if a breakpoint was found and execution taken back to it
+     * @throws ProcessingException if a forward run ends in a runtime error
+     */
+       public boolean reverseContinue(int[] breakPoints) throws ProcessingException {
+         if (breakPoints.length == 0) {
+            return false;
+         }
+         long current = instructionCount;
+         long found = -1;
+         recording = false;
+         try {
+            long end = current;
+            for (int index = latestCheckpointAtOrBefore(current - 1); index >= 0 && found < 0; index--) {
+               Checkpoint checkpoint = (Checkpoint) checkpoints.get(index);
+               restore(checkpoint);
+               if (Arrays.binarySearch(breakPoints, checkpoint.getProgramCounter()) >= 0) {
+                  found = instructionCount;
+               }
+               // The simulator stops after an instruction that leaves the program counter
+            	// at a breakpoint, so each stop short of end is a breakpoint hit.
+               while (instructionCount < end) {
+                  long before = instructionCount;
+                  boolean done = runForward(end, breakPoints);
+                  if (instructionCount < end) {
+                     found = instructionCount;
+                  }
+                  if (done || instructionCount == before) {
+                     break;
+                  }
+               }
+               end = checkpoint.getInstructionCount();
+            }
+         }
+         finally {
+            recording = true;
+         }
+         return runBackTo(found >= 0 ? found : current) && found >= 0;
+      }
+
+    /**
+     * Called by the instruction set to execute a syscall in place of Syscall.simulate().
+     * The first time, the syscall runs and its effects are logged; on later forward
+     * runs over the same point the logged effects are applied instead.
+     * @param service the syscall to execute
+     * @param statement the syscall statement
+     * @throws ProcessingException if the syscall ends in a runtime error
+     */
+       public void simulateSyscall(Syscall service, ProgramStatement statement) throws ProcessingException {
+         if (syscallCount < syscalls.size()) {
+            SyscallEffect effect = (SyscallEffect) syscalls.get(syscallCount);
+            if (effect.getNumber() == service.getNumber()) {
+               if (effect.runsAgain()) {
+                  service.simulate(statement);
+               } 
+               else {
+                  effect.apply(statement);
+               }
+               syscallCount++;
+               return;
+            }
+            discardLaterSyscalls(); // not the same course after all
+         }
+         SyscallEffect effect = new SyscallEffect(service.getNumber(), runsAgain(service));
+         if (effect.runsAgain()) {
+            service.simulate(statement);
+         } 
+         else {
+            effect.log(service, statement);
+         }
+         syscalls.add(effect);
+         syscallCount++;
+      }
+   
+      // Whether a syscall's effects are part of the machine state a checkpoint restores,
+   	// so it can simply run again: file operations other than console I/O, sbrk and exit.
+       private static boolean runsAgain(Syscall service) {
+         String name = service.getName();
+         if (name.equals("Read") || name.equals("Write")) {
+            int fd = RegisterFile.getValue(4);
+            return fd < 0 || fd > 2;
+         }
+         return name.equals("Open") || name.equals("Close") || name.equals("Sbrk")
+             || name.equals("Exit") || name.equals("Exit2");
+      }
+   
+      // Forget the logged syscalls not yet reached, so the next ones run anew.
+       private void discardLaterSyscalls() {
+         while (syscalls.size() > syscallCount) {
+            syscalls.remove(syscalls.size() - 1);
+         }
+      }
+   
+      // Restore a checkpoint without recording backsteps, then forget the old backsteps.
+       private void restore(Checkpoint checkpoint) {
+         BackStepper backStepper = program.getBackStepper();
+         boolean backStepping = backStepper != null && backStepper.enabled();
+         if (backStepper != null) {
+            backStepper.setEnabled(false);
+         }
+         synchronized (MachineContext.current().getLock()) {
+            checkpoint.restore();
+         }
+         if (backStepper != null) {
+            backStepper.clear();
+            backStepper.setEnabled(backStepping);
+         }
+         instructionCount = checkpoint.getInstructionCount();
+         syscallCount = checkpoint.getSyscallCount();
+      }
+
+      // Run from the current state until target instructions have been executed, a
+   	// breakpoint is reached, or the program ends.  Returns true if the program ended.
+       private boolean runForward(long target, int[] breakPoints) throws ProcessingException {
+         boolean done = false;
+         while (!done && instructionCount < target) {
+            long before = instructionCount;
+            int steps = (int) Math.min(target - instructionCount, Integer.MAX_VALUE);
+            done = Simulator.getInstance().simulate(program, RegisterFile.getProgramCounter(),
+                                   steps, breakPoints, null);
+            if (instructionCount - before < steps) {
+               break; // stopped at breakpoint
+            }
+         }
+         return done;
+      }
+
+       private int latestCheckpointAtOrBefore(long target) {
+         for (int i = checkpoints.size() - 1; i >= 0; i--) {
+            if (((Checkpoint) checkpoints.get(i)).getInstructionCount() <= target) {
+               return i;
+            }
+         }
+         return -1;
+      }
+
+      // Keep the first checkpoint and every other one after it, and double the interval.
+       private void thin() {
+         ArrayList kept = new ArrayList();
+         for (int i = 0; i < checkpoints.size(); i += 2) {
+            kept.add(checkpoints.get(i));
+         }
+         checkpoints = kept;
+         interval *= 2;
+         Checkpoint last = (Checkpoint) checkpoints.get(checkpoints.size() - 1);
+         nextCheckpoint = last.getInstructionCount() + interval;
+      }
+      
+      /////////////////////////////////////////////////////////////////////////
+      // The register and memory changes made by one syscall.  While the syscall is being
+   	// logged this observes memory, recording the writes made through Memory.
+       private static class SyscallEffect implements Observer {
+         private int number;
+         private boolean runsAgain;
+         private int[] registers; // pairs of register index (as in registerValues()) and new value
+         private int[] memory;    // triples of address, length and value written
+         private ArrayList writes;
+      
+          SyscallEffect(int number, boolean runsAgain) {
+            this.number = number;
+            this.runsAgain = runsAgain;
+         }
+      
+          int getNumber() {
+            return number;
+         }
+      
+          boolean runsAgain() {
+            return runsAgain;
+         }
+      
+      	// Run the syscall, noting what it changes.  Nothing is kept if it fails.
+          void log(Syscall service, ProgramStatement statement) throws ProcessingException {
+            int[] before = registerValues();
+            writes = new ArrayList();
+            Memory.getInstance().addObserver(this);
+            try {
+               service.simulate(statement);
+            } 
+            finally {
+               Memory.getInstance().deleteObserver(this);
+            }
+            int[] after = registerValues();
+            int changed = 0;
+            for (int i=0; i<after.length; i++) {
+               if (after[i] != before[i]) {
+                  changed++;
+               }
+            }
+            registers = new int[2 * changed];
+            for (int i=0, j=0; i<after.length; i++) {
+               if (after[i] != before[i]) {
+                  registers[j++] = i;
+                  registers[j++] = after[i];
+               }
+            }
+            memory = new int[3 * writes.size()];
+            for (int i=0; i<writes.size(); i++) {
+               MemoryAccessNotice notice = (MemoryAccessNotice) writes.get(i);
+               memory[3*i] = notice.getAddress();
+               memory[3*i+1] = notice.getLength();
+               memory[3*i+2] = notice.getValue();
+            }
+            writes = null;
+         }
+      
+          public void update(Observable memory, Object notice) {
+            if (writes != null && ((AccessNotice) notice).getAccessType() == AccessNotice.WRITE) {
+               writes.add(notice);
+            }
+         }
+      
+      	// Make the logged changes again, recording backsteps as the syscall would have.
+          void apply(ProgramStatement statement) throws ProcessingException {
+            for (int i=0; i<registers.length; i+=2) {
+               int index = registers[i];
+               if (index < 32) {
+                  RegisterFile.updateRegister(index, registers[i+1]);
+               } 
+               else if (index < 34) {
+                  RegisterFile.updateRegister(index + 1, registers[i+1]); // hi is 33, lo 34
+               } 
+               else {
+                  Coprocessor1.updateRegister(index - 34, registers[i+1]);
+               }
+            }
+            Memory mem = Memory.getInstance();
+            try {
+               for (int i=0; i<memory.length; i+=3) {
+                  int address = memory[i], length = memory[i+1], value = memory[i+2];
+                  if (length == Memory.WORD_LENGTH_BYTES && address % length == 0) {
+                     mem.setWord(address, value);
+                  } 
+                  else if (length == 1) {
+                     mem.setByte(address, value);
+                  } 
+                  else {
+                     mem.set(address, value, length);
+                  }
+               }
+            } 
+                catch (AddressErrorException e) {
+                  // The same writes succeeded when the syscall was logged.
+                  throw new ProcessingException(statement, e);
+               }
+         }
+      
+      	// $0-$31, hi, lo, then the 32 floating point registers.
+          private static int[] registerValues() {
+            Register[] regs = RegisterFile.getRegisters();
+            Register[] fpRegs = Coprocessor1.getRegisters();
+            int[] values = new int[34 + fpRegs.length];
+            for (int i=0; i<32; i++) {
+               values[i] = regs[i].getValueNoNotify();
+            }
+            values[32] = RegisterFile.getValue(33);
+            values[33] = RegisterFile.getValue(34);
+            for (int i=0; i<fpRegs.length; i++) {
+               values[34+i] = fpRegs[i].getValueNoNotify();
+            }
+            return values;
+         }
+      }
+   }
@@ -74,6 +74,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// For MarsTool, is set true when "Connect" clicked, false when "Disconnect" clicked.
    	// For app, is set true when "Assemble and Run" clicked, false when program terminates.
       private volatile boolean observing = false;
+      private MemoryAccessStream accessStream = null; // non-null while observing via addAsBatchedObserver()
    
    	// Several structures required for stand-alone use only (not MarsTool use)
       private File mostRecentlyOpenedFile = null; 
@@ -481,6 +482,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        protected void processMIPSUpdate(Observable resource, AccessNotice notice) {
       }
    	
+   	/**
+   	 * Override this method to process a batch of MIPS memory accesses received through
+   	 * addAsBatchedObserver().  It is called on the stream's own thread, neither the
+   	 * simulator thread nor the AWT event thread, so use SwingUtilities.invokeLater() to
+   	 * update Swing components.  By default it does nothing.
+   	 * @param batch the accesses, oldest first.  Reused after this method returns.
+   	 */
+       protected void processMIPSUpdateBatch(MemoryAccessBatch batch) {
+      }
+   	
    	/**
    	 *  This method is called when tool/app is exited either through the close/exit button or the window's X box.
    	 *  Override it to perform any special housecleaning needed.  By default it does nothing.
@@ -532,6 +543,43 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             }		 
       }
    
+      /**
+   	 *  Observe the specified subrange of MIPS memory through a MemoryAccessStream rather
+   	 *  than as an Observer.  Accesses are buffered and handed to processMIPSUpdateBatch()
+   	 *  in batches on a separate thread, so a tool whose processing is slow does not slow
+   	 *  the MIPS program down (unless the policy is BLOCK).  processMIPSUpdate() and
+   	 *  updateDisplay() are not called for these accesses.  Override addAsObserver() to call
+   	 *  this instead of addAsObserver(int, int); the default deleteAsObserver() disconnects
+   	 *  the stream.
+   	 *  @param lowEnd low end of memory address range.
+   	 *  @param highEnd high end of memory address range; must be >= lowEnd
+   	 *  @param policy what to do when the stream's buffer is full: MemoryAccessStream.BLOCK, 
+   	 *  MemoryAccessStream.DROP or MemoryAccessStream.SAMPLE
+   	 */
+   	
+       protected void addAsBatchedObserver(int lowEnd, int highEnd, int policy) {
+         String errorMessage = "Error connecting to MIPS memory";
+         if (accessStream == null) {
+            accessStream = new MemoryAccessStream(
+                   new MemoryAccessStream.Listener() {
+                      public void accessesOccurred(MemoryAccessBatch batch) {
+                        processMIPSUpdateBatch(batch);
+                     }
+                  }, policy);
+         }
+         try {
+            accessStream.connect(lowEnd, highEnd);
+         } 
+             catch (AddressErrorException aee) {
+               if (this.isBeingUsedAsAMarsTool) {
+                  headingLabel.setText(errorMessage);
+               } 
+               else {
+                  operationStatusMessages.displayTerminatingMessage(errorMessage);
+               }
+            }		 
+      }
+   
       /**
    	 *  Add this app/tool as an Observer of the specified MIPS register.
    	 */
@@ -553,6 +601,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 
        protected void deleteAsObserver() {
          Globals.memory.deleteObserver(thisMarsApp);
+         if (accessStream != null) {
+            accessStream.disconnect();
+            accessStream = null;
+         }
       }
    
       /**
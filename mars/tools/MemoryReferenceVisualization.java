@@ -170,7 +170,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (baseAddress < 0 && highAddress > -4) {
             highAddress = -4;
          }
-         addAsObserver(baseAddress, highAddress);
+      	// Counting is cheap but a repaint per access is not, so take accesses in batches.
+      	// BLOCK because every reference must be counted.
+         addAsBatchedObserver(baseAddress, highAddress, MemoryAccessStream.BLOCK);
       }
    
       
@@ -204,6 +206,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          updateDisplay();
       }
    	
+   	/**
+   	 *  Update display after a batch of MIPS memory accesses.  Overrides inherited method
+   	 *  that does nothing.
+   	 */
+       protected void processMIPSUpdateBatch(MemoryAccessBatch batch) {
+         for (int i = 0; i < batch.size(); i++) {
+            incrementReferenceCountForAddress(batch.getAddress(i));
+         }
+         updateDisplay();
+      }
+   	
    
    	/** 
    	 *  Initialize all JComboBox choice structures not already initialized at declaration.	
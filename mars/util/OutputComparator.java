@@ -0,0 +1,161 @@
+   package mars.util;
+   import mars.simulator.*;
+   import java.io.*;
+
+/**
+ * Console output stream that checks the output of a MIPS program as it is produced.
+ * Each byte is compared with the next byte of the output expected of the program,
+ * and bytes are counted against a limit.  At the first byte that differs, or the
+ * first byte over the limit, the running program is stopped, so a program that has
+ * already failed does not run to the end.  Output up to that point is passed on to
+ * another stream, if one is given; output after it is discarded.
+ * <p>
+ * Write to it only from the simulator thread of the program being checked, since
+ * it stops the Simulator of the calling thread's machine context.  Call finish()
+ * once the program has stopped to learn the outcome.
+ *
+ * @see mars.MarsLaunch
+ */
+
+    public class OutputComparator extends OutputStream {
+
+    /** Outcome: output so far is as expected, and within the limit. */
+      public static final int MATCH = 0;
+    /** Outcome: output differs from the expected output. */
+      public static final int MISMATCH = 1;
+    /** Outcome: output exceeded the byte limit. */
+      public static final int LIMIT_EXCEEDED = 2;
+
+      private InputStream expected;   // null if output is not compared
+      private OutputStream copy;      // null if output is not passed on
+      private long limit;
+      private long count;             // bytes of output accepted
+      private int line;               // line of output the next byte belongs to
+      private int outcome;
+      private boolean finished;
+
+    /**
+     * Create a comparator.
+     * @param expected the expected output, or null to only apply the limit.  It is
+     * read as output is produced, and closed by finish().
+     * @param limit maximum number of bytes of output; 0 or negative for no maximum
+     * @param copy stream to pass output on to, or null for none
+     */
+       public OutputComparator(InputStream expected, long limit, OutputStream copy) {
+         this.expected = (expected == null) ? null : new BufferedInputStream(expected);
+         this.limit = limit;
+         this.copy = copy;
+         count = 0;
+         line = 1;
+         outcome = MATCH;
+         finished = false;
+      }
+
+    /**
+     * Check one byte of output.
+     * @param b the byte, in the low 8 bits
+     * @throws IOException if the stream output is passed on to throws one
+     */
+       public void write(int b) throws IOException {
+         if (outcome != MATCH) {
+            return;
+         }
+         if (limit > 0 && count >= limit) {
+            stop(LIMIT_EXCEEDED);
+            return;
+         }
+         if (expected != null && readExpected() != (b & 0xFF)) {
+            stop(MISMATCH);
+            return;
+         }
+         count++;
+         if (b == '\n') {
+            line++;
+         }
+         if (copy != null) {
+            copy.write(b);
+         }
+      }
+
+    /**
+     * Check bytes of output.
+     * @param b the bytes
+     * @param off index of the first byte
+     * @param len number of bytes
+     * @throws IOException if the stream output is passed on to throws one
+     */
+       public void write(byte[] b, int off, int len) throws IOException {
+         for (int i = off; i < off + len; i++) {
+            write(b[i]);
+         }
+      }
+
+    /**
+     * Flush the stream output is passed on to.
+     * @throws IOException if it throws one
+     */
+       public void flush() throws IOException {
+         if (copy != null) {
+            copy.flush();
+         }
+      }
+
+    /**
+     * Finish checking, once the program has stopped.  Output that ends before the
+     * expected output does is a mismatch.  Closes the expected output.
+     * @return the outcome: MATCH, MISMATCH or LIMIT_EXCEEDED
+     */
+       public int finish() {
+         if (!finished) {
+            finished = true;
+            if (outcome == MATCH && expected != null && readExpected() != -1) {
+               outcome = MISMATCH;
+            }
+            if (expected != null) {
+               try {
+                  expected.close();
+               }
+                   catch (IOException e) {
+                  }
+            }
+         }
+         return outcome;
+      }
+
+    /**
+     * @return number of bytes of output that were as expected and within the limit
+     */
+       public long getByteCount() {
+         return count;
+      }
+
+    /**
+     * Describe the outcome, for display.
+     * @return a one-line description, or "" if the output is as expected
+     */
+       public String getDescription() {
+         switch (outcome) {
+            case MISMATCH:
+               return "Output differs from expected output at byte " + count + " (line " + line + ").";
+            case LIMIT_EXCEEDED:
+               return "Output exceeded the limit of " + limit + " bytes.";
+            default:
+               return "";
+         }
+      }
+
+      // Next byte of expected output, or -1 at its end.  A read error counts as its end.
+       private int readExpected() {
+         try {
+            return expected.read();
+         }
+             catch (IOException e) {
+               return -1;
+            }
+      }
+
+       private void stop(int reason) {
+         outcome = reason;
+         Simulator.getInstance().stopExecution(null);
+      }
+   }
@@ -1,6 +1,9 @@
    package mars.util;
    import mars.*;
    import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.*;
+   import java.nio.file.*;
    import javax.swing.*;
    import java.util.*;
 	
@@ -38,6 +41,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * run from the command line or through the GUI, then do I/O to
  * System.in and System.out in the former situation, and interact with
  * the GUI in the latter.
+ * <p>
+ * Files opened by the MIPS program are FileChannels.  Reads go straight into
+ * the syscall's byte array, and writes go through a direct buffer reused for
+ * every write.
  *
  * @author Pete Sanderson and Ken Vollmar
  * @version August 2003-2005
@@ -47,9 +54,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     /** Buffer size for syscalls for file I/O */
       public static final int SYSCALL_BUFSIZE = 128;
     /** Maximum number of files that can be open */
-      public static final int SYSCALL_MAXFILES = 32;
+      public static final int SYSCALL_MAXFILES = 1024;
+      // Capacity of the direct buffer writes go through.
+      private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+      // Size of the file descriptor table when created.  It doubles as needed, up to
+   	// SYSCALL_MAXFILES.
+      private static final int INITIAL_FILES = 32;
     /** String used for description of file error */
-      public static String fileErrorString = new String("File operation OK");
    
       private static final int O_RDONLY = 0x00000000;
       private static final int O_WRONLY = 0x00000001;
@@ -66,7 +77,80 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
       // Will use one buffered reader for all keyboard/redirected/piped input.
    	// Added by DPS 28 Feb 2008.  See getInputReader() below.
-      private static BufferedReader inputReader = null;
+      private BufferedReader inputReader = null;
+      private InputStream consoleInput = null;   // null means System.in
+      private PrintStream consoleOutput = null;  // null means System.out
+      // Command-mode console output of print syscalls not yet written to consoleOutput.
+   	// Written out at a newline, when CONSOLE_BUFFER_SIZE characters are held, before
+   	// console input is read or STDOUT/STDERR written as files, and when a run ends.
+      private static final int CONSOLE_BUFFER_SIZE = 8192;
+      private StringBuffer consoleBuffer = new StringBuffer();
+      private FileIOData files = new FileIOData(this);
+   
+    /**
+     * Create the I/O state of one simulated machine: console streams and a table of
+     * open files.  Used by MachineContext; others use the static methods, which act on
+     * the state of the calling thread's context.
+     */
+       public SystemIO()
+      {
+      }
+   
+    /**
+     * Direct command-mode console input and output (syscalls and file descriptors 0
+     * and 1) to the given streams instead of System.in and System.out.  Takes effect
+     * at the next resetFiles().
+     * @param input stream to read console input from, or null for System.in
+     * @param output stream to write console output to, or null for System.out
+     */
+       public void setConsole(InputStream input, PrintStream output)
+      {
+         flushConsoleBuffer();
+         consoleInput = input;
+         consoleOutput = output;
+         inputReader = null;
+      }
+   
+      // Console input stream, as set by setConsole().
+       private InputStream getConsoleInput()
+      {
+         return (consoleInput == null) ? System.in : consoleInput;
+      }
+   
+      // Console output stream, as set by setConsole().
+       private PrintStream getConsoleOutput()
+      {
+         return (consoleOutput == null) ? System.out : consoleOutput;
+      }
+   
+      // Write out buffered console output.
+       private void flushConsoleBuffer()
+      {
+         PrintStream output = getConsoleOutput();
+         if (consoleBuffer.length() > 0) {
+            output.print(consoleBuffer);
+            consoleBuffer.setLength(0);
+         }
+         output.flush();
+      }
+   
+    /**
+     * Write out console output that print syscalls have buffered.  The simulator calls
+     * this when a run ends.
+     */
+       public static void flushConsoleOutput()
+      {
+         if (Globals.getGui() == null)
+         {
+            current().flushConsoleBuffer();
+         }
+      }
+   
+      // The I/O state of the calling thread's machine context.
+       private static SystemIO current()
+      {
+         return MachineContext.current().getSystemIO();
+      }
    
     /**
      * Implements syscall to read an integer value.  
@@ -82,7 +166,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {  
-               input = getInputReader().readLine();
+               input = current().getInputReader().readLine();
             } 
                 catch (IOException e)
                {}
@@ -117,7 +201,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().getInputReader().readLine();
             } 
                 catch (IOException e)
                {}
@@ -151,7 +235,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().getInputReader().readLine();
             } 
                 catch (IOException e)
                {}
@@ -178,7 +262,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       {
          if (Globals.getGui() == null)
          {
-            System.out.print(string);
+            SystemIO io = current();
+            io.consoleBuffer.append(string);
+            if (string.indexOf('\n') >= 0 || io.consoleBuffer.length() >= CONSOLE_BUFFER_SIZE) {
+               io.flushConsoleBuffer();
+            }
          } 
          else
          {
@@ -201,7 +289,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().getInputReader().readLine();
             } 
                 catch (IOException e)
                {}
@@ -244,7 +332,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().getInputReader().readLine();
             } 
                 catch (IOException e)
                {}
@@ -286,6 +374,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
        public static int writeToFile(int fd, byte[] myBuffer, int lengthRequested)
       {
+         FileIOData files = current().files;
        /////////////// DPS 8-Jan-2013  ////////////////////////////////////////////////////
        /// Write to STDOUT or STDERR file descriptor while using IDE - write to Messages pane. 
          if ((fd==STDOUT || fd==STDERR) && Globals.getGui() != null) {
@@ -295,17 +384,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
        ///////////////////////////////////////////////////////////////////////////////////
        //// When running in command mode, code below works for either regular file or STDOUT/STDERR
+         if (fd==STDOUT || fd==STDERR) {
+            current().flushConsoleBuffer();
+         }
       
-         if (!FileIOData.fdInUse(fd, 1)) // Check the existence of the "write" fd
+         if (!files.fdInUse(fd, 1)) // Check the existence of the "write" fd
          {
-            fileErrorString = new String(
+            files.fileErrorString = new String(
                     "File descriptor " + fd + " is not open for writing");
             return -1;
          }
-         // retrieve FileOutputStream from storage
-         OutputStream outputStream = (OutputStream) FileIOData.getStreamInUse(fd);
+         Object stream = files.getStreamInUse(fd);
          try
          {
+            if (stream instanceof FileChannel)
+            {
+               files.write(fd, myBuffer, lengthRequested);
+               return lengthRequested;
+            }
+            // STDOUT or STDERR
+            OutputStream outputStream = (OutputStream) stream;
             // Oct. 9 2005 Ken Vollmar
             // Observation: made a call to outputStream.write(myBuffer, 0, lengthRequested)
             //     with myBuffer containing 6(ten) 32-bit-words <---> 24(ten) bytes, where the
@@ -326,13 +424,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          } 
              catch (IOException e)
             {
-               fileErrorString = new String(
+               files.fileErrorString = new String(
                     "IO Exception on write of file with fd " + fd);
                return -1;
             } 
              catch (IndexOutOfBoundsException e)
             {
-               fileErrorString = new String(
+               files.fileErrorString = new String(
                     "IndexOutOfBoundsException on write of file with fd" + fd);
                return -1;
             }
@@ -351,6 +449,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      */
        public static int readFromFile(int fd, byte[] myBuffer, int lengthRequested)
       {
+         FileIOData files = current().files;
          int retValue = -1;  
        /////////////// DPS 8-Jan-2013  //////////////////////////////////////////////////
        /// Read from STDIN file descriptor while using IDE - get input from Messages pane. 
@@ -364,19 +463,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
        ////////////////////////////////////////////////////////////////////////////////////
        //// When running in command mode, code below works for either regular file or STDIN
+         if (fd==STDIN) {
+            current().flushConsoleBuffer();
+         }
        
-         if (!FileIOData.fdInUse(fd, 0)) // Check the existence of the "read" fd
+         if (!files.fdInUse(fd, 0)) // Check the existence of the "read" fd
          {
-            fileErrorString = new String(
+            files.fileErrorString = new String(
                     "File descriptor " + fd + " is not open for reading");
             return -1;
          }
-        // retrieve FileInputStream from storage
-         InputStream InputStream = (InputStream) FileIOData.getStreamInUse(fd);
+         Object stream = files.getStreamInUse(fd);
          try
          {
+            if (stream instanceof FileChannel)
+            {
+               return files.read(fd, myBuffer, lengthRequested);
+            }
+            // STDIN
             // Reads up to lengthRequested bytes of data from this Input stream into an array of bytes.
-            retValue = InputStream.read(myBuffer, 0, lengthRequested);
+            retValue = ((InputStream) stream).read(myBuffer, 0, lengthRequested);
          	// This method will return -1 upon EOF, but our spec says that negative
          	// value represents an error, so we return 0 for EOF.  DPS 10-July-2008.
             if (retValue == -1) {
@@ -385,13 +491,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          } 
              catch (IOException e)
             {
-               fileErrorString = new String(
+               files.fileErrorString = new String(
                     "IO Exception on read of file with fd " + fd);
                return -1;
             } 
              catch (IndexOutOfBoundsException e)
             {
-               fileErrorString = new String(
+               files.fileErrorString = new String(
                     "IndexOutOfBoundsException on read of file with fd" + fd);
                return -1;
             }
@@ -411,18 +517,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
        public static int openFile(String filename, int flags)
       {
+         FileIOData files = current().files;
         // Internally, a "file descriptor" is an index into a table
         // of the filename, flag, and the File???putStream associated with
         // that file descriptor.
       
          int retValue = -1;
-         char ch[] = { ' '}; // Need an array to convert to String
-         FileInputStream inputStream;
-         FileOutputStream outputStream;
          int fdToUse;
       
         // Check internal plausibility of opening this file
-         fdToUse = FileIOData.nowOpening(filename, flags);
+         fdToUse = files.nowOpening(filename, flags);
          retValue = fdToUse; // return value is the fd
          if (fdToUse < 0)
          { 
@@ -434,28 +538,46 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-                // Set up input stream from disk file
-               inputStream = new FileInputStream(filename);
-               FileIOData.setStreamInUse(fdToUse, inputStream); // Save stream for later use
+                // Set up channel from disk file
+               Path path = Paths.get(filename);
+               if (Files.isDirectory(path))
+               {
+                  throw new IOException(filename + " is a directory");
+               }
+               files.setStreamInUse(fdToUse, FileChannel.open(path, StandardOpenOption.READ)); // Save channel for later use
             } 
-                catch (FileNotFoundException e)
+                catch (IOException e)
+               {
+                  files.fileErrorString = new String(
+                        "File " + filename + " not found, open for input.");
+                  retValue = -1;
+               }
+                catch (InvalidPathException e)
                {
-                  fileErrorString = new String(
+                  files.fileErrorString = new String(
                         "File " + filename + " not found, open for input.");
                   retValue = -1;
                }
          } 
          else if ( (flags & O_WRONLY) != 0 ) // Open for writing only
          {
-            // Set up output stream to disk file
+            // Set up channel to disk file
             try
             { 
-               outputStream = new FileOutputStream(filename, ((flags & O_APPEND) != 0) );
-               FileIOData.setStreamInUse(fdToUse, outputStream); // Save stream for later use
+               StandardOpenOption mode = ((flags & O_APPEND) != 0)
+                  ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+               files.setStreamInUse(fdToUse, FileChannel.open(Paths.get(filename),
+                                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, mode)); // Save channel for later use
             } 
-                catch (FileNotFoundException e)
+                catch (IOException e)
+               {
+                  files.fileErrorString = new String(
+                        "File " + filename + " not found, open for output.");
+                  retValue = -1;
+               }
+                catch (InvalidPathException e)
                {
-                  fileErrorString = new String(
+                  files.fileErrorString = new String(
                         "File " + filename + " not found, open for output.");
                   retValue = -1;
                }
@@ -470,7 +592,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      */
        public static void closeFile(int fd)
       {
-         FileIOData.close(fd);
+         FileIOData files = current().files;
+         files.close(fd);
       }
    
     /** 
@@ -478,7 +601,48 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      */
        public static void resetFiles()
       {
-         FileIOData.resetFiles();
+         FileIOData files = current().files;
+         files.resetFiles();
+      }
+   
+    /**
+     * Capture the positions of the files the MIPS program has open, for use by
+     * restoreFileState().  Files opened for writing are captured at their current length.
+     *
+     * @return the captured file state
+     */
+       public static FileState saveFileState()
+      {
+         FileIOData files = current().files;
+         return files.saveFileState();
+      }
+   
+    /**
+     * Return open files to the state captured by saveFileState().  Files opened since
+     * then are closed.  Files still open since then are repositioned, and those opened
+     * for writing are truncated to their captured length, discarding later output.
+     * Files closed since then cannot be reopened and stay closed.
+     *
+     * @param state file state previously returned by saveFileState()
+     */
+       public static void restoreFileState(FileState state)
+      {
+         FileIOData files = current().files;
+         files.restoreFileState(state);
+      }
+   
+    /**
+     * File descriptor table contents captured by saveFileState().
+     */
+       public static class FileState
+      {
+         private String[] fileNames;
+         private long[] positions;
+      
+          private FileState(int size) {
+            fileNames = new String[size];
+            positions = new long[size];
+         }
       }
    
      /**
@@ -488,7 +652,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*/
        public static String getFileErrorMessage()
       {
-         return fileErrorString;
+         FileIOData files = current().files;
+         return files.fileErrorString;
       }
    
       ///////////////////////////////////////////////////////////////////////
@@ -497,9 +662,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// These are all equivalent in the eyes of the program because they are 
    	// transparent to it.  Lazy instantiation.  DPS.  28 Feb 2008
    	
-       private static BufferedReader getInputReader() {
+       private BufferedReader getInputReader() {
+         flushConsoleBuffer(); // so a prompt is seen before input is read
          if (inputReader == null) {
-            inputReader = new BufferedReader(new InputStreamReader(System.in));  
+            inputReader = new BufferedReader(new InputStreamReader(getConsoleInput()));  
          }
          return inputReader;
       }
@@ -511,52 +677,93 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     
        private static class FileIOData
       {
-         private static String[] fileNames = new String[ SYSCALL_MAXFILES ]; // The filenames in use. Null if file descriptor i is not in use.
-         private static int[] fileFlags = new int[ SYSCALL_MAXFILES ]; // The flags of this file, 0=READ, 1=WRITE. Invalid if this file descriptor is not in use.
-         private static Object[] streams = new Object[SYSCALL_MAXFILES]; // The streams in use, associated with the filenames
+         private String[] fileNames = new String[ INITIAL_FILES ]; // The filenames in use. Null if file descriptor i is not in use.
+         private int[] fileFlags = new int[ INITIAL_FILES ]; // The flags of this file, 0=READ, 1=WRITE. Invalid if this file descriptor is not in use.
+         private Object[] streams = new Object[INITIAL_FILES]; // Streams for standard I/O, FileChannels for files
+         private ByteBuffer writeBuffer = null; // Direct buffer for writes, allocated at first write
+         private String fileErrorString = new String("File operation OK");
+         private SystemIO owner;
+      
+          private FileIOData(SystemIO owner)
+         {
+            this.owner = owner;
+         }
       
         // Reset all file information. Closes any open files and resets the arrays
-          private static void resetFiles()
+          private void resetFiles()
          {
-            for (int i = 0; i < SYSCALL_MAXFILES; i++)
+            for (int i = 0; i < fileNames.length; i++)
             {
                close(i);
             }
             setupStdio();
          }
       	// DPS 8-Jan-2013
-          private static void setupStdio() {
+          private void setupStdio() {
             fileNames[STDIN]  = "STDIN";
             fileNames[STDOUT] = "STDOUT";
             fileNames[STDERR] = "STDERR";
             fileFlags[STDIN]  = SystemIO.O_RDONLY;
             fileFlags[STDOUT] = SystemIO.O_WRONLY;
             fileFlags[STDERR] = SystemIO.O_WRONLY;
-            streams[STDIN]  = System.in;
-            streams[STDOUT] = System.out;
+            streams[STDIN]  = owner.getConsoleInput();
+            streams[STDOUT] = owner.getConsoleOutput();
             streams[STDERR] = System.err;
-            System.out.flush();
+            owner.flushConsoleBuffer();
             System.err.flush();
          }
       
         // Preserve a stream that is in use
-          private static void setStreamInUse(int fd, Object s)
+          private void setStreamInUse(int fd, Object s)
          {
             streams[fd] = s;
          
          }
       
         // Retrieve a stream for use
-          private static Object getStreamInUse(int fd)
+          private Object getStreamInUse(int fd)
          {
             return streams[fd];
          
          }
       
+        // Read up to length bytes from the file at its current position.  Returns the
+        // number of bytes read, 0 at end of file.  The bytes end up in a byte array
+        // either way, so they are read into it directly; a mapped region would gain
+        // nothing and, never being unmapped, would keep the file locked on Windows.
+          private int read(int fd, byte[] buffer, int length) throws IOException
+         {
+            FileChannel channel = (FileChannel) streams[fd];
+            int count = channel.read(ByteBuffer.wrap(buffer, 0, length));
+            return (count < 0) ? 0 : count;
+         }
+      
+        // Write length bytes to the file, through the direct buffer.
+          private void write(int fd, byte[] buffer, int length) throws IOException
+         {
+            FileChannel channel = (FileChannel) streams[fd];
+            if (writeBuffer == null)
+            {
+               writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            }
+            for (int offset = 0; offset < length; )
+            {
+               int count = Math.min(length - offset, writeBuffer.capacity());
+               writeBuffer.clear();
+               writeBuffer.put(buffer, offset, count);
+               writeBuffer.flip();
+               while (writeBuffer.hasRemaining())
+               {
+                  channel.write(writeBuffer);
+               }
+               offset += count;
+            }
+         }
+      
         // Determine whether a given filename is already in use.
-          private static boolean filenameInUse(String requestedFilename)
+          private boolean filenameInUse(String requestedFilename)
          {
-            for (int i = 0; i < SYSCALL_MAXFILES; i++)
+            for (int i = 0; i < fileNames.length; i++)
             {
                if (fileNames[i] != null
                         && fileNames[i].equals(requestedFilename))
@@ -572,9 +779,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       
         // Determine whether a given fd is already in use with the given flag.
-          private static boolean fdInUse(int fd, int flag)
+          private boolean fdInUse(int fd, int flag)
          {
-            if (fd < 0 || fd >= SYSCALL_MAXFILES)
+            if (fd < 0 || fd >= fileNames.length)
             {
                return false;
             } 
@@ -590,27 +797,73 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          
          }
       
+          private FileState saveFileState()
+         {
+            FileState state = new FileState(fileNames.length);
+            for (int i = 0; i < fileNames.length; i++)
+            {
+               state.fileNames[i] = fileNames[i];
+               state.positions[i] = -1;
+               if (i > STDERR && streams[i] != null)
+               {
+                  try {
+                     state.positions[i] = ((FileChannel)streams[i]).position();
+                  } 
+                      catch (IOException ioe) {
+                     // leave as -1: will not be repositioned
+                     }
+               }
+            }
+            return state;
+         }
+      
+          private void restoreFileState(FileState state)
+         {
+            for (int i = STDERR + 1; i < fileNames.length; i++)
+            {
+               if (streams[i] == null) 
+                  continue;
+               if (i >= state.fileNames.length || state.fileNames[i] == null
+                      || !state.fileNames[i].equals(fileNames[i]))
+               {
+                  close(i); // opened after state was saved
+               }
+               else if (state.positions[i] >= 0)
+               {
+                  try {
+                     if (fileFlags[i] == O_RDONLY)
+                     {
+                        ((FileChannel)streams[i]).position(state.positions[i]);
+                     }
+                     else
+                     {
+                        ((FileChannel)streams[i]).truncate(state.positions[i]).position(state.positions[i]);
+                     }
+                  } 
+                      catch (IOException ioe) {
+                     // not concerned with this exception
+                     }
+               }
+            }
+         }
+      
         // Close the file with file descriptor fd. No errors are recoverable -- if the user's
         // made an error in the call, it will come back to him.
-          private static void close(int fd)
+          private void close(int fd)
          {
             // Can't close STDIN, STDOUT, STDERR, or invalid fd
-            if (fd <= STDERR || fd >= SYSCALL_MAXFILES) 
+            if (fd <= STDERR || fd >= fileNames.length) 
                return;
                
             fileNames[fd] = null;
          	// All this code will be executed only if the descriptor is open.
             if (streams[fd] != null)
             {
-               int keepFlag = fileFlags[fd];
                Object keepStream = streams[fd];
                fileFlags[fd] = -1;
                streams[fd] = null;
                try {
-                  if (keepFlag == O_RDONLY)
-                     ((FileInputStream)keepStream).close();
-                  else
-                     ((FileOutputStream)keepStream).close();
+                  ((FileChannel)keepStream).close();
                } 
                    catch (IOException ioe) {
                   // not concerned with this exception
@@ -624,7 +877,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
         // Attempt to open a new file with the given flag, using the lowest available file descriptor.
         // Check that filename is not in use, flag is reasonable, and there is an available file descriptor.
         // Return: file descriptor in 0...(SYSCALL_MAXFILES-1), or -1 if error
-          private static int nowOpening(String filename, int flag)
+          private int nowOpening(String filename, int flag)
          {
             int i = 0;
             if (filenameInUse(filename))
@@ -642,10 +895,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                return -1;
             }
          
-            while (fileNames[i] != null && i < SYSCALL_MAXFILES)
+            while (i < fileNames.length && fileNames[i] != null)
             {
                i++;
             } // Attempt to find available file descriptor
+            if (i == fileNames.length && i < SYSCALL_MAXFILES)
+            {
+               grow();
+            }
          
             if (i >= SYSCALL_MAXFILES) // no available file descriptors
             {
@@ -664,6 +921,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          
          }
       
+      
+        // Double the size of the file descriptor table, up to SYSCALL_MAXFILES.
+          private void grow()
+         {
+            int size = Math.min(2 * fileNames.length, SYSCALL_MAXFILES);
+            fileNames = Arrays.copyOf(fileNames, size);
+            fileFlags = Arrays.copyOf(fileFlags, size);
+            streams = Arrays.copyOf(streams, size);
+         }
+      
       } // end private class FileIOData
     ////////////////////////////////////////////////////////////////////////////////
    
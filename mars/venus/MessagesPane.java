@@ -55,6 +55,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// must obviously be smaller than the former.
       public static final int MAXIMUM_SCROLLED_CHARACTERS = Globals.maximumMessageCharacters;
       public static final int NUMBER_OF_CHARACTERS_TO_CUT = Globals.maximumMessageCharacters/10 ; // 10%
+      // Run messages waiting for the event thread to append them; null if none.
+      private StringBuffer pendingRunMessages = null;
+      private final Object pendingRunMessagesLock = new Object();
    
    /**
      *  Constructor for the class, sets up two fresh tabbed text areas for program feedback.
@@ -298,19 +301,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// "print" syscalls. "invokeLater" schedules the code to be
    	// run under the event-processing thread no matter what.
    	// DPS, 23 Aug 2005.
+   	// Messages posted while an append is waiting to run join that append, so a program
+   	// printing many short strings costs one append per event rather than one per string.
        public void postRunMessage(String message) {
-         final String mess = message;
+         synchronized (pendingRunMessagesLock) {
+            if (pendingRunMessages != null) {
+               pendingRunMessages.append(message);
+               return;
+            }
+            pendingRunMessages = new StringBuffer(message);
+         }
          SwingUtilities.invokeLater(
                 new Runnable() { 
                    public void run() { 
+                     String mess;
+                     synchronized (pendingRunMessagesLock) {
+                        mess = pendingRunMessages.toString();
+                        pendingRunMessages = null;
+                     }
                      setSelectedComponent(runTab);
                      run.append(mess);
                   // can do some crude cutting here.  If the document gets "very large", 
                   // let's cut off the oldest text. This will limit scrolling but the limit 
                   // can be set reasonably high.
-                     if (run.getDocument().getLength() > MAXIMUM_SCROLLED_CHARACTERS) {
+                     int length = run.getDocument().getLength();
+                     if (length > MAXIMUM_SCROLLED_CHARACTERS) {
                         try {
-                           run.getDocument().remove(0, NUMBER_OF_CHARACTERS_TO_CUT);
+                           run.getDocument().remove(0, Math.max(NUMBER_OF_CHARACTERS_TO_CUT,
+                                                                length - MAXIMUM_SCROLLED_CHARACTERS));
                         } 
                             catch (BadLocationException ble) { 
                            // only if NUMBER_OF_CHARACTERS_TO_CUT > MAXIMUM_SCROLLED_CHARACTERS
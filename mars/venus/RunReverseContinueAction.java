@@ -0,0 +1,21 @@
+   package mars.venus;
+   import mars.*;
+   import mars.simulator.*;
+   import javax.swing.*;
+
+   /**
+    * Action for the Run -> Reverse Continue menu item.  Takes execution back to the most
+    * recent point at which it reached one of the breakpoints, through the program's
+    * TimeTravel.
+    */
+    public class RunReverseContinueAction extends RunReverseStepAction {
+
+       public RunReverseContinueAction(String name, Icon icon, String descrip,
+                             Integer mnemonic, KeyStroke accel, VenusUI gui) {
+         super(name, icon, descrip, mnemonic, accel, gui);
+      }
+
+       protected boolean travel(TimeTravel timeTravel, int[] breakPoints) throws ProcessingException {
+         return timeTravel.reverseContinue(breakPoints);
+      }
+   }
@@ -0,0 +1,106 @@
+   package mars.venus;
+   import mars.*;
+   import mars.simulator.*;
+   import mars.mips.hardware.*;
+   import java.awt.event.*;
+   import javax.swing.*;
+
+   /**
+    * Action for the Run -> Reverse Step menu item.  Takes execution back one instruction
+    * through the program's TimeTravel, which unlike Backstep reaches back to the start
+    * of the run.  Going back means running forward from a checkpoint, so it is done in a
+    * thread of its own and the GUI is brought up to date when it is finished.
+    */
+    public class RunReverseStepAction extends GuiAction {
+
+      String name;
+      ExecutePane executePane;
+
+       public RunReverseStepAction(String name, Icon icon, String descrip,
+                             Integer mnemonic, KeyStroke accel, VenusUI gui) {
+         super(name, icon, descrip, mnemonic, accel, gui);
+      }
+
+      /**
+       * Take execution back in a separate thread.
+       */
+       public void actionPerformed(ActionEvent e) {
+         name = this.getValue(Action.NAME).toString();
+         executePane = mainUI.getMainPane().getExecutePane();
+         final TimeTravel timeTravel = (Globals.program == null) ? null : Globals.program.getTimeTravel();
+         if (!FileStatus.isAssembled() || timeTravel == null) {
+            // note: this should never occur since this is only enabled when there is time travel.
+            JOptionPane.showMessageDialog(mainUI,"The program must be assembled with the time travel setting on.");
+            return;
+         }
+         final int[] breakPoints = executePane.getTextSegmentWindow().getSortedBreakPointsArray();
+         final int status = FileStatus.get();
+         mainUI.setStarted(true);
+         mainUI.setMenuState(FileStatus.RUNNING);
+         new Thread(
+               new Runnable() {
+                  public void run() {
+                     boolean moved = false;
+                     ProcessingException error = null;
+                     try {
+                        moved = travel(timeTravel, (breakPoints == null) ? new int[0] : breakPoints);
+                     }
+                         catch (ProcessingException pe) {
+                           error = pe;
+                        }
+                     final boolean travelled = moved;
+                     final ProcessingException pe = error;
+                     SwingUtilities.invokeLater(
+                           new Runnable() {
+                              public void run() {
+                                 travelled(timeTravel, status, travelled, pe);
+                              }
+                           });
+                  }
+               }).start();
+      }
+
+      /**
+       * Take execution back.  Called in a thread other than the GUI's.
+       * @param timeTravel the program's TimeTravel
+       * @param breakPoints breakpoint addresses, sorted ascending
+       * @return true if execution was taken back
+       * @throws ProcessingException if running forward from a checkpoint ends in a runtime error
+       */
+       protected boolean travel(TimeTravel timeTravel, int[] breakPoints) throws ProcessingException {
+         return timeTravel.reverseStep();
+      }
+
+      // Back in the GUI thread, show where execution now is.
+       private void travelled(TimeTravel timeTravel, int status, boolean moved, ProcessingException pe) {
+         executePane.getRegistersWindow().updateRegisters();
+         executePane.getCoprocessor1Window().updateRegisters();
+         executePane.getCoprocessor0Window().updateRegisters();
+         executePane.getDataSegmentWindow().updateValues();
+         executePane.getTextSegmentWindow().setCodeHighlighting(true);
+         if (pe != null) {
+            RunGoAction.resetMaxSteps();
+            mainUI.getMessagesPane().postMarsMessage(
+                                pe.errors().generateErrorReport());
+            mainUI.getMessagesPane().postMarsMessage(
+                                "\n"+name+": execution terminated with errors.\n\n");
+            mainUI.getRegistersPane().setSelectedComponent(executePane.getCoprocessor0Window());
+            FileStatus.set(FileStatus.TERMINATED);
+            executePane.getTextSegmentWindow().unhighlightAllSteps();
+            executePane.getTextSegmentWindow().highlightStepAtAddress(RegisterFile.getProgramCounter()-4);
+            return;
+         }
+         if (moved) {
+            mainUI.getMessagesPane().postMarsMessage(
+                                name+": back to instruction "+timeTravel.getInstructionCount()+" of the run.\n");
+            executePane.getTextSegmentWindow().highlightStepAtPC();
+            FileStatus.set(FileStatus.RUNNABLE);
+         }
+         else {
+            mainUI.getMessagesPane().postMarsMessage(
+                                name+": no earlier point to go back to.\n");
+            FileStatus.set(status);
+         }
+         mainUI.setReset(false);
+      }
+   }
@@ -0,0 +1,23 @@
+   package mars.venus;
+   import mars.*;
+   import java.awt.event.*;
+   import javax.swing.*;
+
+   /**
+    * Action class for the Settings menu item to control whether the simulator takes
+    * checkpoints as the program runs, so Run -> Reverse Step and Run -> Reverse Continue
+    * can go back to any earlier point of the run.  Takes effect at the next assembly.
+    */
+    public class SettingsTimeTravelAction extends GuiAction  {
+
+       public SettingsTimeTravelAction(String name, Icon icon, String descrip,
+                             Integer mnemonic, KeyStroke accel, VenusUI gui) {
+         super(name, icon, descrip, mnemonic, accel, gui);
+      }
+
+       public void actionPerformed(ActionEvent e) {
+         Globals.getSettings().setBooleanSetting(Settings.TIME_TRAVEL_ENABLED,
+               ((JCheckBoxMenuItem) e.getSource()).isSelected());
+      }
+
+   }
@@ -74,10 +74,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private JMenu file, run, window, help, edit, settings; // , language;
       private JMenuItem fileNew, fileOpen, fileClose, fileCloseAll, fileSave, fileSaveAs, fileSaveAll, fileDumpMemory, filePrint, fileExit;
       private JMenuItem editUndo, editRedo, editCut, editCopy, editPaste, editFindReplace, editSelectAll;
-      private JMenuItem runGo, runStep, runBackstep, runReset, runAssemble, runStop, runPause, runClearBreakpoints, runToggleBreakpoints;
+      private JMenuItem runGo, runStep, runBackstep, runReverseStep, runReverseContinue, runReset, runAssemble, runStop, runPause, runClearBreakpoints, runToggleBreakpoints;
       private JCheckBoxMenuItem settingsLabel, settingsPopupInput, settingsValueDisplayBase, settingsAddressDisplayBase,
               settingsExtended, settingsAssembleOnOpen, settingsAssembleAll, settingsWarningsAreErrors, settingsStartAtMain,
-      		  settingsDelayedBranching, settingsProgramArguments, settingsSelfModifyingCode;
+      		  settingsDelayedBranching, settingsProgramArguments, settingsSelfModifyingCode, settingsTimeTravel;
       private JMenuItem settingsExceptionHandler, settingsEditor, settingsHighlighting, settingsMemoryConfiguration;
       private JMenuItem helpHelp, helpAbout;
          
@@ -97,12 +97,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       EditRedoAction editRedoAction;
       private Action editCutAction, editCopyAction, editPasteAction, editFindReplaceAction, editSelectAllAction;
       private Action runAssembleAction, runGoAction, runStepAction, runBackstepAction, runResetAction, 
-                     runStopAction, runPauseAction, runClearBreakpointsAction, runToggleBreakpointsAction;
+                     runStopAction, runPauseAction, runClearBreakpointsAction, runToggleBreakpointsAction,
+                     runReverseStepAction, runReverseContinueAction;
       private Action settingsLabelAction, settingsPopupInputAction, settingsValueDisplayBaseAction, settingsAddressDisplayBaseAction,
                      settingsExtendedAction, settingsAssembleOnOpenAction, settingsAssembleAllAction,
       					settingsWarningsAreErrorsAction, settingsStartAtMainAction, settingsProgramArgumentsAction,
       					settingsDelayedBranchingAction, settingsExceptionHandlerAction, settingsEditorAction,
-      					settingsHighlightingAction, settingsMemoryConfigurationAction, settingsSelfModifyingCodeAction;    
+      					settingsHighlightingAction, settingsMemoryConfigurationAction, settingsSelfModifyingCodeAction,
+      					settingsTimeTravelAction;    
       private Action helpHelpAction, helpAboutAction;
    
    
@@ -337,6 +339,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                									  "Undo the last step", new Integer(KeyEvent.VK_B),
                									  KeyStroke.getKeyStroke( KeyEvent.VK_F8, 0), 
                									  mainUI);	
+            runReverseStepAction = new RunReverseStepAction("Reverse step", 
+                                            null,
+               									  "Go back one instruction, however far into the run (requires time travel setting)", new Integer(KeyEvent.VK_V),
+               									  KeyStroke.getKeyStroke( KeyEvent.VK_F8, InputEvent.SHIFT_MASK), 
+               									  mainUI);	
+            runReverseContinueAction = new RunReverseContinueAction("Reverse continue", 
+                                            null,
+               									  "Go back to the most recent breakpoint reached (requires time travel setting)", new Integer(KeyEvent.VK_E),
+               									  KeyStroke.getKeyStroke( KeyEvent.VK_F5, InputEvent.SHIFT_MASK), 
+               									  mainUI);	
             runPauseAction = new RunPauseAction("Pause", 
                                             new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"Pause22.png"))),
                									  "Pause the currently running program", new Integer(KeyEvent.VK_P),
@@ -425,6 +437,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                									  "If set, the MIPS program can write and branch to both text and data segments.",
                									  null,null,
                									  mainUI);
+            settingsTimeTravelAction  = new SettingsTimeTravelAction("Time travel",
+                                            null,
+               									  "If set, checkpoints taken during execution allow reverse step and continue to any earlier point.  Takes effect at next assembly.",
+               									  null,null,
+               									  mainUI);
             settingsEditorAction          = new SettingsEditorAction("Editor...",
                                             null,
                									  "View and modify text editor settings.",
@@ -554,6 +571,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runStep.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"StepForward16.png"))));//"MyStepForward16.gif"))));
          runBackstep = new JMenuItem(runBackstepAction);
          runBackstep.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"StepBack16.png"))));//"MyStepBack16.gif"))));
+         runReverseStep = new JMenuItem(runReverseStepAction);
+         runReverseStep.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"MyBlank16.gif"))));
+         runReverseContinue = new JMenuItem(runReverseContinueAction);
+         runReverseContinue.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"MyBlank16.gif"))));
          runReset = new JMenuItem(runResetAction);
          runReset.setIcon(new ImageIcon(tk.getImage(cs.getResource(Globals.imagesPath+"Reset16.png"))));//"MyReset16.gif"))));
          runStop = new JMenuItem(runStopAction);
@@ -569,6 +590,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          run.add(runGo);
          run.add(runStep);
          run.add(runBackstep);
+         run.add(runReverseStep);
+         run.add(runReverseContinue);
          run.add(runPause);
          run.add(runStop);
          run.add(runReset);
@@ -594,6 +617,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          settingsDelayedBranching.setSelected(Globals.getSettings().getDelayedBranchingEnabled());
          settingsSelfModifyingCode = new JCheckBoxMenuItem(settingsSelfModifyingCodeAction);
          settingsSelfModifyingCode.setSelected(Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED));
+         settingsTimeTravel = new JCheckBoxMenuItem(settingsTimeTravelAction);
+         settingsTimeTravel.setSelected(Globals.getSettings().getBooleanSetting(Settings.TIME_TRAVEL_ENABLED));
          settingsAssembleOnOpen = new JCheckBoxMenuItem(settingsAssembleOnOpenAction);
          settingsAssembleOnOpen.setSelected(Globals.getSettings().getAssembleOnOpenEnabled());
          settingsAssembleAll = new JCheckBoxMenuItem(settingsAssembleAllAction);
@@ -623,6 +648,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          settings.add(settingsExtended);
          settings.add(settingsDelayedBranching);
          settings.add(settingsSelfModifyingCode);
+         settings.add(settingsTimeTravel);
          settings.addSeparator();
          settings.add(settingsEditor);
          settings.add(settingsHighlighting);
@@ -817,6 +843,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runReverseStepAction.setEnabled(false);
+         runReverseContinueAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -857,6 +885,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             runGoAction.setEnabled(false);
             runStepAction.setEnabled(false);
             runBackstepAction.setEnabled(false);
+            runReverseStepAction.setEnabled(false);
+            runReverseContinueAction.setEnabled(false);
             runResetAction.setEnabled(false);
             runStopAction.setEnabled(false);
             runPauseAction.setEnabled(false);
@@ -895,6 +925,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runReverseStepAction.setEnabled(false);
+         runReverseContinueAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -931,6 +963,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runReverseStepAction.setEnabled(false);
+         runReverseContinueAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -969,6 +1003,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runBackstepAction.setEnabled(
             (Globals.getSettings().getBackSteppingEnabled()&& !Globals.program.getBackStepper().empty())
              ? true : false);
+         runReverseStepAction.setEnabled(Globals.program.getTimeTravel() != null);
+         runReverseContinueAction.setEnabled(Globals.program.getTimeTravel() != null);
          runResetAction.setEnabled(true);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);
@@ -1004,6 +1040,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runGoAction.setEnabled(false);
          runStepAction.setEnabled(false);
          runBackstepAction.setEnabled(false);
+         runReverseStepAction.setEnabled(false);
+         runReverseContinueAction.setEnabled(false);
          runResetAction.setEnabled(false);
          runStopAction.setEnabled(true);
          runPauseAction.setEnabled(true);
@@ -1040,6 +1078,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          runBackstepAction.setEnabled(
             (Globals.getSettings().getBackSteppingEnabled()&& !Globals.program.getBackStepper().empty())
              ? true : false);
+         runReverseStepAction.setEnabled(Globals.program.getTimeTravel() != null);
+         runReverseContinueAction.setEnabled(Globals.program.getTimeTravel() != null);
          runResetAction.setEnabled(true);
          runStopAction.setEnabled(false);
          runPauseAction.setEnabled(false);